@@ -0,0 +1,80 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.benchmarks;
+
+import com.ambrosus.utils.CryptoUtils;
+import com.ambrosus.utils.JsonUtils;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting of event data and computation of the data hash, either from the sorted string or streamed from the tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CanonicalizationBenchmarks {
+
+    @Param({"1", "10", "100", "1000"})
+    public int entries;
+
+    @Param({"1", "2", "4", "8"})
+    public int depth;
+
+    private JsonArray data;
+    private JsonObject wrappedData;
+
+
+    @Setup
+    public void setUp() {
+
+        data = Payloads.eventData(entries, depth);
+        wrappedData = new JsonObject();
+        wrappedData.add("data", data);
+    }
+
+
+    @Benchmark
+    public JsonObject recursiveSort() {
+
+        return JsonUtils.recursiveSort(wrappedData);
+    }
+
+
+    @Benchmark
+    public String sortedStringHash() {
+
+        return CryptoUtils.computeHashString(JsonUtils.arraySort(data).toString());
+    }
+
+
+    @Benchmark
+    public String streamedHash() {
+
+        return CryptoUtils.computeHashString(data);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.benchmarks;
+
+import com.ambrosus.utils.JsonPath;
+import com.ambrosus.utils.JsonPathSet;
+import com.ambrosus.utils.JsonUtils;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of values from a custom event data entry, by path string, compiled path and compiled path set. The path
+ * set also extracts an array element, and its streaming evaluation compares to parsing the whole entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPathBenchmarks {
+
+    // Paths without array index, which elementWithPath supports as well
+    private static final String[] PATHS = {"type", "details|details|measurement", "details|details|approved"};
+
+    private JsonObject entry;
+    private String entryJson;
+    private JsonPath[] compiledPaths;
+    private JsonPathSet pathSet;
+
+
+    @Setup
+    public void setUp() {
+
+        entry = Payloads.eventData(2, 4).get(1).getAsJsonObject();
+        entryJson = entry.toString();
+        compiledPaths = new JsonPath[PATHS.length];
+
+        for (int i = 0; i < PATHS.length; i++)
+            compiledPaths[i] = JsonPath.compile(PATHS[i]);
+
+        pathSet = JsonPathSet.compile(PATHS[0], PATHS[1], PATHS[2], "details|details|tags|1");
+    }
+
+
+    @Benchmark
+    public void elementWithPath(Blackhole blackhole) {
+
+        for (String path : PATHS)
+            blackhole.consume(JsonUtils.elementWithPath(entry, path));
+    }
+
+
+    @Benchmark
+    public void compiledPaths(Blackhole blackhole) {
+
+        for (JsonPath path : compiledPaths)
+            blackhole.consume(path.get(entry));
+    }
+
+
+    @Benchmark
+    public void pathSet(Blackhole blackhole) {
+
+        pathSet.evaluate(entry, (index, element) -> blackhole.consume(element));
+    }
+
+
+    @Benchmark
+    public void pathSetStreaming(Blackhole blackhole) throws IOException {
+
+        pathSet.evaluate(new JsonReader(new StringReader(entryJson)), (index, element) -> blackhole.consume(element));
+    }
+
+
+    @Benchmark
+    public JsonElement parseTree() {
+
+        return new JsonParser().parse(entryJson);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.benchmarks;
+
+import com.ambrosus.commons.Location;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.utils.Numeric;
+
+/**
+ * Generates event data payloads of a given size and nesting depth, shaped like the data sent to the REST API.
+ */
+final class Payloads {
+
+    static final String PRIVATE_KEY = "0x4d5db4107d237df6a3d58ee5f70ae63d73d7658d4026f2eefd2f204c81682cb7";
+    static final ECKeyPair KEY_PAIR = ECKeyPair.create(Numeric.toBigInt(PRIVATE_KEY));
+    static final String ADDRESS = Keys.toChecksumAddress(Keys.getAddress(KEY_PAIR));
+    static final String ASSET_ID = "0x30dbe10b0596e03810a051542302488fd45f8cc5a441cf202fd4b3ece4317f5e";
+    static final String CUSTOM_TYPE = "ambrosus.event.custom";
+
+
+    private Payloads() {
+    }
+
+
+    /**
+     * Builds an array of event data entries. One entry out of four is a location, the others are custom entries
+     * whose properties are nested {@code depth} levels deep.
+     *
+     * @param entries The number of event data entries
+     * @param depth   The nesting depth of the custom entries
+     * @return The event data, as sent in the data field of an event
+     */
+    static JsonArray eventData(int entries, int depth) {
+
+        JsonArray data = new JsonArray();
+
+        for (int i = 0; i < entries; i++)
+            data.add(i % 4 == 0 ? location(i) : customEntry(i, depth));
+
+        return data;
+    }
+
+
+    private static JsonObject location(int index) {
+
+        JsonObject coordinates = new JsonObject();
+        coordinates.addProperty("type", "Point");
+        JsonArray point = new JsonArray();
+        point.add(6.641192 + index);
+        point.add(46.779343);
+        coordinates.add("coordinates", point);
+
+        JsonObject geometry = new JsonObject();
+        geometry.add("geometry", coordinates);
+
+        JsonObject location = new JsonObject();
+        location.addProperty("type", Location.API_DATA_TYPE);
+        location.addProperty("name", "Warehouse " + index);
+        location.addProperty("city", "Yverdon-les-Bains");
+        location.addProperty("country", "Switzerland");
+        location.add("location", geometry);
+        return location;
+    }
+
+
+    private static JsonObject customEntry(int index, int depth) {
+
+        JsonObject entry = new JsonObject();
+        entry.addProperty("type", CUSTOM_TYPE);
+        entry.addProperty("sequence", index);
+
+        JsonObject level = entry;
+        for (int d = 0; d < depth; d++) {
+            JsonObject child = new JsonObject();
+            child.addProperty("zLabel", "level " + d);
+            child.addProperty("measurement", index * 0.5 + d);
+            child.addProperty("approved", d % 2 == 0);
+
+            JsonArray tags = new JsonArray();
+            tags.add("tag-" + d);
+            tags.add("batch-" + index);
+            child.add("tags", tags);
+
+            level.add("details", child);
+            level = child;
+        }
+
+        return entry;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.benchmarks;
+
+import com.ambrosus.commons.Location;
+import com.ambrosus.commons.RawJson;
+import com.ambrosus.model.Asset;
+import com.ambrosus.model.Event;
+import com.ambrosus.model.EventData;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of events, which hashes and signs them, and deserialization of events, event data and pages of
+ * assets with the tree adapters and with the streaming adapters registered by the SDK.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmarks {
+
+    private static final Type EVENT_DATA_LIST = new TypeToken<List<EventData>>() {
+    }.getType();
+    private static final Type ASSET_LIST = new TypeToken<List<Asset>>() {
+    }.getType();
+
+    @Param({"1", "10", "100", "1000"})
+    public int entries;
+
+    @Param({"1", "2", "4", "8"})
+    public int depth;
+
+    private Gson treeGson;
+    private Gson streamingGson;
+    private Event unsignedEvent;
+    private String eventJson;
+    private String eventDataJson;
+    private String assetPageJson;
+
+
+    @Setup
+    public void setUp() {
+
+        Map<String, Type> eventTypes = new HashMap<>();
+        eventTypes.put(Location.API_DATA_TYPE, Location.class);
+
+        treeGson = treeAdapters(eventTypes).create();
+        streamingGson = treeAdapters(eventTypes)
+                .registerTypeAdapterFactory(new Event.StreamingAdapter())
+                .registerTypeAdapterFactory(new Asset.StreamingAdapter())
+                .registerTypeAdapterFactory(new EventData.StreamingAdapter(eventTypes))
+                .create();
+
+        JsonArray data = Payloads.eventData(entries, depth);
+        Event.Builder eventBuilder = new Event.Builder()
+                .setAssetId(Payloads.ASSET_ID)
+                .setAccessLevel(0)
+                .addAllEventData(treeGson.fromJson(data, EVENT_DATA_LIST));
+        eventBuilder.setCreatedBy(Payloads.ADDRESS);
+        eventBuilder.setTimestamp(1530000000L);
+        unsignedEvent = eventBuilder.build();
+
+        eventJson = treeGson.toJson(unsignedEvent);
+        eventDataJson = data.toString();
+
+        JsonArray assetPage = new JsonArray();
+        for (int i = 0; i < entries; i++) {
+            Asset.Builder assetBuilder = new Asset.Builder().setAssetId(Payloads.ASSET_ID);
+            assetBuilder.setCreatedBy(Payloads.ADDRESS);
+            assetBuilder.setTimestamp(1530000000L + i);
+            assetBuilder.setSequenceNumber(i);
+            assetPage.add(treeGson.toJsonTree(assetBuilder.build()));
+        }
+        assetPageJson = assetPage.toString();
+    }
+
+
+    private static GsonBuilder treeAdapters(Map<String, Type> eventTypes) {
+
+        return new GsonBuilder()
+                .registerTypeAdapter(Location.class, new Location.Adapter())
+                .registerTypeAdapter(RawJson.class, new RawJson.Adapter())
+                .registerTypeAdapter(Event.class, new Event.Adapter(Payloads.KEY_PAIR))
+                .registerTypeAdapter(Asset.class, new Asset.Adapter(Payloads.KEY_PAIR))
+                .registerTypeAdapter(EVENT_DATA_LIST, new EventData.Adapter(eventTypes));
+    }
+
+
+    @Benchmark
+    public JsonElement serializeEvent() {
+
+        return treeGson.toJsonTree(unsignedEvent);
+    }
+
+
+    @Benchmark
+    public Event deserializeEventTree() {
+
+        return treeGson.fromJson(eventJson, Event.class);
+    }
+
+
+    @Benchmark
+    public Event deserializeEventStreaming() {
+
+        return streamingGson.fromJson(eventJson, Event.class);
+    }
+
+
+    @Benchmark
+    public List<EventData> dispatchEventDataTree() {
+
+        return treeGson.fromJson(eventDataJson, EVENT_DATA_LIST);
+    }
+
+
+    @Benchmark
+    public List<EventData> dispatchEventDataStreaming() {
+
+        return streamingGson.fromJson(eventDataJson, EVENT_DATA_LIST);
+    }
+
+
+    @Benchmark
+    public List<Asset> deserializeAssetsTree() {
+
+        return treeGson.fromJson(assetPageJson, ASSET_LIST);
+    }
+
+
+    @Benchmark
+    public List<Asset> deserializeAssetsStreaming() {
+
+        return streamingGson.fromJson(assetPageJson, ASSET_LIST);
+    }
+}
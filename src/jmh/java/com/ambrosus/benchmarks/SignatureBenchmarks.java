@@ -0,0 +1,92 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.benchmarks;
+
+import com.ambrosus.utils.CryptoUtils;
+import com.ambrosus.utils.Hex;
+import com.ambrosus.utils.MessageSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing and verification of the idData of an event, which is what the SDK signs for every asset and event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBenchmarks {
+
+    private String idData;
+    private String signature;
+    private byte[] idDataBytes;
+    private byte[] signatureBytes;
+    private byte[] signatureOutput;
+    private byte[] addressBytes;
+    private MessageSigner signer;
+
+
+    @Setup
+    public void setUp() {
+
+        idData = "{\"accessLevel\":0,\"assetId\":\"" + Payloads.ASSET_ID + "\",\"createdBy\":\"" + Payloads.ADDRESS +
+                "\",\"dataHash\":\"" + CryptoUtils.computeHashString(Payloads.eventData(10, 2)) +
+                "\",\"timestamp\":1530000000}";
+        signature = CryptoUtils.computeSignature(idData, Payloads.KEY_PAIR);
+        idDataBytes = idData.getBytes(StandardCharsets.UTF_8);
+        signatureBytes = Hex.decode(signature);
+        signatureOutput = new byte[MessageSigner.SIGNATURE_LENGTH];
+        addressBytes = Hex.decode(Payloads.ADDRESS);
+        signer = new MessageSigner();
+    }
+
+
+    @Benchmark
+    public String computeSignature() {
+
+        return CryptoUtils.computeSignature(idData, Payloads.KEY_PAIR);
+    }
+
+
+    @Benchmark
+    public boolean signatureMatches() {
+
+        return CryptoUtils.signatureMatches(idData, Payloads.ADDRESS, signature);
+    }
+
+
+    @Benchmark
+    public byte[] signBytes() {
+
+        signer.sign(idDataBytes, 0, idDataBytes.length, Payloads.KEY_PAIR, signatureOutput, 0);
+        return signatureOutput;
+    }
+
+
+    @Benchmark
+    public boolean verifyBytes() {
+
+        return signer.verify(idDataBytes, 0, idDataBytes.length, signatureBytes, 0, addressBytes, 0);
+    }
+}
@@ -14,19 +14,26 @@ import com.ambrosus.commons.Location;
 import com.ambrosus.commons.Message;
 import com.ambrosus.commons.RawJson;
 import com.ambrosus.commons.Transport;
+import com.ambrosus.instrumentation.Instrumentation;
+import com.ambrosus.instrumentation.InstrumentedCallAdapterFactory;
+import com.ambrosus.instrumentation.InstrumentedConverterFactory;
 import com.ambrosus.model.*;
 import com.ambrosus.network.*;
+import com.ambrosus.store.EventStore;
 import com.ambrosus.utils.*;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import okhttp3.OkHttpClient;
 import org.web3j.crypto.ECKeyPair;
 import org.web3j.crypto.Keys;
 import org.web3j.utils.Numeric;
 import retrofit2.Call;
+import retrofit2.Callback;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -36,9 +43,14 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.ambrosus.network.AmbrosusService.SECRET_PREAMBLE;
 
@@ -66,10 +78,21 @@ public class AmbrosusSDK {
     private final Config config;
     private final ECKeyPair keyPair;
     private final String address;
-    private boolean initialized;
-    private Gson gson;
-    private AmbrosusService ambrosusService;
-    private int sequenceNumber;
+    private final AtomicBoolean initStarted;
+    private final SequenceGenerator sequenceGenerator;
+    private volatile boolean initialized;
+    private volatile Gson gson;
+    private volatile AmbrosusService ambrosusService;
+    private ResponseCache<Asset> assetCache;
+    private ResponseCache<Event> eventCache;
+    private SignerCache signerCache;
+    private Instrumentation instrumentation;
+    private RequestCoalescer requestCoalescer;
+    private RequestRetrier requestRetrier;
+    private RequestLimiter requestLimiter;
+    private NodePolicy nodePolicy;
+    private NodePool nodePool;
+    private RequestHedger requestHedger;
 
 
     /**
@@ -78,12 +101,14 @@ public class AmbrosusSDK {
      * @param config The config object holding connexion parameters and credentials for the SDK
      */
     public AmbrosusSDK(Config config) {
+        this.initStarted = new AtomicBoolean(false);
         this.initialized = false;
         this.config = config;
         this.keyPair = ECKeyPair.create(Numeric.toBigInt(config.privateKey));
         this.address = Keys.toChecksumAddress(Keys.getAddress(keyPair));
-        this.sequenceNumber = 0;
+        this.sequenceGenerator = new SequenceGenerator(MAX_SEQUENCE_NUMBER);
         this.gson = new Gson();
+        this.instrumentation = Instrumentation.NONE;
         eventTypes = new HashMap<>();
         customAdapters = new HashMap<>();
     }
@@ -120,12 +145,18 @@ public class AmbrosusSDK {
 
         // Register model adapters
         gsonBuilder.registerTypeAdapter(RawJson.class, new RawJson.Adapter());
-        gsonBuilder.registerTypeAdapter(Asset.class, new Asset.Adapter(keyPair));
-        gsonBuilder.registerTypeAdapter(Event.class, new Event.Adapter(keyPair));
+        gsonBuilder.registerTypeAdapter(Asset.class, new Asset.Adapter(keyPair, instrumentation));
+        gsonBuilder.registerTypeAdapter(Event.class, new Event.Adapter(keyPair, instrumentation));
         gsonBuilder.registerTypeAdapter(Account.class, new Account.Adapter());
         gsonBuilder.registerTypeAdapter(new TypeToken<List<EventData>>() {
         }.getType(), new EventData.Adapter(eventTypes));
 
+        // Deserialize model types from the token stream, serialization is left to the adapters above
+        gsonBuilder.registerTypeAdapterFactory(new Asset.StreamingAdapter());
+        gsonBuilder.registerTypeAdapterFactory(new Event.StreamingAdapter());
+        gsonBuilder.registerTypeAdapterFactory(new Account.StreamingAdapter());
+        gsonBuilder.registerTypeAdapterFactory(new EventData.StreamingAdapter(eventTypes));
+
         gsonBuilder.setExclusionStrategies(new AmbTypeExclusionStrategy());
 
         this.gson = gsonBuilder.create();
@@ -134,24 +165,62 @@ public class AmbrosusSDK {
 
     /**
      * Initializes the web service for sending and receiving HTTP messages. The custom type adapter must be set
-     * before calling this function.
+     * before calling this function. Once initialized, the SDK can be shared between threads.
      */
     public void init() {
-        if (initialized) {
+        if (!initStarted.compareAndSet(false, true)) {
             throw new IllegalStateException("This SDK instance has already been initialized.");
-        } else {
-            initialized = true;
         }
 
         createGson();
 
+        OkHttpClient client = config.httpConfig.createClient();
+
+        // Requests are built against the first node, and spread over the others by the pool
+        if (config.baseUrls.size() > 1 || nodePolicy != null) {
+            nodePool = new NodePool(config.baseUrls, nodePolicy != null ? nodePolicy :
+                    new NodePolicy.Builder().build());
+            client = client.newBuilder().addInterceptor(nodePool).build();
+        }
+
         // Instantiate Http service
-        Retrofit retrofit = new Retrofit.Builder()
+        Retrofit.Builder retrofitBuilder = new Retrofit.Builder()
                 .baseUrl(config.baseUrl)
-                .addConverterFactory(GsonConverterFactory.create(gson))
-                .build();
+                .client(client);
+
+        // Without instrumentation, the calls and conversions are left unwrapped
+        if (instrumentation != Instrumentation.NONE) {
+            retrofitBuilder
+                    .addCallAdapterFactory(new InstrumentedCallAdapterFactory(instrumentation))
+                    .addConverterFactory(new InstrumentedConverterFactory(GsonConverterFactory.create(gson),
+                            instrumentation));
+        } else {
+            retrofitBuilder.addConverterFactory(GsonConverterFactory.create(gson));
+        }
+
+        // Added after the instrumentation, so that every coalesced call is measured, and coalesced calls share the
+        // retries of their request
+        if (requestCoalescer != null)
+            retrofitBuilder.addCallAdapterFactory(requestCoalescer);
+
+        if (requestRetrier != null)
+            retrofitBuilder.addCallAdapterFactory(requestRetrier);
+
+        if (nodePolicy != null && nodePolicy.isHedgingEnabled()) {
+            requestHedger = new RequestHedger(nodePolicy);
+            retrofitBuilder.addCallAdapterFactory(requestHedger);
+        }
+
+        // Added last, so that every attempt made by the retrier, and every hedge, waits for its own slot and token
+        if (requestLimiter != null)
+            retrofitBuilder.addCallAdapterFactory(requestLimiter);
+
+        Retrofit retrofit = retrofitBuilder.build();
 
         this.ambrosusService = retrofit.create(AmbrosusService.class);
+
+        // Written last, so that threads seeing the SDK as initialized also see the state set up above
+        initialized = true;
     }
 
 
@@ -204,7 +273,209 @@ public class AmbrosusSDK {
 
 
     /**
-     * Requests from the API the asset whose ID matches the one given in parameter.
+     * Enables the in-process caching of assets and events, which are immutable once created. Assets retrieved by ID
+     * and events retrieved by ID or through event queries are cached, and later requests for the same ID are served
+     * without contacting the API. Must be called before {@link #init()}.
+     *
+     * @param cacheConfig The limits applied to the asset cache and to the event cache. Each asset weighs 1 and each
+     *                    event 1 plus its number of event data entries.
+     * @throws IllegalStateException if the SDK was already initialized
+     */
+    public void enableCache(ResponseCache.Config cacheConfig) {
+
+        throwIfInitialized();
+
+        assetCache = new ResponseCache<>(cacheConfig, asset -> 1);
+        eventCache = new ResponseCache<>(cacheConfig, event -> 1 + event.getEventDataList().size());
+    }
+
+
+    /**
+     * @return The asset cache, to inspect its metrics or invalidate entries, or null if caching is not enabled
+     */
+    public ResponseCache<Asset> getAssetCache() {
+
+        return assetCache;
+    }
+
+
+    /**
+     * @return The event cache, to inspect its metrics or invalidate entries, or null if caching is not enabled
+     */
+    public ResponseCache<Event> getEventCache() {
+
+        return eventCache;
+    }
+
+
+    /**
+     * Enables the caching of the addresses recovered during signature verification, so that verifying the same
+     * signature of the same content again does not recover the public key again. Must be called before
+     * {@link #init()}.
+     *
+     * @param maxEntries The maximum number of recovered addresses kept, each taking about 250 bytes
+     * @throws IllegalStateException if the SDK was already initialized
+     */
+    public void enableSignerCache(int maxEntries) {
+
+        throwIfInitialized();
+
+        signerCache = new SignerCache(maxEntries);
+    }
+
+
+    /**
+     * @return The cache of recovered addresses, to inspect its metrics or clear it, or null if it is not enabled
+     */
+    public SignerCache getSignerCache() {
+
+        return signerCache;
+    }
+
+
+    /**
+     * Enables the coalescing of concurrent identical reads: while a request is in flight, the same request made
+     * again, for instance a {@link #getAsset(String, Consumer, BiConsumer)} of the same asset, is not sent and its
+     * consumer receives the response of the pending request. Must be called before {@link #init()}.
+     * <p>
+     * Consumers of coalesced requests receive the same objects, which must therefore not be modified.
+     *
+     * @throws IllegalStateException if the SDK was already initialized
+     */
+    public void enableRequestCoalescing() {
+
+        throwIfInitialized();
+
+        requestCoalescer = new RequestCoalescer();
+    }
+
+
+    /**
+     * @return The request coalescer, to inspect its metrics, or null if coalescing is not enabled
+     */
+    public RequestCoalescer getRequestCoalescer() {
+
+        return requestCoalescer;
+    }
+
+
+    /**
+     * Enables the retry of the requests which failed because of a network failure or a transient unavailability of
+     * the API, with an exponential backoff and a retry budget. Reads are retried in more cases than signed writes,
+     * see {@link RequestRetrier}. Must be called before {@link #init()}.
+     *
+     * @param retryPolicy The number of attempts, backoff and retry budget
+     * @throws IllegalStateException if the SDK was already initialized
+     */
+    public void enableRetries(RetryPolicy retryPolicy) {
+
+        throwIfInitialized();
+
+        requestRetrier = new RequestRetrier(retryPolicy);
+    }
+
+
+    /**
+     * @return The request retrier, to inspect its metrics, or null if retries are not enabled
+     */
+    public RequestRetrier getRequestRetrier() {
+
+        return requestRetrier;
+    }
+
+
+    /**
+     * Enables client-side limits on the requests sent to the API: a rate per operation, an adaptive limit on the
+     * number of requests in flight, and priority classes letting interactive requests overtake bulk queries, see
+     * {@link RequestLimiter}. Must be called before {@link #init()}.
+     *
+     * @param limitPolicy The initial rates, concurrency limits and priorities
+     * @throws IllegalStateException if the SDK was already initialized
+     */
+    public void enableRequestLimits(LimitPolicy limitPolicy) {
+
+        throwIfInitialized();
+
+        requestLimiter = new RequestLimiter(limitPolicy);
+    }
+
+
+    /**
+     * @return The request limiter, to inspect its metrics or change its limits, or null if limits are not enabled
+     */
+    public RequestLimiter getRequestLimiter() {
+
+        return requestLimiter;
+    }
+
+
+    /**
+     * Sets the circuit breaker settings of the nodes of the API given by the {@link Config}, and enables hedged reads
+     * if the policy sets them, see {@link NodePool} and {@link RequestHedger}. Several nodes are used with the default
+     * policy if none is set. Must be called before {@link #init()}.
+     *
+     * @param nodePolicy The circuit breaker and hedging settings
+     * @throws IllegalStateException if the SDK was already initialized
+     */
+    public void setNodePolicy(NodePolicy nodePolicy) {
+
+        throwIfInitialized();
+
+        if (nodePolicy == null)
+            throw new IllegalArgumentException("The node policy must not be null.");
+
+        this.nodePolicy = nodePolicy;
+    }
+
+
+    /**
+     * @return The nodes of the API, to inspect their state and metrics, or null if the SDK is not initialized or
+     * uses a single node without node policy
+     */
+    public NodePool getNodePool() {
+
+        return nodePool;
+    }
+
+
+    /**
+     * @return The request hedger, to inspect its metrics, or null if the SDK is not initialized or hedging is not
+     * enabled
+     */
+    public RequestHedger getRequestHedger() {
+
+        return requestHedger;
+    }
+
+
+    /**
+     * Sets the instrumentation receiving the duration of the network, serialization, deserialization, cryptography
+     * and callback phases of the operations of this SDK, for instance a {@link com.ambrosus.instrumentation
+     * .MetricsRecorder}. Nothing is measured by default. Must be called before {@link #init()}.
+     *
+     * @param instrumentation The instrumentation, called on the threads performing the operations
+     * @throws IllegalStateException if the SDK was already initialized
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+
+        throwIfInitialized();
+
+        if (instrumentation == null)
+            throw new IllegalArgumentException("The instrumentation must not be null, use Instrumentation.NONE.");
+
+        this.instrumentation = instrumentation;
+    }
+
+
+    public Instrumentation getInstrumentation() {
+
+        return instrumentation;
+    }
+
+
+    /**
+     * Requests from the API the asset whose ID matches the one given in parameter. If caching is enabled and the
+     * asset was already retrieved, it is delivered from the cache.
      *
      * @param assetId       The identifier of the asset to retrieve
      * @param assetConsumer A consumer able to handle the asset if the request is successful or null otherwise
@@ -214,7 +485,7 @@ public class AmbrosusSDK {
             Throwable> errorConsumer) {
 
         throwIfNotInitialized();
-        ambrosusService.getAsset(assetId).enqueue(new NetworkUtils.DefaultCallback<>(assetConsumer, errorConsumer));
+        loadAsset(assetId, new NetworkUtils.DefaultCallback<>(assetConsumer, errorConsumer));
     }
 
 
@@ -231,10 +502,91 @@ public class AmbrosusSDK {
 
         throwIfNotInitialized();
 
-        ambrosusService
-                .getAsset(assetId)
-                .enqueue(new NetworkUtils.RetrieveEventsForAsset(this, successConsumer,
-                errorConsumer));
+        loadAsset(assetId, new NetworkUtils.RetrieveEventsForAsset(this, successConsumer, errorConsumer));
+    }
+
+
+    /**
+     * Requests from the API a collection of assets along with their events. The asset and the events of each asset are
+     * requested at the same time, and up to {@code parallelism} assets are retrieved concurrently. Assets are
+     * delivered to the success consumer as soon as they are complete, in no particular order.
+     * <p>
+     * Each asset requires two requests, so the effective number of requests in flight is also bounded by the
+     * dispatcher limits of the HTTP client.
+     *
+     * @param assetIds           The identifiers of the assets to retrieve
+     * @param parallelism        The maximum number of assets being retrieved at the same time
+     * @param successConsumer    A consumer able to handle each asset once it was retrieved with its events
+     * @param errorConsumer      A consumer able to handle the call and the throwable raised for each asset which could
+     *                           not be retrieved
+     * @param completionCallback Invoked once every asset has been delivered or reported as failed, may be null
+     * @throws IllegalStateException    if the SDK was not initialized before this call
+     * @throws IllegalArgumentException if the parallelism is not positive
+     */
+    public void getAssetsWithEvents(Collection<String> assetIds, int parallelism, Consumer<Asset> successConsumer,
+                                    BiConsumer<Call<?>, Throwable> errorConsumer, Runnable completionCallback) {
+
+        throwIfNotInitialized();
+
+        new NetworkUtils.RetrieveAssetsWithEvents(this, assetIds, parallelism, successConsumer, errorConsumer,
+                completionCallback).start();
+    }
+
+
+    /**
+     * Opens a local store of assets and events, using the type adapters of this SDK to persist them.
+     *
+     * @param directory The directory holding the store files, created if needed
+     * @return The opened store, to be closed by the caller
+     * @throws IOException           if the store could not be opened
+     * @throws IllegalStateException if the SDK was not initialized before this call
+     */
+    public EventStore openEventStore(File directory) throws IOException {
+
+        throwIfNotInitialized();
+        return EventStore.open(directory, gson);
+    }
+
+
+    /**
+     * Retrieves an asset with all its events through a local store. Only what is missing from the store is requested
+     * from the API: the asset if it was never stored, and the events from the timestamp of the newest stored event.
+     * The retrieved objects are added to the store before the asset is delivered with every stored event.
+     *
+     * @param assetId         The identifier of the asset to retrieve
+     * @param store           The local store, see {@link #openEventStore(File)}
+     * @param successConsumer A consumer able to handle the asset with its events
+     * @param errorConsumer   A consumer able to handle the call, or null if the store failed, and the throwable
+     *                        raised if the synchronization failed
+     * @throws IllegalStateException if the SDK was not initialized before this call
+     */
+    public void syncAssetWithEvents(String assetId, EventStore store, Consumer<Asset> successConsumer,
+                                    BiConsumer<Call<?>, Throwable> errorConsumer) {
+
+        throwIfNotInitialized();
+
+        new NetworkUtils.SyncAssetWithEvents(this, assetId, store, successConsumer, errorConsumer).start();
+    }
+
+
+    /**
+     * Brings an asset up to date with the events added since its most recent event. Only the events from the
+     * timestamp of that event are requested, and they are merged into the events of the asset without rebuilding it.
+     *
+     * @param asset           An asset previously retrieved with its events
+     * @param successConsumer A consumer able to handle the updated asset
+     * @param errorConsumer   A consumer able to handle two arguments, the first one being the retrofit call made by
+     *                        the SDK to the API and the second the throwable that was raised during the execution of
+     *                        this call.
+     * @throws IllegalStateException if the SDK was not initialized before this call
+     */
+    public void syncAsset(Asset asset, Consumer<Asset> successConsumer,
+                          BiConsumer<Call<?>, Throwable> errorConsumer) {
+
+        throwIfNotInitialized();
+
+        new NetworkUtils.RetrieveEventsFrom(this, asset.getAssetId(), asset.getLatestEventTimestamp(),
+                events -> successConsumer.accept(asset.withNewEvents(events)), errorConsumer).start();
     }
 
 
@@ -255,17 +607,8 @@ public class AmbrosusSDK {
 
         throwIfNotInitialized();
 
-        if (assetBuilder.getCreatedBy() == null)
-            assetBuilder.setCreatedBy(address);
-
-        if (assetBuilder.getTimestamp() == null)
-            assetBuilder.setTimestamp(getUnixTimeStamp());
-
-        if (assetBuilder.getSequenceNumber() == null)
-            assetBuilder.setSequenceNumber(getSequenceNumber());
-
         ambrosusService
-                .createAsset(assetBuilder.build())
+                .createAsset(prepareAsset(assetBuilder))
                 .enqueue(new NetworkUtils.DefaultCallback<>(assetConsumer, errorConsumer));
 
     }
@@ -291,11 +634,35 @@ public class AmbrosusSDK {
 
         ambrosusService
                 .getEvents(assetId)
-                .enqueue(new NetworkUtils.DefaultCallback<>(ambQueryResultConsumer, errorConsumer));
+                .enqueue(new NetworkUtils.DefaultCallback<>(cachingEvents(ambQueryResultConsumer), errorConsumer));
 
     }
 
 
+    /**
+     * Requests from the API the event whose ID matches the one given in parameter. If caching is enabled and the
+     * event was already retrieved, it is delivered from the cache.
+     *
+     * @param eventId       The identifier of the event to retrieve
+     * @param eventConsumer A consumer able to handle the event if the request is successful or null otherwise
+     * @param errorConsumer A consumer able to handle the call and the throwable raised if the request failed
+     * @throws IllegalStateException if the SDK was not initialized before this call
+     */
+    public void getEvent(String eventId, Consumer<ResponseWrapper<Event>> eventConsumer, BiConsumer<Call<Event>,
+            Throwable> errorConsumer) {
+
+        throwIfNotInitialized();
+
+        NetworkUtils.DefaultCallback<Event> callback = new NetworkUtils.DefaultCallback<>(eventConsumer,
+                errorConsumer);
+
+        if (eventCache != null)
+            eventCache.load(eventId, ambrosusService.getEvent(eventId), callback);
+        else
+            ambrosusService.getEvent(eventId).enqueue(callback);
+    }
+
+
     /**
      * Requests the Ambrosus API to store a new event
      *
@@ -314,23 +681,28 @@ public class AmbrosusSDK {
 
         throwIfNotInitialized();
 
-        if (eventBuilder.getAssetId() == null)
-            throw new IllegalArgumentException("Missing asset ID in event builder.");
+        Event event = prepareEvent(eventBuilder);
 
-        if (eventBuilder.getCreatedBy() == null)
-            eventBuilder.setCreatedBy(address);
+        ambrosusService
+                .createEvent(event.getAssetId(), event)
+                .enqueue(new NetworkUtils.DefaultCallback<>(eventConsumer, errorConsumer));
+    }
 
-        if (eventBuilder.getTimestamp() == null)
-            eventBuilder.setTimestamp(getUnixTimeStamp());
 
-        if (eventBuilder.getAccessLevel() == null)
-            eventBuilder.setAccessLevel(0);
+    /**
+     * Creates an outbox which groups events, signs them on a pool of worker threads and submits them to the API
+     * with a bounded number of requests in flight. Use it instead of {@link #createEvent(Event.Builder, Consumer,
+     * BiConsumer)} when events are produced faster than they can be sent one by one.
+     *
+     * @param outboxConfig The sizing of the outbox queue, batches, worker pool and in-flight requests
+     * @return A running outbox which must be closed once no more events are submitted
+     * @throws IllegalStateException if the SDK was not initialized before this call
+     */
+    public EventOutbox createEventOutbox(EventOutbox.Config outboxConfig) {
 
-        Event event = eventBuilder.build();
+        throwIfNotInitialized();
 
-        ambrosusService
-                .createEvent(event.getAssetId(), event)
-                .enqueue(new NetworkUtils.DefaultCallback<>(eventConsumer, errorConsumer));
+        return new EventOutbox(this, outboxConfig);
     }
 
 
@@ -378,14 +750,8 @@ public class AmbrosusSDK {
 
         throwIfNotInitialized();
 
-        if (accountBuilder.getAddress() == null)
-            throw new IllegalArgumentException("Missing address in account builder.");
-
-        if (accountBuilder.getAccessLevel() == null)
-            accountBuilder.setAccessLevel(0);
-
         ambrosusService
-                .createAccount(AmbrosusService.TOKEN_PREAMBLE + token, accountBuilder.build())
+                .createAccount(AmbrosusService.TOKEN_PREAMBLE + token, prepareAccount(accountBuilder))
                 .enqueue(new NetworkUtils.DefaultCallback<>(accountConsumer, errorConsumer));
     }
 
@@ -405,11 +771,7 @@ public class AmbrosusSDK {
 
         throwIfNotInitialized();
 
-        JsonObject jObj = new JsonObject();
-        jObj.addProperty("validUntil", validUntil);
-
-        ambrosusService
-                .createToken(SECRET_PREAMBLE + config.privateKey, jObj)
+        newTokenCall(validUntil)
                 .enqueue(new NetworkUtils.DefaultCallback<>(tokenConsumer, errorConsumer));
     }
 
@@ -490,7 +852,41 @@ public class AmbrosusSDK {
 
         ambrosusService
                 .findEvents(params)
-                .enqueue(new NetworkUtils.DefaultCallback<>(eventQueryConsumer, errorConsumer));
+                .enqueue(new NetworkUtils.DefaultCallback<>(cachingEvents(eventQueryConsumer), errorConsumer));
+    }
+
+
+    /**
+     * Iterates over every asset matching a query, retrieving the result pages lazily. The next page is requested in
+     * the background while the current one is consumed.
+     *
+     * @param params A query parameters map, see {@link #findAssets(Map, Consumer, BiConsumer)}. The page parameter
+     *               sets the first page to retrieve and the perPage parameter the size of the pages.
+     * @return An iterator over the matching assets, which should be closed if it is not consumed entirely
+     * @throws IllegalStateException if the SDK was not initialized before this call
+     */
+    public QueryIterator<Asset> iterateAssets(Map<String, String> params) {
+
+        throwIfNotInitialized();
+
+        return new QueryIterator<>(ambrosusService::findAssets, params);
+    }
+
+
+    /**
+     * Iterates over every event matching a query, retrieving the result pages lazily. The next page is requested in
+     * the background while the current one is consumed. The retrieved events fill the event cache, if it is enabled.
+     *
+     * @param params A query parameters map, see {@link #findEvents(Map, Consumer, BiConsumer)}. The page parameter
+     *               sets the first page to retrieve and the perPage parameter the size of the pages.
+     * @return An iterator over the matching events, which should be closed if it is not consumed entirely
+     * @throws IllegalStateException if the SDK was not initialized before this call
+     */
+    public QueryIterator<Event> iterateEvents(Map<String, String> params) {
+
+        throwIfNotInitialized();
+
+        return new QueryIterator<>(ambrosusService::findEvents, params, this::cacheEvents);
     }
 
 
@@ -539,9 +935,11 @@ public class AmbrosusSDK {
         JsonObject idData = content.getAsJsonObject(JsonProperties.ID_DATA);
         String candidatehash = idData.get(JsonProperties.DATA_HASH).getAsString();
 
-        return candidatehash.equals(
-                CryptoUtils.computeHashString(JsonUtils.arraySort(data).toString())
-        );
+        long start = System.nanoTime();
+        boolean matches = candidatehash.equals(CryptoUtils.computeHashString(data));
+        instrumentation.record("verifyDatahash", Instrumentation.Phase.CRYPTO, System.nanoTime() - start, null);
+
+        return matches;
     }
 
 
@@ -571,6 +969,84 @@ public class AmbrosusSDK {
     }
 
 
+    /**
+     * Verifies the signatures of a collection of events and assets in parallel, on the common fork-join pool.
+     *
+     * @param items              The events and assets for which to verify the signature
+     * @param stopOnFirstFailure If true, the remaining items are skipped as soon as one invalid signature is found
+     * @return The verification result of every item, in the iteration order of the collection, with aggregate counts
+     * @throws IllegalArgumentException if the collection contains something other than events and assets
+     */
+    public VerificationReport verifySignatures(Collection<? extends AmbrosusType> items, boolean stopOnFirstFailure) {
+
+        return verifySignatures(items, stopOnFirstFailure, ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * Verifies the signatures of a collection of events and assets in parallel. Public key recovery is spread over
+     * the workers of the given pool.
+     *
+     * @param items              The events and assets for which to verify the signature
+     * @param stopOnFirstFailure If true, the remaining items are skipped as soon as one invalid signature is found
+     * @param pool               The fork-join pool running the verifications
+     * @return The verification result of every item, in the iteration order of the collection, with aggregate counts
+     * @throws IllegalArgumentException if the collection contains something other than events and assets
+     */
+    public VerificationReport verifySignatures(Collection<? extends AmbrosusType> items, boolean stopOnFirstFailure,
+                                               ForkJoinPool pool) {
+
+        for (AmbrosusType item : items) {
+            if (!(item instanceof Event || item instanceof Asset))
+                throw new IllegalArgumentException("Only signatures of events and assets can be verified.");
+        }
+
+        return new BulkVerifier<AmbrosusType>(item -> verifySignature(gson.toJsonTree(item)), pool)
+                .verify(items, stopOnFirstFailure);
+    }
+
+
+    private void loadAsset(String assetId, Callback<Asset> callback) {
+
+        if (assetCache != null)
+            assetCache.load(assetId, ambrosusService.getAsset(assetId), callback);
+        else
+            ambrosusService.getAsset(assetId).enqueue(callback);
+    }
+
+
+    /**
+     * Wraps a query consumer so that the events of successful queries fill the event cache, if it is enabled.
+     */
+    private Consumer<ResponseWrapper<EventQueryResponse>> cachingEvents(
+            Consumer<ResponseWrapper<EventQueryResponse>> eventQueryConsumer) {
+
+        if (eventCache == null)
+            return eventQueryConsumer;
+
+        return queryResponse -> {
+            if (queryResponse.isSuccessful() && queryResponse.hasBody())
+                cacheEvents(queryResponse.body());
+
+            eventQueryConsumer.accept(queryResponse);
+        };
+    }
+
+
+    /**
+     * Adds the events of a query result to the event cache, if it is enabled.
+     */
+    void cacheEvents(QueryResponse<Event> queryResponse) {
+
+        if (eventCache == null || queryResponse.getResults() == null)
+            return;
+
+        for (Event event : queryResponse.getResults())
+            if (event != null && event.getEventId() != null)
+                eventCache.put(event.getEventId(), event);
+    }
+
+
     private void throwIfNotInitialized() {
         if (!initialized) {
             throw new IllegalStateException("The SDK was not initialized. Call init() to initialize the SDK.");
@@ -579,7 +1055,7 @@ public class AmbrosusSDK {
 
 
     private void throwIfInitialized() {
-        if (initialized) {
+        if (initStarted.get()) {
             throw new IllegalStateException("The SDK was already initialized. Create a new SDK before performing this" +
                     " action.");
         }
@@ -594,16 +1070,128 @@ public class AmbrosusSDK {
         JsonObject idData = content.getAsJsonObject(JsonProperties.ID_DATA);
         String address = idData.get(JsonProperties.CREATED_BY).getAsString();
 
+        long start = System.nanoTime();
+
         try {
-            return CryptoUtils.signatureMatches(idData.toString(), address, signature);
+            boolean matches = CryptoUtils.signatureMatches(idData.toString(), address, signature, signerCache);
+            instrumentation.record("verifySignature", Instrumentation.Phase.CRYPTO, System.nanoTime() - start, null);
+            return matches;
         } catch (RuntimeException e) {
             // Depending on the signature hex value, decoding could fail
+            instrumentation.record("verifySignature", Instrumentation.Phase.CRYPTO, System.nanoTime() - start, e);
             e.printStackTrace();
             return false;
         }
     }
 
 
+    /**
+     * Completes the asset builder with the creator's address, the timestamp and the sequence number if they are
+     * missing.
+     *
+     * @param assetBuilder An asset builder
+     * @return The asset built from the completed builder
+     */
+    Asset prepareAsset(Asset.Builder assetBuilder) {
+
+        if (assetBuilder.getCreatedBy() == null)
+            assetBuilder.setCreatedBy(address);
+
+        if (assetBuilder.getTimestamp() == null)
+            assetBuilder.setTimestamp(getUnixTimeStamp());
+
+        if (assetBuilder.getSequenceNumber() == null)
+            assetBuilder.setSequenceNumber(getSequenceNumber());
+
+        return assetBuilder.build();
+    }
+
+
+    /**
+     * Completes the event builder with the creator's address, the timestamp and the access level if they are missing.
+     *
+     * @param eventBuilder An event builder with the asset ID already set
+     * @return The event built from the completed builder
+     * @throws IllegalArgumentException if the asset ID was not set in the builder
+     */
+    Event prepareEvent(Event.Builder eventBuilder) {
+
+        if (eventBuilder.getAssetId() == null)
+            throw new IllegalArgumentException("Missing asset ID in event builder.");
+
+        if (eventBuilder.getCreatedBy() == null)
+            eventBuilder.setCreatedBy(address);
+
+        if (eventBuilder.getTimestamp() == null)
+            eventBuilder.setTimestamp(getUnixTimeStamp());
+
+        if (eventBuilder.getAccessLevel() == null)
+            eventBuilder.setAccessLevel(0);
+
+        return eventBuilder.build();
+    }
+
+
+    /**
+     * Computes the data hash and the signature of an event ahead of its submission, so that serializing it for the
+     * request does not sign it again.
+     *
+     * @param event The event to sign
+     * @return A copy of the event holding its data hash and signature
+     */
+    Event signEvent(Event event) {
+
+        JsonObject content = gson.toJsonTree(event).getAsJsonObject().getAsJsonObject(JsonProperties.CONTENT);
+        JsonObject idData = content.getAsJsonObject(JsonProperties.ID_DATA);
+
+        Event.Builder builder = Event.Builder.fromExistingEvent(event);
+        builder.setDataHash(idData.get(JsonProperties.DATA_HASH).getAsString());
+        builder.setSignature(content.get(JsonProperties.SIGNATURE).getAsString());
+
+        return builder.build();
+    }
+
+
+    /**
+     * Completes the account builder with the access level if it is missing.
+     *
+     * @param accountBuilder An account builder with the address already set
+     * @return The account built from the completed builder
+     * @throws IllegalArgumentException if the address was not set in the builder
+     */
+    Account prepareAccount(Account.Builder accountBuilder) {
+
+        if (accountBuilder.getAddress() == null)
+            throw new IllegalArgumentException("Missing address in account builder.");
+
+        if (accountBuilder.getAccessLevel() == null)
+            accountBuilder.setAccessLevel(0);
+
+        return accountBuilder.build();
+    }
+
+
+    /**
+     * @param validUntil Validity of the token, as a Unix timestamp with a resolution of one second
+     * @return A call creating a token with the account provided to the SDK configuration object
+     * @throws IllegalStateException if the SDK was not initialized before this call
+     */
+    Call<Token> newTokenCall(Long validUntil) {
+
+        JsonObject jObj = new JsonObject();
+        jObj.addProperty("validUntil", validUntil);
+
+        return service().createToken(SECRET_PREAMBLE + config.privateKey, jObj);
+    }
+
+
+    AmbrosusService service() {
+
+        throwIfNotInitialized();
+        return ambrosusService;
+    }
+
+
     private void registerTypeIfNotOverriden(String typename, Type typeClass, Object adapter) {
         if (!eventTypes.containsKey(typename)) {
             eventTypes.put(typename, typeClass);
@@ -627,14 +1215,13 @@ public class AmbrosusSDK {
 
     /**
      * Increment and return the asset creation sequence number. Make sure the sequence number remains within
-     * reasonable bounds.
+     * reasonable bounds. Concurrent callers receive distinct sequence numbers.
      *
      * @return The sequence number
      */
     private int getSequenceNumber() {
 
-        sequenceNumber = (sequenceNumber + 1) % MAX_SEQUENCE_NUMBER;
-        return sequenceNumber;
+        return sequenceGenerator.next();
     }
 
 
@@ -666,11 +1253,13 @@ public class AmbrosusSDK {
     public static final class Config {
 
         private final String baseUrl;
+        private final List<String> baseUrls;
         private final String privateKey;
+        private final HttpConfig httpConfig;
 
 
         /**
-         * Constructs an instance of the configuration class
+         * Constructs an instance of the configuration class with the default HTTP settings
          *
          * @param restAPIBaseUrl The url of the REST API to which the requests of the SDK will be sent
          * @param privateKey     Private key (secret) of an account held by the user to digitally sign the data sent to
@@ -678,8 +1267,42 @@ public class AmbrosusSDK {
          */
         public Config(final String restAPIBaseUrl, final String privateKey) {
 
-            this.baseUrl = restAPIBaseUrl;
+            this(restAPIBaseUrl, privateKey, new HttpConfig.Builder().build());
+        }
+
+
+        /**
+         * Constructs an instance of the configuration class
+         *
+         * @param restAPIBaseUrl The url of the REST API to which the requests of the SDK will be sent
+         * @param privateKey     Private key (secret) of an account held by the user to digitally sign the data sent to
+         *                       the REST API
+         * @param httpConfig     The transport settings of the HTTP client reaching the REST API
+         */
+        public Config(final String restAPIBaseUrl, final String privateKey, final HttpConfig httpConfig) {
+
+            this(Collections.singletonList(restAPIBaseUrl), privateKey, httpConfig);
+        }
+
+
+        /**
+         * Constructs an instance of the configuration class for an API served by several nodes. Requests are spread
+         * over the nodes according to their latency and health, see {@link NodePool}.
+         *
+         * @param restAPIBaseUrls The urls of the nodes of the REST API, each ending with '/'
+         * @param privateKey      Private key (secret) of an account held by the user to digitally sign the data sent
+         *                        to the REST API
+         * @param httpConfig      The transport settings of the HTTP client reaching the REST API
+         */
+        public Config(final List<String> restAPIBaseUrls, final String privateKey, final HttpConfig httpConfig) {
+
+            if (restAPIBaseUrls == null || restAPIBaseUrls.isEmpty())
+                throw new IllegalArgumentException("At least one REST API url must be given.");
+
+            this.baseUrl = restAPIBaseUrls.get(0);
+            this.baseUrls = Collections.unmodifiableList(new ArrayList<>(restAPIBaseUrls));
             this.privateKey = privateKey;
+            this.httpConfig = httpConfig;
         }
     }
 }
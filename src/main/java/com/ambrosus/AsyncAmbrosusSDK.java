@@ -0,0 +1,208 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus;
+
+import com.ambrosus.model.Account;
+import com.ambrosus.model.Asset;
+import com.ambrosus.model.Event;
+import com.ambrosus.model.Token;
+import com.ambrosus.network.AccountQueryResponse;
+import com.ambrosus.network.AssetQueryResponse;
+import com.ambrosus.network.EventQueryResponse;
+import com.ambrosus.network.ResponseWrapper;
+import com.ambrosus.utils.Consumer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link CompletableFuture} based variant of the {@link AmbrosusSDK} operations, for composing requests without
+ * nesting callbacks.
+ * <p>
+ * Every method sends its request through the wrapped SDK and returns a future completed with the response, or
+ * completed exceptionally with the throwable that would have been handed to the error consumer. Futures are
+ * completed on the completion executor rather than on the HTTP client threads, so that dependent stages which block
+ * or take time do not hold up other requests. Exceptions thrown by the SDK before sending the request, such as an
+ * {@link IllegalStateException} if it was not initialized, also complete the future exceptionally.
+ * <p>
+ * {@link CompletableFuture} requires Android API 24. Applications targeting older versions should keep using the
+ * callback methods of {@link AmbrosusSDK}.
+ */
+public class AsyncAmbrosusSDK {
+
+    private final AmbrosusSDK sdk;
+    private final Executor completionExecutor;
+
+
+    /**
+     * Wraps an SDK, completing futures on the common fork-join pool.
+     *
+     * @param sdk The initialized SDK sending the requests
+     */
+    public AsyncAmbrosusSDK(AmbrosusSDK sdk) {
+
+        this(sdk, ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * @param sdk                The initialized SDK sending the requests
+     * @param completionExecutor The executor on which the returned futures are completed
+     */
+    public AsyncAmbrosusSDK(AmbrosusSDK sdk, Executor completionExecutor) {
+
+        this.sdk = sdk;
+        this.completionExecutor = completionExecutor;
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getAsset
+     */
+    public CompletableFuture<ResponseWrapper<Asset>> getAsset(String assetId) {
+
+        return send((onSuccess, onError) -> sdk.getAsset(assetId, onSuccess, (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getAssetWithEvents
+     */
+    public CompletableFuture<Asset> getAssetWithEvents(String assetId) {
+
+        return send((onSuccess, onError) -> sdk.getAssetWithEvents(assetId, onSuccess,
+                (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#createAsset
+     */
+    public CompletableFuture<ResponseWrapper<Asset>> createAsset(Asset.Builder assetBuilder) {
+
+        return send((onSuccess, onError) -> sdk.createAsset(assetBuilder, onSuccess, (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getEvents
+     */
+    public CompletableFuture<ResponseWrapper<EventQueryResponse>> getEvents(String assetId) {
+
+        return send((onSuccess, onError) -> sdk.getEvents(assetId, onSuccess, (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#createEvent
+     */
+    public CompletableFuture<ResponseWrapper<Event>> createEvent(Event.Builder eventBuilder) {
+
+        return send((onSuccess, onError) -> sdk.createEvent(eventBuilder, onSuccess, (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getAccount
+     */
+    public CompletableFuture<ResponseWrapper<Account>> getAccount(String token, String address) {
+
+        return send((onSuccess, onError) -> sdk.getAccount(token, address, onSuccess,
+                (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#createAccount
+     */
+    public CompletableFuture<ResponseWrapper<Account>> createAccount(String token, Account.Builder accountBuilder) {
+
+        return send((onSuccess, onError) -> sdk.createAccount(token, accountBuilder, onSuccess,
+                (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#createToken
+     */
+    public CompletableFuture<ResponseWrapper<Token>> createToken(Long validUntil) {
+
+        return send((onSuccess, onError) -> sdk.createToken(validUntil, onSuccess, (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#findAssets
+     */
+    public CompletableFuture<ResponseWrapper<AssetQueryResponse>> findAssets(Map<String, String> params) {
+
+        return send((onSuccess, onError) -> sdk.findAssets(params, onSuccess, (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#findEvents
+     */
+    public CompletableFuture<ResponseWrapper<EventQueryResponse>> findEvents(Map<String, String> params) {
+
+        return send((onSuccess, onError) -> sdk.findEvents(params, onSuccess, (call, t) -> onError.accept(t)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#findAccounts
+     */
+    public CompletableFuture<ResponseWrapper<AccountQueryResponse>> findAccounts(String token,
+                                                                                 Map<String, String> params) {
+
+        return send((onSuccess, onError) -> sdk.findAccounts(token, params, onSuccess,
+                (call, t) -> onError.accept(t)));
+    }
+
+
+    private <T> CompletableFuture<T> send(Request<T> request) {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            request.send(
+                    value -> completeOnExecutor(() -> future.complete(value)),
+                    throwable -> completeOnExecutor(() -> future.completeExceptionally(throwable)));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+
+    private void completeOnExecutor(Runnable completion) {
+
+        try {
+            completionExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // The executor is shutting down, the future must be completed anyway
+            completion.run();
+        }
+    }
+
+
+    /**
+     * Sends a request through the callback API of the SDK.
+     */
+    private interface Request<T> {
+
+        void send(Consumer<T> onSuccess, Consumer<Throwable> onError);
+    }
+}
@@ -0,0 +1,437 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus;
+
+import com.ambrosus.model.Event;
+import com.ambrosus.network.ResponseWrapper;
+import com.ambrosus.utils.BiConsumer;
+import com.ambrosus.utils.Consumer;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded pipeline for submitting large volumes of events to the Ambrosus REST API.
+ * <p>
+ * Submitted event builders are queued and picked up in batches by a pool of worker threads. Each worker completes
+ * and signs the events of its batch, then sends them to the API while keeping the number of requests in flight under
+ * a fixed limit. The capacity of the outbox bounds every event that has been submitted but not completed yet, whether
+ * it is queued, being signed or waiting for its response. Once the capacity is reached, {@link #submit} blocks and
+ * {@link #offer} returns false until some events complete.
+ * <p>
+ * The outcome of every event is reported through the consumers given at submission, exactly as with
+ * {@link AmbrosusSDK#createEvent(Event.Builder, Consumer, BiConsumer)}. Errors raised before the request could be
+ * sent, such as a missing asset ID, are delivered to the error consumer with a null call.
+ */
+public final class EventOutbox implements Closeable {
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final AmbrosusSDK sdk;
+    private final Config config;
+    private final BlockingQueue<PendingEvent> queue;
+    private final Semaphore capacity;
+    private final Semaphore inFlight;
+    private final List<Thread> workers;
+    private volatile boolean closed;
+
+
+    EventOutbox(AmbrosusSDK sdk, Config config) {
+
+        this.sdk = sdk;
+        this.config = config;
+        this.queue = new LinkedBlockingQueue<>();
+        this.capacity = new Semaphore(config.capacity);
+        this.inFlight = new Semaphore(config.maxInFlight);
+        this.workers = new ArrayList<>(config.workerThreads);
+        this.closed = false;
+
+        for (int i = 0; i < config.workerThreads; i++) {
+            Thread worker = new Thread(this::runWorker, "ambrosus-outbox-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+
+    /**
+     * Submits an event, waiting for room in the outbox if it is full.
+     *
+     * @param eventBuilder  An event builder with the asset ID already set. Missing fields are completed as in
+     *                      {@link AmbrosusSDK#createEvent(Event.Builder, Consumer, BiConsumer)}
+     * @param eventConsumer A consumer able to handle the newly created event
+     * @param errorConsumer A consumer able to handle the call and the throwable raised if the event could not be sent
+     * @throws InterruptedException  if the calling thread is interrupted while waiting for room
+     * @throws IllegalStateException if the outbox was closed
+     */
+    public void submit(Event.Builder eventBuilder, Consumer<ResponseWrapper<Event>> eventConsumer,
+                       BiConsumer<Call<Event>, Throwable> errorConsumer) throws InterruptedException {
+
+        throwIfClosed();
+        capacity.acquire();
+        enqueue(new PendingEvent(eventBuilder, eventConsumer, errorConsumer));
+    }
+
+
+    /**
+     * Submits an event if the outbox has room for it, without waiting.
+     *
+     * @param eventBuilder  An event builder with the asset ID already set
+     * @param eventConsumer A consumer able to handle the newly created event
+     * @param errorConsumer A consumer able to handle the call and the throwable raised if the event could not be sent
+     * @return True if the event was accepted, false if the outbox is full
+     * @throws IllegalStateException if the outbox was closed
+     */
+    public boolean offer(Event.Builder eventBuilder, Consumer<ResponseWrapper<Event>> eventConsumer,
+                         BiConsumer<Call<Event>, Throwable> errorConsumer) {
+
+        throwIfClosed();
+
+        if (!capacity.tryAcquire())
+            return false;
+
+        enqueue(new PendingEvent(eventBuilder, eventConsumer, errorConsumer));
+        return true;
+    }
+
+
+    /**
+     * @return The number of events submitted whose outcome has not been reported yet
+     */
+    public int pendingCount() {
+
+        return config.capacity - capacity.availablePermits();
+    }
+
+
+    /**
+     * Waits until every event submitted so far has been reported to its consumers.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout argument
+     * @return True if the outbox was drained, false if the timeout elapsed first
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+
+        if (!capacity.tryAcquire(config.capacity, timeout, unit))
+            return false;
+
+        capacity.release(config.capacity);
+        return true;
+    }
+
+
+    /**
+     * Stops accepting new events and stops the worker threads, waiting for them to finish. Events which were not sent
+     * yet are reported to their error consumer with a null call, whereas the responses of the events already sent are
+     * still delivered. Use {@link #flush(long, TimeUnit)} beforehand to wait for the completion of every event.
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+
+        for (Thread worker : workers)
+            worker.interrupt();
+
+        boolean interrupted = false;
+
+        for (Thread worker : workers) {
+            // A consumer called by a worker may close the outbox, and the worker cannot wait for itself
+            while (worker != Thread.currentThread() && worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        PendingEvent pendingEvent;
+        while ((pendingEvent = queue.poll()) != null)
+            pendingEvent.fail(null, new IllegalStateException("The outbox was closed before the event was sent."));
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+
+    private void enqueue(PendingEvent pendingEvent) {
+
+        if (closed) {
+            capacity.release();
+            throw new IllegalStateException("The outbox was closed.");
+        }
+
+        queue.add(pendingEvent);
+
+        // The outbox may have been closed and drained meanwhile, in which case the event is withdrawn
+        if (closed && queue.remove(pendingEvent)) {
+            capacity.release();
+            throw new IllegalStateException("The outbox was closed.");
+        }
+    }
+
+
+    private void throwIfClosed() {
+
+        if (closed)
+            throw new IllegalStateException("The outbox was closed.");
+    }
+
+
+    private void runWorker() {
+
+        List<PendingEvent> batch = new ArrayList<>(config.batchSize);
+
+        try {
+            while (!closed || !queue.isEmpty()) {
+
+                PendingEvent first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+                if (first == null)
+                    continue;
+
+                batch.add(first);
+                queue.drainTo(batch, config.batchSize - 1);
+
+                for (PendingEvent pendingEvent : batch)
+                    sign(pendingEvent);
+
+                for (PendingEvent pendingEvent : batch)
+                    send(pendingEvent);
+
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            // Report the events that will never be sent so that their capacity is given back
+            for (PendingEvent pendingEvent : batch)
+                if (!pendingEvent.sent)
+                    pendingEvent.fail(null, e);
+        }
+    }
+
+
+    private void sign(PendingEvent pendingEvent) {
+
+        try {
+            pendingEvent.event = sdk.signEvent(sdk.prepareEvent(pendingEvent.builder));
+        } catch (RuntimeException e) {
+            pendingEvent.fail(null, e);
+        }
+    }
+
+
+    private void send(PendingEvent pendingEvent) throws InterruptedException {
+
+        if (pendingEvent.event == null)
+            return;
+
+        inFlight.acquire();
+        pendingEvent.sent = true;
+
+        try {
+            sdk.service()
+                    .createEvent(pendingEvent.event.getAssetId(), pendingEvent.event)
+                    .enqueue(pendingEvent);
+        } catch (RuntimeException e) {
+            pendingEvent.fail(null, e);
+            inFlight.release();
+        }
+    }
+
+
+    /**
+     * Sizing of an {@link EventOutbox}.
+     */
+    public static final class Config {
+
+        private final int capacity;
+        private final int batchSize;
+        private final int workerThreads;
+        private final int maxInFlight;
+
+
+        private Config(Builder builder) {
+
+            this.capacity = builder.capacity;
+            this.batchSize = builder.batchSize;
+            this.workerThreads = builder.workerThreads;
+            this.maxInFlight = builder.maxInFlight;
+        }
+
+
+        public int getCapacity() {
+
+            return capacity;
+        }
+
+
+        public int getBatchSize() {
+
+            return batchSize;
+        }
+
+
+        public int getWorkerThreads() {
+
+            return workerThreads;
+        }
+
+
+        public int getMaxInFlight() {
+
+            return maxInFlight;
+        }
+
+
+        /**
+         * Builder class for outbox configurations. Defaults to a capacity of 10 000 events, batches of 100 events,
+         * one worker per available processor and 64 requests in flight.
+         */
+        public static class Builder {
+
+            private int capacity = 10_000;
+            private int batchSize = 100;
+            private int workerThreads = Runtime.getRuntime().availableProcessors();
+            private int maxInFlight = 64;
+
+
+            /**
+             * @param capacity Maximum number of events submitted to the outbox and not completed yet
+             */
+            public Builder setCapacity(int capacity) {
+
+                this.capacity = requirePositive(capacity, "capacity");
+                return this;
+            }
+
+
+            /**
+             * @param batchSize Maximum number of events a worker takes from the queue at once
+             */
+            public Builder setBatchSize(int batchSize) {
+
+                this.batchSize = requirePositive(batchSize, "batch size");
+                return this;
+            }
+
+
+            /**
+             * @param workerThreads Number of threads signing and sending events
+             */
+            public Builder setWorkerThreads(int workerThreads) {
+
+                this.workerThreads = requirePositive(workerThreads, "worker threads");
+                return this;
+            }
+
+
+            /**
+             * @param maxInFlight Maximum number of requests sent to the API and waiting for a response
+             */
+            public Builder setMaxInFlight(int maxInFlight) {
+
+                this.maxInFlight = requirePositive(maxInFlight, "max in flight");
+                return this;
+            }
+
+
+            public Config build() {
+
+                return new Config(this);
+            }
+
+
+            private static int requirePositive(int value, String name) {
+
+                if (value <= 0)
+                    throw new IllegalArgumentException("The " + name + " of an outbox must be positive.");
+
+                return value;
+            }
+        }
+    }
+
+    private final class PendingEvent implements Callback<Event> {
+
+        private final Event.Builder builder;
+        private final Consumer<ResponseWrapper<Event>> eventConsumer;
+        private final BiConsumer<Call<Event>, Throwable> errorConsumer;
+        private final AtomicBoolean reported;
+        private Event event;
+        private boolean sent;
+
+
+        PendingEvent(Event.Builder builder, Consumer<ResponseWrapper<Event>> eventConsumer,
+                     BiConsumer<Call<Event>, Throwable> errorConsumer) {
+
+            this.builder = builder;
+            this.eventConsumer = eventConsumer;
+            this.errorConsumer = errorConsumer;
+            this.reported = new AtomicBoolean(false);
+        }
+
+
+        @Override
+        public void onResponse(Call<Event> call, Response<Event> response) {
+
+            inFlight.release();
+
+            if (!reported.compareAndSet(false, true))
+                return;
+
+            try {
+                eventConsumer.accept(new ResponseWrapper<>(response));
+            } finally {
+                capacity.release();
+            }
+        }
+
+
+        @Override
+        public void onFailure(Call<Event> call, Throwable throwable) {
+
+            inFlight.release();
+            fail(call, throwable);
+        }
+
+
+        void fail(Call<Event> call, Throwable throwable) {
+
+            event = null;
+
+            // Each event is reported exactly once, then gives its room in the outbox back
+            if (!reported.compareAndSet(false, true))
+                return;
+
+            try {
+                if (errorConsumer != null)
+                    errorConsumer.accept(call, throwable);
+            } finally {
+                capacity.release();
+            }
+        }
+    }
+}
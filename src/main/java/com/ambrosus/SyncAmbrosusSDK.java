@@ -0,0 +1,254 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus;
+
+import com.ambrosus.model.Account;
+import com.ambrosus.model.Asset;
+import com.ambrosus.model.Event;
+import com.ambrosus.model.Token;
+import com.ambrosus.network.AccountQueryResponse;
+import com.ambrosus.network.AmbrosusService;
+import com.ambrosus.network.ApiException;
+import com.ambrosus.network.AssetQueryResponse;
+import com.ambrosus.network.EventQueryResponse;
+import com.ambrosus.network.NotFoundException;
+import com.ambrosus.network.ResponseCache;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Blocking variant of the {@link AmbrosusSDK} operations, for straight-line code on threads which may wait for the
+ * API, such as virtual threads.
+ * <p>
+ * Every method executes its request on the calling thread with {@link Call#execute()} and returns the object sent by
+ * the API. A response without this object is thrown as an {@link ApiException}, or a {@link NotFoundException} if the
+ * API answered 404, and network failures are thrown as the {@link IOException} raised by the HTTP client. The caches,
+ * retries and request limits enabled on the wrapped SDK apply as for the callback methods, whereas coalescing and
+ * hedging only apply to enqueued requests.
+ * <p>
+ * Methods may be called concurrently from any number of threads. Neither this class nor the call adapters of the SDK
+ * wait while holding a monitor, so virtual threads are not pinned to their carrier. Executed requests are not bounded
+ * by the dispatcher of the HTTP client, so applications running many threads should bound them with
+ * {@link AmbrosusSDK#enableRequestLimits}. This class only requires Java 8, and the callback methods of
+ * {@link AmbrosusSDK} remain the API for Android applications, which should not block their main thread.
+ */
+public class SyncAmbrosusSDK {
+
+    private final AmbrosusSDK sdk;
+
+
+    /**
+     * @param sdk The initialized SDK sending the requests
+     */
+    public SyncAmbrosusSDK(AmbrosusSDK sdk) {
+
+        this.sdk = sdk;
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getAsset
+     */
+    public Asset getAsset(String assetId) throws IOException {
+
+        AmbrosusService service = sdk.service();
+        ResponseCache<Asset> cache = sdk.getAssetCache();
+
+        if (cache == null)
+            return execute(service.getAsset(assetId));
+
+        Asset asset = cache.getIfPresent(assetId);
+
+        if (asset == null) {
+            asset = execute(service.getAsset(assetId));
+            cache.put(assetId, asset);
+        }
+
+        return asset;
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getAssetWithEvents
+     */
+    public Asset getAssetWithEvents(String assetId) throws IOException {
+
+        Asset asset = getAsset(assetId);
+        EventQueryResponse events = getEvents(asset.getAssetId());
+
+        Asset.Builder assetBuilder = Asset.Builder.fromExistingAsset(asset);
+        if (events.getResultCount() > 0)
+            assetBuilder.addAllEvents(events.getResults());
+
+        return assetBuilder.build();
+    }
+
+
+    /**
+     * @see AmbrosusSDK#createAsset
+     */
+    public Asset createAsset(Asset.Builder assetBuilder) throws IOException {
+
+        AmbrosusService service = sdk.service();
+        return execute(service.createAsset(sdk.prepareAsset(assetBuilder)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getEvents
+     */
+    public EventQueryResponse getEvents(String assetId) throws IOException {
+
+        EventQueryResponse events = execute(sdk.service().getEvents(assetId));
+        sdk.cacheEvents(events);
+        return events;
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getEvent
+     */
+    public Event getEvent(String eventId) throws IOException {
+
+        AmbrosusService service = sdk.service();
+        ResponseCache<Event> cache = sdk.getEventCache();
+
+        if (cache == null)
+            return execute(service.getEvent(eventId));
+
+        Event event = cache.getIfPresent(eventId);
+
+        if (event == null) {
+            event = execute(service.getEvent(eventId));
+            cache.put(eventId, event);
+        }
+
+        return event;
+    }
+
+
+    /**
+     * @see AmbrosusSDK#createEvent
+     */
+    public Event createEvent(Event.Builder eventBuilder) throws IOException {
+
+        AmbrosusService service = sdk.service();
+        Event event = sdk.prepareEvent(eventBuilder);
+
+        return execute(service.createEvent(event.getAssetId(), event));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#getAccount
+     */
+    public Account getAccount(String token, String address) throws IOException {
+
+        return execute(sdk.service().getAccount(AmbrosusService.TOKEN_PREAMBLE + token, address));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#createAccount
+     */
+    public Account createAccount(String token, Account.Builder accountBuilder) throws IOException {
+
+        AmbrosusService service = sdk.service();
+        return execute(service.createAccount(AmbrosusService.TOKEN_PREAMBLE + token,
+                sdk.prepareAccount(accountBuilder)));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#createToken
+     */
+    public Token createToken(Long validUntil) throws IOException {
+
+        return execute(sdk.newTokenCall(validUntil));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#findAssets
+     */
+    public AssetQueryResponse findAssets(Map<String, String> params) throws IOException {
+
+        return execute(sdk.service().findAssets(params));
+    }
+
+
+    /**
+     * @see AmbrosusSDK#findEvents
+     */
+    public EventQueryResponse findEvents(Map<String, String> params) throws IOException {
+
+        EventQueryResponse events = execute(sdk.service().findEvents(params));
+        sdk.cacheEvents(events);
+        return events;
+    }
+
+
+    /**
+     * @see AmbrosusSDK#findAccounts
+     */
+    public AccountQueryResponse findAccounts(String token, Map<String, String> params) throws IOException {
+
+        return execute(sdk.service().findAccounts(AmbrosusService.TOKEN_PREAMBLE + token, params));
+    }
+
+
+    /**
+     * Executes a call on the calling thread.
+     *
+     * @return The body of the response
+     * @throws ApiException if the response was unsuccessful or had no body
+     * @throws IOException  if the request could not be sent or its response could not be read
+     */
+    private static <T> T execute(Call<T> call) throws IOException {
+
+        Response<T> response = call.execute();
+
+        if (!response.isSuccessful()) {
+            String errorBody = null;
+            IOException readFailure = null;
+
+            if (response.errorBody() != null) {
+                try (ResponseBody body = response.errorBody()) {
+                    errorBody = body.string();
+                } catch (IOException e) {
+                    // The status code is still worth reporting without the body
+                    readFailure = e;
+                }
+            }
+
+            String message = "The API answered " + response.code() + " to " + call.request().method() + " " +
+                    call.request().url().encodedPath() + ".";
+            ApiException exception = response.code() == 404 ? new NotFoundException(message, errorBody) :
+                    new ApiException(response.code(), message, errorBody);
+
+            if (readFailure != null)
+                exception.addSuppressed(readFailure);
+
+            throw exception;
+        }
+
+        T body = response.body();
+
+        if (body == null)
+            throw new ApiException(response.code(), "The response of the API has no valid body.", null);
+
+        return body;
+    }
+}
@@ -13,35 +13,149 @@ package com.ambrosus.commons;
 import com.ambrosus.model.EventData;
 import com.google.gson.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
  * Class for hosting any information contained in an event data section. This class is used whenever the event data
  * type encountered was unknown or irrelevant for the program.
+ * <p>
+ * A section can also be held as its UTF-8 JSON representation, which is only parsed when {@link #json()} is first
+ * called and can be written back untouched with {@link #writeTo(OutputStream)}.
  */
 
 public class RawJson extends EventData {
 
-    private final JsonObject jsonObject;
+    private final byte[] utf8;
+    private final int offset;
+    private final int length;
+    private volatile JsonObject jsonObject;
 
 
     public RawJson(JsonObject jsonObject) {
+        this(jsonObject, true);
+    }
+
+
+    private RawJson(JsonObject jsonObject, boolean copy) {
         super(null);
-        this.jsonObject = jsonObject.deepCopy();
+        this.utf8 = null;
+        this.offset = 0;
+        this.length = 0;
+        this.jsonObject = copy ? jsonObject.deepCopy() : jsonObject;
+    }
+
+
+    private RawJson(byte[] utf8, int offset, int length) {
+        super(null);
+        this.utf8 = utf8;
+        this.offset = offset;
+        this.length = length;
+    }
+
+
+    /**
+     * @param jsonObject A JSON object, which is not copied and must not be modified
+     * @return A raw JSON section holding the object
+     */
+    public static RawJson wrap(JsonObject jsonObject) {
+
+        return new RawJson(jsonObject, false);
     }
 
 
+    /**
+     * @param utf8 The UTF-8 JSON representation of an object. The array is not copied and must not be modified.
+     * @return A raw JSON section parsing the representation on first access
+     */
+    public static RawJson fromUtf8(byte[] utf8) {
+
+        return fromUtf8(utf8, 0, utf8.length);
+    }
+
+
+    /**
+     * @param utf8   An array holding the UTF-8 JSON representation of an object, such as a response buffer. The
+     *               array is not copied and must not be modified.
+     * @param offset The position of the representation in the array
+     * @param length The length of the representation in bytes
+     * @return A raw JSON section parsing the representation on first access
+     */
+    public static RawJson fromUtf8(byte[] utf8, int offset, int length) {
+
+        if (offset < 0 || length < 0 || offset + length > utf8.length)
+            throw new IndexOutOfBoundsException("Invalid slice of " + utf8.length + " bytes: offset " + offset +
+                    ", length " + length + ".");
+
+        return new RawJson(utf8, offset, length);
+    }
+
+
+    /**
+     * @return The JSON object, parsed on the first call if this section was created from its UTF-8 representation
+     * @throws JsonParseException    if the representation is not valid JSON
+     * @throws IllegalStateException if the representation is not a JSON object
+     */
     public JsonObject json() {
 
-        return jsonObject;
+        JsonObject parsed = jsonObject;
+
+        // Concurrent first calls may each parse the representation, one of the results is kept
+        if (parsed == null) {
+            InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(utf8, offset, length),
+                    StandardCharsets.UTF_8);
+            jsonObject = parsed = new JsonParser().parse(reader).getAsJsonObject();
+        }
+
+        return parsed;
+    }
+
+
+    /**
+     * @return True if the JSON object is available without parsing
+     */
+    public boolean isParsed() {
+
+        return jsonObject != null;
+    }
+
+
+    /**
+     * @return The UTF-8 JSON representation of this section: the original bytes if it was created from them,
+     * otherwise the serialized JSON object
+     */
+    public byte[] toUtf8() {
+
+        return utf8 != null ? Arrays.copyOfRange(utf8, offset, offset + length) :
+                jsonObject.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Writes the UTF-8 JSON representation of this section, without parsing it if it was created from its bytes.
+     *
+     * @param out The stream receiving the representation
+     * @throws IOException if the stream fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+
+        if (utf8 != null)
+            out.write(utf8, offset, length);
+        else
+            out.write(jsonObject.toString().getBytes(StandardCharsets.UTF_8));
     }
 
 
     @Override
     public String toString() {
 
-        return jsonObject.toString();
+        return json().toString();
     }
 
 
@@ -50,13 +164,29 @@ public class RawJson extends EventData {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         RawJson rawJson = (RawJson) o;
-        return Objects.equals(jsonObject, rawJson.jsonObject);
+
+        // Identical representations hold the same object, without parsing them
+        if (utf8 != null && rawJson.utf8 != null && length == rawJson.length && sameBytes(rawJson))
+            return true;
+
+        return Objects.equals(json(), rawJson.json());
     }
 
 
     @Override
     public int hashCode() {
-        return Objects.hash(jsonObject);
+        return Objects.hash(json());
+    }
+
+
+    private boolean sameBytes(RawJson that) {
+
+        for (int i = 0; i < length; i++) {
+            if (utf8[offset + i] != that.utf8[that.offset + i])
+                return false;
+        }
+
+        return true;
     }
 
 
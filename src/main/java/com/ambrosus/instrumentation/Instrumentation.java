@@ -0,0 +1,96 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.instrumentation;
+
+import java.util.Objects;
+
+/**
+ * Receives the duration of each phase of the operations performed by the SDK, for instance to export them to a
+ * metrics backend. Set it with {@link com.ambrosus.AmbrosusSDK#setInstrumentation(Instrumentation)}; by default
+ * {@link #NONE} is used and the SDK does not measure anything.
+ * <p>
+ * Requests to the API are named after the method of {@link com.ambrosus.network.AmbrosusService} sending them, such as
+ * {@code getAsset}, {@code findEvents} or {@code createEvent}. The signing performed when serializing assets and
+ * events is recorded as {@code signAsset}, {@code signEvent} and {@code hashEventData}, and signature and data hash
+ * verifications as {@code verifySignature} and {@code verifyDatahash}.
+ * <p>
+ * Implementations are called on the threads performing the operations, including the threads of the HTTP client,
+ * and must therefore be thread-safe and return quickly. See {@link MetricsRecorder} for an implementation
+ * aggregating the durations in latency histograms.
+ */
+@FunctionalInterface
+public interface Instrumentation {
+
+    /**
+     * Ignores every measurement.
+     */
+    Instrumentation NONE = (operation, phase, durationNanos, error) -> {
+    };
+
+
+    /**
+     * Records one phase of an operation.
+     *
+     * @param operation     The name of the operation
+     * @param phase         The measured phase of the operation
+     * @param durationNanos The duration of the phase in nanoseconds
+     * @param error         The throwable which ended the phase, or null if it completed normally
+     */
+    void record(String operation, Phase phase, long durationNanos, Throwable error);
+
+
+    /**
+     * @param after The instrumentation also receiving every measurement
+     * @return An instrumentation passing every measurement to this one, then to the other one
+     */
+    default Instrumentation andThen(Instrumentation after) {
+
+        Objects.requireNonNull(after);
+
+        return (operation, phase, durationNanos, error) -> {
+            record(operation, phase, durationNanos, error);
+            after.record(operation, phase, durationNanos, error);
+        };
+    }
+
+
+    /**
+     * The parts into which the time spent on an operation is split.
+     */
+    enum Phase {
+
+        /**
+         * From sending the request to receiving the response headers, or until the failure of the request. It is
+         * measured by the HTTP client with a resolution of one millisecond.
+         */
+        NETWORK,
+
+        /**
+         * Conversion of a request body to JSON, including the signing performed by the model adapters.
+         */
+        SERIALIZATION,
+
+        /**
+         * Conversion of a response body from JSON.
+         */
+        DESERIALIZATION,
+
+        /**
+         * Computation or verification of hashes and signatures.
+         */
+        CRYPTO,
+
+        /**
+         * Execution of the callback receiving the response or the failure of a request.
+         */
+        CALLBACK
+    }
+}
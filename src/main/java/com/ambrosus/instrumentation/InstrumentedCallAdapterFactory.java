@@ -0,0 +1,217 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.instrumentation;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link Instrumentation.Phase#NETWORK} and {@link Instrumentation.Phase#CALLBACK} phases of the calls
+ * returned by the service methods annotated with {@link Operation}. Calls are adapted by the next factory first, so
+ * that callbacks are measured on the thread they are delivered on.
+ */
+public final class InstrumentedCallAdapterFactory extends CallAdapter.Factory {
+
+    private final Instrumentation instrumentation;
+
+
+    /**
+     * @param instrumentation The instrumentation receiving the durations
+     */
+    public InstrumentedCallAdapterFactory(Instrumentation instrumentation) {
+
+        this.instrumentation = instrumentation;
+    }
+
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+
+        String operation = InstrumentedConverterFactory.operationOf(annotations);
+
+        if (operation == null || getRawType(returnType) != Call.class)
+            return null;
+
+        return new InstrumentedCallAdapter<>(retrofit.nextCallAdapter(this, returnType, annotations), operation);
+    }
+
+
+    private final class InstrumentedCallAdapter<R> implements CallAdapter<R, Call<R>> {
+
+        private final CallAdapter<R, ?> delegate;
+        private final String operation;
+
+
+        InstrumentedCallAdapter(CallAdapter<R, ?> delegate, String operation) {
+
+            this.delegate = delegate;
+            this.operation = operation;
+        }
+
+
+        @Override
+        public Type responseType() {
+
+            return delegate.responseType();
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Call<R> adapt(Call<R> call) {
+
+            // The next factory handles the same Call return type, and thus returns a call
+            return new InstrumentedCall<>((Call<R>) delegate.adapt(call), operation);
+        }
+    }
+
+    private final class InstrumentedCall<T> implements Call<T> {
+
+        private final Call<T> delegate;
+        private final String operation;
+
+
+        InstrumentedCall(Call<T> delegate, String operation) {
+
+            this.delegate = delegate;
+            this.operation = operation;
+        }
+
+
+        @Override
+        public Response<T> execute() throws IOException {
+
+            long start = System.nanoTime();
+
+            try {
+                Response<T> response = delegate.execute();
+                record(Instrumentation.Phase.NETWORK, networkNanos(response, start), null);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                record(Instrumentation.Phase.NETWORK, System.nanoTime() - start, e);
+                throw e;
+            }
+        }
+
+
+        @Override
+        public void enqueue(final Callback<T> callback) {
+
+            final long start = System.nanoTime();
+
+            delegate.enqueue(new Callback<T>() {
+
+                @Override
+                public void onResponse(Call<T> call, Response<T> response) {
+
+                    record(Instrumentation.Phase.NETWORK, networkNanos(response, start), null);
+
+                    long callbackStart = System.nanoTime();
+                    Throwable error = null;
+
+                    try {
+                        callback.onResponse(InstrumentedCall.this, response);
+                    } catch (RuntimeException | Error e) {
+                        error = e;
+                        throw e;
+                    } finally {
+                        record(Instrumentation.Phase.CALLBACK, System.nanoTime() - callbackStart, error);
+                    }
+                }
+
+
+                @Override
+                public void onFailure(Call<T> call, Throwable throwable) {
+
+                    record(Instrumentation.Phase.NETWORK, System.nanoTime() - start, throwable);
+
+                    long callbackStart = System.nanoTime();
+                    Throwable error = null;
+
+                    try {
+                        callback.onFailure(InstrumentedCall.this, throwable);
+                    } catch (RuntimeException | Error e) {
+                        error = e;
+                        throw e;
+                    } finally {
+                        record(Instrumentation.Phase.CALLBACK, System.nanoTime() - callbackStart, error);
+                    }
+                }
+            });
+        }
+
+
+        @Override
+        public boolean isExecuted() {
+
+            return delegate.isExecuted();
+        }
+
+
+        @Override
+        public void cancel() {
+
+            delegate.cancel();
+        }
+
+
+        @Override
+        public boolean isCanceled() {
+
+            return delegate.isCanceled();
+        }
+
+
+        @Override
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        public Call<T> clone() {
+
+            return new InstrumentedCall<>(delegate.clone(), operation);
+        }
+
+
+        @Override
+        public Request request() {
+
+            return delegate.request();
+        }
+
+
+        private void record(Instrumentation.Phase phase, long durationNanos, Throwable error) {
+
+            instrumentation.record(operation, phase, durationNanos, error);
+        }
+
+
+        /**
+         * Uses the timestamps of the HTTP client, which exclude the time spent waiting for a connection and decoding
+         * the response, when available.
+         */
+        private long networkNanos(Response<T> response, long start) {
+
+            okhttp3.Response raw = response.raw();
+            long sent = raw.sentRequestAtMillis();
+            long received = raw.receivedResponseAtMillis();
+
+            return sent > 0 && received >= sent ? TimeUnit.MILLISECONDS.toNanos(received - sent) :
+                    System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.instrumentation;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Measures the conversions of another converter factory, such as the gson one, as the
+ * {@link Instrumentation.Phase#SERIALIZATION} and {@link Instrumentation.Phase#DESERIALIZATION} phases of the service
+ * methods annotated with {@link Operation}.
+ */
+public final class InstrumentedConverterFactory extends Converter.Factory {
+
+    private final Converter.Factory delegate;
+    private final Instrumentation instrumentation;
+
+
+    /**
+     * @param delegate        The factory performing the conversions
+     * @param instrumentation The instrumentation receiving the durations
+     */
+    public InstrumentedConverterFactory(Converter.Factory delegate, Instrumentation instrumentation) {
+
+        this.delegate = delegate;
+        this.instrumentation = instrumentation;
+    }
+
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+
+        Converter<ResponseBody, ?> converter = delegate.responseBodyConverter(type, annotations, retrofit);
+        String operation = operationOf(annotations);
+
+        return converter == null || operation == null ? converter :
+                timed(converter, operation, Instrumentation.Phase.DESERIALIZATION);
+    }
+
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Retrofit retrofit) {
+
+        Converter<?, RequestBody> converter = delegate.requestBodyConverter(type, parameterAnnotations,
+                methodAnnotations, retrofit);
+        String operation = operationOf(methodAnnotations);
+
+        return converter == null || operation == null ? converter :
+                timed(converter, operation, Instrumentation.Phase.SERIALIZATION);
+    }
+
+
+    @Override
+    public Converter<?, String> stringConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+
+        return delegate.stringConverter(type, annotations, retrofit);
+    }
+
+
+    private <F, T> Converter<F, T> timed(Converter<F, T> converter, String operation, Instrumentation.Phase phase) {
+
+        return value -> {
+            long start = System.nanoTime();
+            Throwable error = null;
+
+            try {
+                return converter.convert(value);
+            } catch (IOException | RuntimeException e) {
+                error = e;
+                throw e;
+            } finally {
+                instrumentation.record(operation, phase, System.nanoTime() - start, error);
+            }
+        };
+    }
+
+
+    /**
+     * @return The name given by the {@link Operation} annotation of a service method, or null if it has none
+     */
+    static String operationOf(Annotation[] annotations) {
+
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Operation)
+                return ((Operation) annotation).value();
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, with a fixed memory footprint of about 2 KB.
+ * <p>
+ * Each power of two is split into 4 buckets, so that values reported by {@link #getValueAtPercentile(double)} exceed
+ * the recorded ones by less than 25%. Recording is a few atomic increments, and the count, total and maximum are
+ * exact. Values read while other threads record may be slightly inconsistent with each other.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+
+
+    public LatencyHistogram() {
+
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+
+
+    /**
+     * @param nanos A duration in nanoseconds, negative durations being recorded as 0
+     */
+    public void record(long nanos) {
+
+        long value = Math.max(nanos, 0);
+
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        for (long max = maxNanos.get(); value > max; max = maxNanos.get()) {
+            if (maxNanos.compareAndSet(max, value))
+                break;
+        }
+    }
+
+
+    public long getCount() {
+
+        return count.get();
+    }
+
+
+    public long getTotalNanos() {
+
+        return totalNanos.get();
+    }
+
+
+    public long getMaxNanos() {
+
+        return maxNanos.get();
+    }
+
+
+    /**
+     * @return The mean of the recorded durations, or 0 if none was recorded
+     */
+    public double getMeanNanos() {
+
+        long n = count.get();
+        return n == 0 ? 0 : (double) totalNanos.get() / n;
+    }
+
+
+    /**
+     * @param percentile The percentile, between 0 and 100
+     * @return An upper bound of the duration under which this percentage of the recorded durations fall, never greater
+     * than the maximum, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+
+        long total = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            total += buckets.get(i);
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT && total > 0; i++) {
+            seen += buckets.get(i);
+
+            if (seen >= rank)
+                return Math.min(upperBoundOf(i), maxNanos.get());
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * Values below 4 have their own bucket, larger ones are placed by their highest bit and the two bits below it.
+     */
+    static int bucketOf(long value) {
+
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+
+    static long upperBoundOf(int bucket) {
+
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+
+        return lowerBound + width - 1;
+    }
+}
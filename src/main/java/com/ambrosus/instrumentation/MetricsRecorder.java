@@ -0,0 +1,137 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.instrumentation;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instrumentation aggregating the measurements of each phase of each operation into a {@link LatencyHistogram} and an
+ * error count. Recording takes no lock and allocates only the first time an operation is seen.
+ * <p>
+ * The aggregates can be read at any time, for instance periodically with {@link #forEach(Visitor)} to export them to a
+ * metrics backend. To receive every measurement as it is made instead, combine this recorder with another
+ * instrumentation using {@link #andThen(Instrumentation)}.
+ */
+public final class MetricsRecorder implements Instrumentation {
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final ConcurrentHashMap<String, PhaseMetrics[]> operations;
+
+
+    public MetricsRecorder() {
+
+        this.operations = new ConcurrentHashMap<>();
+    }
+
+
+    @Override
+    public void record(String operation, Phase phase, long durationNanos, Throwable error) {
+
+        PhaseMetrics metrics = metricsOf(operation)[phase.ordinal()];
+
+        metrics.latency.record(durationNanos);
+        if (error != null)
+            metrics.errorCount.incrementAndGet();
+    }
+
+
+    /**
+     * @return The names of the operations recorded so far
+     */
+    public Set<String> getOperations() {
+
+        return Collections.unmodifiableSet(operations.keySet());
+    }
+
+
+    /**
+     * @return The durations recorded for a phase of an operation, or null if the operation was never recorded
+     */
+    public LatencyHistogram getLatency(String operation, Phase phase) {
+
+        PhaseMetrics[] metrics = operations.get(operation);
+        return metrics == null ? null : metrics[phase.ordinal()].latency;
+    }
+
+
+    /**
+     * @return The number of times a phase of an operation ended with an error
+     */
+    public long getErrorCount(String operation, Phase phase) {
+
+        PhaseMetrics[] metrics = operations.get(operation);
+        return metrics == null ? 0 : metrics[phase.ordinal()].errorCount.get();
+    }
+
+
+    /**
+     * Visits every phase of every operation which was recorded at least once.
+     *
+     * @param visitor The visitor receiving the aggregates
+     */
+    public void forEach(Visitor visitor) {
+
+        for (Map.Entry<String, PhaseMetrics[]> entry : operations.entrySet()) {
+            for (Phase phase : PHASES) {
+                PhaseMetrics metrics = entry.getValue()[phase.ordinal()];
+
+                if (metrics.latency.getCount() > 0)
+                    visitor.visit(entry.getKey(), phase, metrics.latency, metrics.errorCount.get());
+            }
+        }
+    }
+
+
+    private PhaseMetrics[] metricsOf(String operation) {
+
+        PhaseMetrics[] metrics = operations.get(operation);
+
+        if (metrics == null) {
+            PhaseMetrics[] created = new PhaseMetrics[PHASES.length];
+
+            for (int i = 0; i < created.length; i++)
+                created[i] = new PhaseMetrics();
+
+            metrics = operations.putIfAbsent(operation, created);
+            if (metrics == null)
+                metrics = created;
+        }
+
+        return metrics;
+    }
+
+
+    /**
+     * Receives the aggregates of a {@link MetricsRecorder}.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * @param operation  The name of the operation
+         * @param phase      The phase of the operation
+         * @param latency    The recorded durations of the phase
+         * @param errorCount The number of times the phase ended with an error
+         */
+        void visit(String operation, Phase phase, LatencyHistogram latency, long errorCount);
+    }
+
+    private static final class PhaseMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errorCount = new AtomicLong();
+    }
+}
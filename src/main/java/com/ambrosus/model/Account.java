@@ -11,7 +11,11 @@ This Source Code Form is "Incompatible With Secondary Licenses", as defined by t
 package com.ambrosus.model;
 
 import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
@@ -229,4 +233,73 @@ public class Account {
             return jsonObject;
         }
     }
+
+    /**
+     * Streaming deserializer for Account instances, producing the same accounts as {@link Adapter} without building
+     * a {@link JsonElement} tree of the response. Serialization is left to {@link Adapter}.
+     */
+    public static class StreamingAdapter extends StreamingDeserializer<Account> {
+
+        public StreamingAdapter() {
+
+            super(TypeToken.get(Account.class));
+        }
+
+
+        @Override
+        protected Account read(JsonReader in, Gson gson) throws IOException {
+
+            Builder builder = new Builder();
+            boolean hasPermissions = false;
+            boolean validPermissions = true;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case JsonProperties.PERMISSIONS:
+                        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                            in.skipValue();
+                            break;
+                        }
+
+                        hasPermissions = true;
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            String permission = nextString(in);
+                            try {
+                                builder.addPermission(Account.Permission.valueOf(permission.toUpperCase()));
+                            } catch (IllegalArgumentException | NullPointerException e) {
+                                validPermissions = false;
+                            }
+                        }
+                        in.endArray();
+                        break;
+                    case JsonProperties.ACCESS_LEVEL:
+                        builder.setAccessLevel(nextInteger(in));
+                        break;
+                    case JsonProperties.REGISTERED_BY:
+                        builder.setRegisteredBy(nextString(in));
+                        break;
+                    case JsonProperties.REGISTERED_ON:
+                        builder.setRegisteredOn(nextLong(in));
+                        break;
+                    case JsonProperties.ADDRESS:
+                        builder.setAddress(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (!hasPermissions || !validPermissions || builder.getAccessLevel() == null
+                    || builder.getRegisteredBy() == null || builder.getRegisteredOn() == null
+                    || builder.getAddress() == null) {
+                System.err.println("Could not deserialize account, required properties are missing or invalid.");
+                return null;
+            }
+
+            return builder.build();
+        }
+    }
 }
@@ -10,10 +10,15 @@ This Source Code Form is "Incompatible With Secondary Licenses", as defined by t
 
 package com.ambrosus.model;
 
+import com.ambrosus.instrumentation.Instrumentation;
+import com.ambrosus.utils.Consumer;
 import com.ambrosus.utils.CryptoUtils;
 import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import org.web3j.crypto.ECKeyPair;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.Type;
 import java.util.*;
@@ -27,7 +32,8 @@ public final class Asset extends AmbrosusType implements Serializable {
     private final Integer sequenceNumber;
     private final String signature;
     private final List<Event> eventsList;
-    private final Map<Class<? extends EventData>, List<EventData>> dataMap;
+    // Built on first use. Concurrent first uses may each build it, all builds being equal.
+    private transient volatile TypeIndex typeIndex;
 
 
     private Asset(Builder builder) {
@@ -41,7 +47,27 @@ public final class Asset extends AmbrosusType implements Serializable {
         Collections.sort(events);
 
         this.eventsList = Collections.unmodifiableList(events);
-        this.dataMap = buildMap();
+    }
+
+
+    private Asset(Asset asset, List<Event> eventsList, TypeIndex typeIndex) {
+        super(fromExistingFields(asset));
+
+        this.assetId = asset.assetId;
+        this.sequenceNumber = asset.sequenceNumber;
+        this.signature = asset.signature;
+        this.eventsList = Collections.unmodifiableList(eventsList);
+        this.typeIndex = typeIndex;
+    }
+
+
+    private static Builder fromExistingFields(Asset asset) {
+
+        Builder builder = new Builder();
+        builder.createdBy = asset.createdBy;
+        builder.timestamp = asset.timestamp;
+        builder.metaData = asset.metaData;
+        return builder;
     }
 
 
@@ -68,95 +94,170 @@ public final class Asset extends AmbrosusType implements Serializable {
     }
 
 
+    /**
+     * @return The timestamp of the most recent event of this asset, or null if it has no event
+     */
+    public Long getLatestEventTimestamp() {
+
+        return eventsList.isEmpty() ? null : eventsList.get(0).getTimestamp();
+    }
+
+
+    /**
+     * Creates a copy of this asset holding additional events, such as the events retrieved since
+     * {@link #getLatestEventTimestamp()}. Events already held by this asset are ignored.
+     * <p>
+     * The new events are merged into the sorted event list in linear time. When they are all more recent than the
+     * events of this asset, which is the case when synchronizing, the event data index of this asset is extended
+     * rather than rebuilt if it was already built.
+     *
+     * @param newEvents The events to add
+     * @return A new asset holding the events of this asset and the new events
+     */
+    public Asset withNewEvents(Collection<Event> newEvents) {
+
+        if (newEvents.isEmpty())
+            return this;
+
+        List<Event> added = new ArrayList<>(newEvents);
+        Collections.sort(added);
+
+        long oldestAdded = added.get(added.size() - 1).getTimestamp();
+
+        // Events already held can only be found among the events at least as recent as the oldest added one
+        Set<String> heldEventIds = new HashSet<>();
+        for (Event event : eventsList) {
+            if (event.getTimestamp() < oldestAdded)
+                break;
+            heldEventIds.add(event.getEventId());
+        }
+
+        Iterator<Event> iterator = added.iterator();
+        while (iterator.hasNext()) {
+            String eventId = iterator.next().getEventId();
+            if (eventId != null && !heldEventIds.add(eventId))
+                iterator.remove();
+        }
+
+        if (added.isEmpty())
+            return this;
+
+        List<Event> merged = new ArrayList<>(eventsList.size() + added.size());
+        int heldIndex = 0;
+        int addedIndex = 0;
+
+        // Both lists are sorted from the most recent event, the held events go first on equal timestamps
+        while (heldIndex < eventsList.size() && addedIndex < added.size()) {
+            if (added.get(addedIndex).compareTo(eventsList.get(heldIndex)) < 0)
+                merged.add(added.get(addedIndex++));
+            else
+                merged.add(eventsList.get(heldIndex++));
+        }
+
+        merged.addAll(eventsList.subList(heldIndex, eventsList.size()));
+        merged.addAll(added.subList(addedIndex, added.size()));
+
+        boolean allMoreRecent = eventsList.isEmpty() ||
+                added.get(added.size() - 1).compareTo(eventsList.get(0)) < 0;
+
+        TypeIndex index = typeIndex;
+        return new Asset(this, merged, allMoreRecent && index != null ? index.prepend(sectionsOf(added)) : null);
+    }
+
+
     /**
      * Retrieves every event data object linked to this asset whose type after deserialization corresponds to the
      * type given in parameter.
      *
      * @param clazz The class object derived from {@link EventData}
      * @param <T>   The class type derived from {@link EventData}
-     * @return A list of the corresponding subtype of
+     * @return A read-only list of the corresponding subtype of
      * {@link EventData} containing the event data objects or empty if there are no elements are of such type
      */
     public <T extends EventData> List<T> sectionsOfType(Class<T> clazz) {
 
-        List<T> castedList = new ArrayList<>();
-
-        List<EventData> eventData = dataMap.get(clazz);
-
-        if (eventData != null) {
-            for (EventData data : eventData) {
-                assert data.getClass().equals(clazz) : "Stored event data of incorrect type, this should not happen";
-                castedList.add(clazz.cast(data));
-            }
-        }
-        return castedList;
+        return typeIndex().sectionsOfType(clazz);
     }
 
 
     public <T extends EventData> boolean hasEventDataOfType(Class<T> clazz) {
-        return dataMap.containsKey(clazz);
+        return typeIndex().contains(clazz);
     }
 
 
     public <T extends EventData> T firstOf(Class<T> clazz) {
 
-        return sectionAtPos(clazz, 0);
+        return sectionsOfType(clazz).get(0);
     }
 
 
     public <T extends EventData> T lastOf(Class<T> clazz) {
 
-        return sectionAtPos(clazz, -1);
+        List<T> sections = sectionsOfType(clazz);
+        return sections.get(sections.size() - 1);
     }
 
 
     /**
-     * @param clazz The class parameter of event data
-     * @param <T>   The type parameter of event data
-     * @return A set of events containing the given event data type.
+     * Calls the consumer with every event data object of the given type, from the most recent event, without
+     * allocating an iterator.
+     *
+     * @param clazz    The class object derived from {@link EventData}
+     * @param consumer The consumer of the event data objects
+     * @param <T>      The class type derived from {@link EventData}
      */
-    public <T extends EventData> Set<Event> eventsContainingType(Class<T> clazz) {
-        List<T> eventDataList = sectionsOfType(clazz);
-        Set<Event> events = new HashSet<>();
+    public <T extends EventData> void forEachSectionOfType(Class<T> clazz, Consumer<? super T> consumer) {
 
-        for (EventData eventData : eventDataList)
-            events.add(eventData.getParentEvent());
+        List<T> sections = sectionsOfType(clazz);
 
-        return events;
+        for (int i = 0; i < sections.size(); i++)
+            consumer.accept(sections.get(i));
     }
 
 
-    private <T extends EventData> T sectionAtPos(Class<T> clazz, int i) {
+    /**
+     * @param clazz The class parameter of event data
+     * @param <T>   The type parameter of event data
+     * @return A read-only list of the events containing the given event data type, from the most recent one. The list
+     * is computed once per asset.
+     */
+    public <T extends EventData> List<Event> eventsWithType(Class<T> clazz) {
+
+        return typeIndex().eventsWithType(clazz);
+    }
 
-        List<EventData> eventData = dataMap.get(clazz);
 
-        // Access to elements by counting from the end
-        int index = (i < 0) ? mod(i, eventData.size()) : i;
+    /**
+     * @param clazz The class parameter of event data
+     * @param <T>   The type parameter of event data
+     * @return A set of events containing the given event data type. Prefer {@link #eventsWithType(Class)}, which does
+     * not create a new set on each call.
+     */
+    public <T extends EventData> Set<Event> eventsContainingType(Class<T> clazz) {
 
-        return clazz.cast(eventData.get(index));
+        return new HashSet<>(eventsWithType(clazz));
     }
 
 
-    private int mod(int x, int y) {
-        int result = x % y;
-        return result < 0 ? result + y : result;
-    }
+    private TypeIndex typeIndex() {
 
+        TypeIndex index = typeIndex;
 
-    private Map<Class<? extends EventData>, List<EventData>> buildMap() {
-        Map<Class<? extends EventData>, List<EventData>> map = new HashMap<>();
+        if (index == null)
+            typeIndex = index = TypeIndex.of(sectionsOf(eventsList));
 
-        for (Event event : eventsList) {
-            for (EventData dataSection : event.getEventDataList()) {
+        return index;
+    }
 
-                if (!map.containsKey(dataSection.getClass()))
-                    map.put(dataSection.getClass(), new ArrayList<>());
 
-                map.get(dataSection.getClass()).add(dataSection);
-            }
-        }
+    private static List<EventData> sectionsOf(List<Event> events) {
+
+        List<EventData> sections = new ArrayList<>();
+
+        for (Event event : events)
+            sections.addAll(event.getEventDataList());
 
-        return Collections.unmodifiableMap(map);
+        return sections;
     }
 
 
@@ -254,12 +355,26 @@ public final class Asset extends AmbrosusType implements Serializable {
 
     public static class Adapter implements JsonSerializer<Asset>, JsonDeserializer<Asset> {
 
+        private static final String SIGN_OPERATION = "signAsset";
+
         private final ECKeyPair signatureKey;
+        private final Instrumentation instrumentation;
 
 
         public Adapter(ECKeyPair signatureKey) {
 
+            this(signatureKey, Instrumentation.NONE);
+        }
+
+
+        /**
+         * @param signatureKey    The key signing the assets serialized without signature
+         * @param instrumentation Receives the duration of the signing, as the {@code signAsset} operation
+         */
+        public Adapter(ECKeyPair signatureKey, Instrumentation instrumentation) {
+
             this.signatureKey = signatureKey;
+            this.instrumentation = instrumentation;
         }
 
 
@@ -289,7 +404,10 @@ public final class Asset extends AmbrosusType implements Serializable {
             idData.addProperty(JsonProperties.TIMESTAMP, src.getTimestamp());
 
             if (src.getSignature() == null) {
+                long start = System.nanoTime();
                 String signature = CryptoUtils.computeSignature(idData.toString(), signatureKey);
+                instrumentation.record(SIGN_OPERATION, Instrumentation.Phase.CRYPTO, System.nanoTime() - start,
+                        null);
                 content.addProperty(JsonProperties.SIGNATURE, signature);
             } else {
                 content.addProperty(JsonProperties.SIGNATURE, src.getSignature());
@@ -327,7 +445,88 @@ public final class Asset extends AmbrosusType implements Serializable {
             return null;
         }
     }
-}
 
+    /**
+     * Streaming deserializer for Asset instances, producing the same assets as {@link Adapter} without building a
+     * {@link JsonElement} tree of the response. Serialization is left to {@link Adapter}.
+     */
+    public static class StreamingAdapter extends StreamingDeserializer<Asset> {
 
+        public StreamingAdapter() {
 
+            super(TypeToken.get(Asset.class));
+        }
+
+
+        @Override
+        protected Asset read(JsonReader in, Gson gson) throws IOException {
+
+            Asset.Builder assetBuilder = new Asset.Builder();
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case JsonProperties.ASSET_ID:
+                        assetBuilder.setAssetId(nextString(in));
+                        break;
+                    case JsonProperties.CONTENT:
+                        if (!beginObject(in))
+                            break;
+
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case JsonProperties.ID_DATA:
+                                    readIdData(in, assetBuilder);
+                                    break;
+                                case JsonProperties.SIGNATURE:
+                                    assetBuilder.setSignature(nextString(in));
+                                    break;
+                                default:
+                                    in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    case JsonProperties.META_DATA:
+                        assetBuilder.setMetaData(gson.getAdapter(MetaData.class).read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (assetBuilder.getAssetId() == null || assetBuilder.getSequenceNumber() == null
+                    || assetBuilder.getSignature() == null || assetBuilder.getCreatedBy() == null) {
+                System.err.println("Could not deserialize asset, required properties are missing.");
+                return null;
+            }
+
+            return assetBuilder.build();
+        }
+
+
+        private void readIdData(JsonReader in, Asset.Builder assetBuilder) throws IOException {
+
+            if (!beginObject(in))
+                return;
+
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case JsonProperties.SEQUENCE_NUMBER:
+                        assetBuilder.setSequenceNumber(nextInteger(in));
+                        break;
+                    case JsonProperties.CREATED_BY:
+                        assetBuilder.setCreatedBy(nextString(in));
+                        break;
+                    case JsonProperties.TIMESTAMP:
+                        assetBuilder.setTimestamp(nextLong(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+    }
+}
@@ -10,12 +10,15 @@ This Source Code Form is "Incompatible With Secondary Licenses", as defined by t
 
 package com.ambrosus.model;
 
+import com.ambrosus.instrumentation.Instrumentation;
+import com.ambrosus.utils.Consumer;
 import com.ambrosus.utils.CryptoUtils;
-import com.ambrosus.utils.JsonUtils;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import org.web3j.crypto.ECKeyPair;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.Type;
 import java.util.*;
@@ -31,7 +34,8 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
     private final String dataHash;
     private final String signature;
     private final List<EventData> eventDataList;
-    private final Map<Class<? extends EventData>, List<EventData>> dataMap;
+    // Built on first use. Concurrent first uses may each build it, all builds being equal.
+    private transient volatile TypeIndex typeIndex;
 
 
     private Event(Builder builder) {
@@ -47,7 +51,6 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
             builder.eventDataList.get(i).setParentEvent(this);
 
         this.eventDataList = Collections.unmodifiableList(new ArrayList<>(builder.eventDataList));
-        this.dataMap = buildMap();
     }
 
 
@@ -87,7 +90,7 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
 
 
     public <T extends EventData> boolean hasDataOfType(Class<T> clazz) {
-        return dataMap.containsKey(clazz);
+        return typeIndex().contains(clazz);
     }
 
 
@@ -97,43 +100,44 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
      *
      * @param clazz The class object derived from {@link EventData}
      * @param <T>   The class type derived from {@link EventData}
-     * @return A list of the corresponding subtype of
+     * @return A read-only list of the corresponding subtype of
      * {@link EventData} containing the event data objects or empty if there are no elements are of such type
      */
     public <T extends EventData> List<T> eventDataWithType(Class<T> clazz) {
 
-        List<T> castedList = new ArrayList<>();
-
-        List<EventData> eventData = dataMap.get(clazz);
-
-        if (eventData != null) {
-            for (EventData data : eventData) {
-                assert data.getClass().equals(clazz) : "Stored event data of incorrect type, this should not happen";
-                castedList.add(clazz.cast(data));
-            }
-        }
-        return castedList;
+        return typeIndex().sectionsOfType(clazz);
     }
 
 
     public <T extends EventData> T firstOf(Class<T> clazz) {
-        return clazz.cast(dataMap.get(clazz).get(0));
+        return eventDataWithType(clazz).get(0);
     }
 
 
-    private Map<Class<? extends EventData>, List<EventData>> buildMap() {
-        Map<Class<? extends EventData>, List<EventData>> map = new HashMap<>();
+    /**
+     * Calls the consumer with every event data object of the given type, in order, without allocating an iterator.
+     *
+     * @param clazz    The class object derived from {@link EventData}
+     * @param consumer The consumer of the event data objects
+     * @param <T>      The class type derived from {@link EventData}
+     */
+    public <T extends EventData> void forEachDataOfType(Class<T> clazz, Consumer<? super T> consumer) {
+
+        List<T> eventData = eventDataWithType(clazz);
 
-        for (EventData dataSection : eventDataList) {
+        for (int i = 0; i < eventData.size(); i++)
+            consumer.accept(eventData.get(i));
+    }
 
-            if (!map.containsKey(dataSection.getClass()))
-                map.put(dataSection.getClass(), new ArrayList<>());
 
-            map.get(dataSection.getClass()).add(dataSection);
+    private TypeIndex typeIndex() {
 
-        }
+        TypeIndex index = typeIndex;
 
-        return Collections.unmodifiableMap(map);
+        if (index == null)
+            typeIndex = index = TypeIndex.of(eventDataList);
+
+        return index;
     }
 
 
@@ -166,6 +170,9 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
 
             Builder builder = new Builder();
 
+            builder.createdBy = event.createdBy;
+            builder.timestamp = event.timestamp;
+            builder.metaData = event.metaData;
             builder.eventId = event.eventId;
             builder.accessLevel = event.accessLevel;
             builder.assetId = event.assetId;
@@ -272,13 +279,29 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
      */
     public static class Adapter implements JsonSerializer<Event>, JsonDeserializer<Event> {
 
+        private static final String SIGN_OPERATION = "signEvent";
+        private static final String HASH_OPERATION = "hashEventData";
+
         // Required to sign the idData field upon serialization
         private final ECKeyPair signatureKey;
+        private final Instrumentation instrumentation;
 
 
         public Adapter(ECKeyPair signatureKey) {
 
+            this(signatureKey, Instrumentation.NONE);
+        }
+
+
+        /**
+         * @param signatureKey    The key signing the events serialized without signature
+         * @param instrumentation Receives the durations of the data hashing and of the signing, as the
+         *                        {@code hashEventData} and {@code signEvent} operations
+         */
+        public Adapter(ECKeyPair signatureKey, Instrumentation instrumentation) {
+
             this.signatureKey = signatureKey;
+            this.instrumentation = instrumentation;
         }
 
 
@@ -309,8 +332,10 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
 
             if (src.getDataHash() == null) {
 
-                JsonArray sortedData = JsonUtils.arraySort(data);
-                String dataHash = CryptoUtils.computeHashString(sortedData.toString());
+                long start = System.nanoTime();
+                String dataHash = CryptoUtils.computeHashString(data);
+                instrumentation.record(HASH_OPERATION, Instrumentation.Phase.CRYPTO, System.nanoTime() - start,
+                        null);
 
                 idData.addProperty(JsonProperties.DATA_HASH, dataHash);
             } else {
@@ -321,7 +346,10 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
             content.add(JsonProperties.DATA, data);
 
             if (src.getSignature() == null) {
+                long start = System.nanoTime();
                 String signature = CryptoUtils.computeSignature(idData.toString(), signatureKey);
+                instrumentation.record(SIGN_OPERATION, Instrumentation.Phase.CRYPTO, System.nanoTime() - start,
+                        null);
                 content.addProperty(JsonProperties.SIGNATURE, signature);
             } else {
                 content.addProperty(JsonProperties.SIGNATURE, src.getSignature());
@@ -372,4 +400,110 @@ public final class Event extends AmbrosusType implements Serializable, Comparabl
             return null;
         }
     }
+
+    /**
+     * Streaming deserializer for Event instances, producing the same events as {@link Adapter} without building a
+     * {@link JsonElement} tree of the response. Serialization is left to {@link Adapter}.
+     */
+    public static class StreamingAdapter extends StreamingDeserializer<Event> {
+
+        private static final TypeToken<List<EventData>> EVENT_DATA_LIST = new TypeToken<List<EventData>>() {
+        };
+
+
+        public StreamingAdapter() {
+
+            super(TypeToken.get(Event.class));
+        }
+
+
+        @Override
+        protected Event read(JsonReader in, Gson gson) throws IOException {
+
+            Event.Builder eventBuilder = new Event.Builder();
+            Integer accessLevel = null;
+            List<EventData> eventData = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case JsonProperties.CONTENT:
+                        if (!beginObject(in))
+                            break;
+
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case JsonProperties.ID_DATA:
+                                    accessLevel = readIdData(in, eventBuilder);
+                                    break;
+                                case JsonProperties.DATA:
+                                    eventData = gson.getAdapter(EVENT_DATA_LIST).read(in);
+                                    break;
+                                case JsonProperties.SIGNATURE:
+                                    eventBuilder.setSignature(nextString(in));
+                                    break;
+                                default:
+                                    in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    case JsonProperties.EVENT_ID:
+                        eventBuilder.setEventId(nextString(in));
+                        break;
+                    case JsonProperties.META_DATA:
+                        eventBuilder.setMetaData(gson.getAdapter(MetaData.class).read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (accessLevel == null || eventBuilder.getAssetId() == null || eventBuilder.getCreatedBy() == null
+                    || eventData == null) {
+                System.err.println("Could not deserialize event, required properties are missing.");
+                return null;
+            }
+
+            return eventBuilder
+                    .setAccessLevel(accessLevel)
+                    .addAllEventData(eventData)
+                    .build();
+        }
+
+
+        private Integer readIdData(JsonReader in, Event.Builder eventBuilder) throws IOException {
+
+            Integer accessLevel = null;
+
+            if (!beginObject(in))
+                return null;
+
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case JsonProperties.ACCESS_LEVEL:
+                        accessLevel = nextInteger(in);
+                        break;
+                    case JsonProperties.ASSET_ID:
+                        eventBuilder.setAssetId(nextString(in));
+                        break;
+                    case JsonProperties.CREATED_BY:
+                        eventBuilder.setCreatedBy(nextString(in));
+                        break;
+                    case JsonProperties.TIMESTAMP:
+                        eventBuilder.setTimestamp(nextLong(in));
+                        break;
+                    case JsonProperties.DATA_HASH:
+                        eventBuilder.setDataHash(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            return accessLevel;
+        }
+    }
 }
@@ -13,7 +13,11 @@ package com.ambrosus.model;
 import com.ambrosus.AmbrosusSDK.HiddenFromJSONAdapter;
 import com.ambrosus.commons.RawJson;
 import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.*;
 
@@ -116,4 +120,76 @@ public abstract class EventData {
 
         }
     }
+
+    /**
+     * Streaming deserializer for lists of event data, dispatching every section on its type like {@link Adapter}.
+     * Sections are read one at a time from the token stream, so only the section being dispatched is held as a
+     * {@link JsonElement} tree. Serialization is left to {@link Adapter}.
+     */
+    public static class StreamingAdapter extends StreamingDeserializer<List<EventData>> {
+
+        private final static String TYPE_STR = "type";
+        private final Map<String, Type> userTypes;
+        private final JsonParser parser;
+
+
+        public StreamingAdapter(Map<String, Type> userTypes) {
+
+            super(new TypeToken<List<EventData>>() {
+            });
+            this.userTypes = Collections.unmodifiableMap(new HashMap<>(userTypes));
+            this.parser = new JsonParser();
+        }
+
+
+        /**
+         * Each section is parsed once. Sections of an unknown type are wrapped in a {@link RawJson} holding the parsed
+         * object, which is not referenced anywhere else and thus not copied.
+         */
+        @Override
+        protected List<EventData> read(JsonReader in, Gson gson) throws IOException {
+
+            if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                return Collections.emptyList();
+            }
+
+            List<EventData> dataList = new ArrayList<>();
+
+            in.beginArray();
+            while (in.hasNext()) {
+
+                if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                    // Event array contains something other that strict json object, pass
+                    in.skipValue();
+                    System.err.println("Ignoring event data element that is not a json object");
+                    continue;
+                }
+
+                JsonObject jsonObject = parser.parse(in).getAsJsonObject();
+
+                if (jsonObject.has(TYPE_STR) && jsonObject.get(TYPE_STR).isJsonPrimitive()) {
+                    String typeStr = jsonObject.get(TYPE_STR).getAsString();
+                    if (userTypes.containsKey(typeStr)) {
+                        EventData deserialized = gson.fromJson(jsonObject, userTypes.get(typeStr));
+                        if (deserialized != null) {
+                            dataList.add(deserialized);
+                        } else {
+                            System.err.println("Could not deserialize " + jsonObject.toString());
+                        }
+                    } else {
+                        // User did not provide an adapter for this event type, return a wrapper for the JSON
+                        // element
+                        dataList.add(RawJson.wrap(jsonObject));
+                    }
+                } else {
+                    // Event data element had no type
+                    System.err.println("Unable to find type for event data element.");
+                }
+            }
+            in.endArray();
+
+            return Collections.unmodifiableList(dataList);
+        }
+    }
 }
@@ -0,0 +1,177 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.model;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Base class for adapter factories which deserialize a model type straight from the {@link JsonReader} token
+ * stream, without building an intermediate {@link com.google.gson.JsonElement} tree.
+ * <p>
+ * Serialization is delegated to the adapter registered for the same type before this factory, which is expected
+ * to be the tree-based {@code Adapter} of the model class. The factory must therefore be registered after it:
+ * <pre>
+ * gsonBuilder.registerTypeAdapter(Event.class, new Event.Adapter(keyPair));
+ * gsonBuilder.registerTypeAdapterFactory(new Event.StreamingAdapter());
+ * </pre>
+ *
+ * @param <M> The deserialized model type
+ */
+public abstract class StreamingDeserializer<M> implements TypeAdapterFactory {
+
+    private final TypeToken<M> modelType;
+
+
+    protected StreamingDeserializer(TypeToken<M> modelType) {
+
+        this.modelType = modelType;
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+
+        if (!modelType.equals(type))
+            return null;
+
+        TypeAdapter<M> writeDelegate = gson.getDelegateAdapter(this, modelType);
+
+        return (TypeAdapter<T>) new TypeAdapter<M>() {
+
+            @Override
+            public void write(JsonWriter out, M value) throws IOException {
+                writeDelegate.write(out, value);
+            }
+
+
+            @Override
+            public M read(JsonReader in) throws IOException {
+
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+
+                return StreamingDeserializer.this.read(in, gson);
+            }
+        };
+    }
+
+
+    /**
+     * Reads one value of the model type. Like the tree-based adapters, implementations return null when a required
+     * property is missing, after consuming the whole value.
+     *
+     * @param in   The reader, positioned on a non-null value
+     * @param gson The Gson instance, to read nested types with their registered adapters
+     * @return The model object or null if the value lacks a required property
+     * @throws IOException if the reader fails
+     */
+    protected abstract M read(JsonReader in, Gson gson) throws IOException;
+
+
+    /**
+     * Reads a primitive value as a string, the way {@link com.google.gson.JsonElement#getAsString()} would.
+     *
+     * @return The string or null if the value was null
+     */
+    static String nextString(JsonReader in) throws IOException {
+
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BOOLEAN:
+                return String.valueOf(in.nextBoolean());
+            case STRING:
+            case NUMBER:
+                return in.nextString();
+            default:
+                in.skipValue();
+                return null;
+        }
+    }
+
+
+    /**
+     * Reads a number, the way {@link com.google.gson.JsonElement#getAsInt()} would.
+     *
+     * @return The value or null if the value was null or not a number
+     */
+    static Integer nextInteger(JsonReader in) throws IOException {
+
+        String value = nextString(in);
+
+        if (value == null)
+            return null;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            try {
+                return new BigDecimal(value).intValue();
+            } catch (NumberFormatException notANumber) {
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     * Reads a number, the way {@link com.google.gson.JsonElement#getAsLong()} would.
+     *
+     * @return The value or null if the value was null or not a number
+     */
+    static Long nextLong(JsonReader in) throws IOException {
+
+        String value = nextString(in);
+
+        if (value == null)
+            return null;
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return new BigDecimal(value).longValue();
+            } catch (NumberFormatException notANumber) {
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     * Enters an object, or skips the value if it is not an object.
+     *
+     * @return True if the reader entered an object
+     */
+    static boolean beginObject(JsonReader in) throws IOException {
+
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return false;
+        }
+
+        in.beginObject();
+        return true;
+    }
+}
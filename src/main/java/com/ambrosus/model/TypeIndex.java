@@ -0,0 +1,234 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable index of a sequence of event data sections by type.
+ * <p>
+ * The sections are held in a single array and each type maps to the positions of its sections in that array. The
+ * read-only lists returned for a type, of its sections and of the events holding them, are created along with the
+ * index, so that lookups do not allocate.
+ */
+final class TypeIndex {
+
+    static final TypeIndex EMPTY = new TypeIndex(new EventData[0], Collections.emptyMap());
+
+    private final EventData[] sections;
+    private final Map<Class<? extends EventData>, Sections<?>> sectionsByType;
+
+
+    private TypeIndex(EventData[] sections, Map<Class<? extends EventData>, int[]> positionsByType) {
+
+        this.sections = sections;
+        this.sectionsByType = new HashMap<>((int) (positionsByType.size() / 0.75f) + 1);
+
+        for (Map.Entry<Class<? extends EventData>, int[]> entry : positionsByType.entrySet())
+            sectionsByType.put(entry.getKey(), new Sections<>(entry.getKey(), sections, entry.getValue()));
+    }
+
+
+    /**
+     * @param sections The sections to index, in the order in which they are returned by the index
+     */
+    static TypeIndex of(List<EventData> sections) {
+
+        if (sections.isEmpty())
+            return EMPTY;
+
+        return new TypeIndex(sections.toArray(new EventData[0]), positionsByType(sections));
+    }
+
+
+    /**
+     * Indexes the given sections followed by the sections of this index, reusing the positions already computed.
+     */
+    TypeIndex prepend(List<EventData> newSections) {
+
+        if (newSections.isEmpty())
+            return this;
+
+        int offset = newSections.size();
+        EventData[] merged = new EventData[offset + sections.length];
+
+        for (int i = 0; i < offset; i++)
+            merged[i] = newSections.get(i);
+
+        System.arraycopy(sections, 0, merged, offset, sections.length);
+
+        Map<Class<? extends EventData>, int[]> positionsByType = positionsByType(newSections);
+
+        for (Sections<?> existing : sectionsByType.values()) {
+            int[] prefix = positionsByType.get(existing.type);
+            int prefixLength = prefix != null ? prefix.length : 0;
+            int[] positions = new int[prefixLength + existing.positions.length];
+
+            if (prefix != null)
+                System.arraycopy(prefix, 0, positions, 0, prefixLength);
+
+            for (int i = 0; i < existing.positions.length; i++)
+                positions[prefixLength + i] = existing.positions[i] + offset;
+
+            positionsByType.put(existing.type, positions);
+        }
+
+        return new TypeIndex(merged, positionsByType);
+    }
+
+
+    boolean contains(Class<? extends EventData> type) {
+
+        return sectionsByType.containsKey(type);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    <T extends EventData> List<T> sectionsOfType(Class<T> type) {
+
+        Sections<?> typedSections = sectionsByType.get(type);
+        return typedSections != null ? (List<T>) typedSections : Collections.<T>emptyList();
+    }
+
+
+    /**
+     * @return The distinct parent events of the sections of the given type, in the order of their sections
+     */
+    List<Event> eventsWithType(Class<? extends EventData> type) {
+
+        Sections<?> typedSections = sectionsByType.get(type);
+        return typedSections != null ? typedSections.events : Collections.<Event>emptyList();
+    }
+
+
+    private static Map<Class<? extends EventData>, int[]> positionsByType(List<EventData> sections) {
+
+        Map<Class<? extends EventData>, int[]> remaining = new HashMap<>();
+
+        for (EventData section : sections) {
+            int[] count = remaining.get(section.getClass());
+
+            if (count == null)
+                remaining.put(section.getClass(), count = new int[1]);
+
+            count[0]++;
+        }
+
+        Map<Class<? extends EventData>, int[]> positionsByType = new HashMap<>();
+
+        for (int i = 0; i < sections.size(); i++) {
+            Class<? extends EventData> type = sections.get(i).getClass();
+            int[] count = remaining.get(type);
+            int[] positions = positionsByType.get(type);
+
+            if (positions == null)
+                positionsByType.put(type, positions = new int[count[0]]);
+
+            positions[positions.length - count[0]--] = i;
+        }
+
+        return positionsByType;
+    }
+
+
+    /**
+     * Read-only view of the sections of one type.
+     */
+    private static final class Sections<T extends EventData> extends AbstractList<T> implements RandomAccess {
+
+        private final Class<T> type;
+        private final EventData[] sections;
+        private final int[] positions;
+        private final List<Event> events;
+
+
+        Sections(Class<T> type, EventData[] sections, int[] positions) {
+
+            this.type = type;
+            this.sections = sections;
+            this.positions = positions;
+            this.events = new ParentEvents(sections, firstPositionsByEvent(sections, positions));
+        }
+
+
+        /**
+         * The sections of an event being contiguous, an event holds the section at a position if it does not hold the
+         * previous section of the same type.
+         */
+        private static int[] firstPositionsByEvent(EventData[] sections, int[] positions) {
+
+            int[] firstPositions = new int[positions.length];
+            int count = 0;
+            Event previous = null;
+
+            for (int position : positions) {
+                Event event = sections[position].getParentEvent();
+
+                if (count == 0 || event != previous)
+                    firstPositions[count++] = position;
+
+                previous = event;
+            }
+
+            return count == positions.length ? firstPositions : Arrays.copyOf(firstPositions, count);
+        }
+
+
+        @Override
+        public T get(int index) {
+
+            return type.cast(sections[positions[index]]);
+        }
+
+
+        @Override
+        public int size() {
+
+            return positions.length;
+        }
+    }
+
+    /**
+     * Read-only view of the parent events of some sections.
+     */
+    private static final class ParentEvents extends AbstractList<Event> implements RandomAccess {
+
+        private final EventData[] sections;
+        private final int[] positions;
+
+
+        ParentEvents(EventData[] sections, int[] positions) {
+
+            this.sections = sections;
+            this.positions = positions;
+        }
+
+
+        @Override
+        public Event get(int index) {
+
+            return sections[positions[index]].getParentEvent();
+        }
+
+
+        @Override
+        public int size() {
+
+            return positions.length;
+        }
+    }
+}
@@ -10,6 +10,7 @@ This Source Code Form is "Incompatible With Secondary Licenses", as defined by t
 
 package com.ambrosus.network;
 
+import com.ambrosus.instrumentation.Operation;
 import com.ambrosus.model.Account;
 import com.ambrosus.model.Asset;
 import com.ambrosus.model.Event;
@@ -30,27 +31,38 @@ public interface AmbrosusService {
     String SECRET_PREAMBLE = "AMB ";
 
 
+    @Operation("getAsset")
     @GET("assets/{assetId}")
     Call<Asset> getAsset(@Path("assetId") String assetId);
 
 
+    @Operation("getEvent")
+    @GET("events/{eventId}")
+    Call<Event> getEvent(@Path("eventId") String eventId);
+
+
+    @Operation("getEvents")
     @GET("events")
     Call<EventQueryResponse> getEvents(@Query("assetId") String assetId);
 
 
+    @Operation("findAssets")
     @GET("assets")
     Call<AssetQueryResponse> findAssets(@QueryMap Map<String, String> params);
 
 
+    @Operation("findEvents")
     @GET("events")
     Call<EventQueryResponse> findEvents(@QueryMap Map<String, String> params);
 
 
+    @Operation("findAccounts")
     @GET("accounts")
     Call<AccountQueryResponse> findAccounts(@Header("Authorization") String token,
                                             @QueryMap Map<String, String> params);
 
 
+    @Operation("createAsset")
     @POST("assets")
     @Headers({
             "Content-Type:application/json",
@@ -59,6 +71,7 @@ public interface AmbrosusService {
     Call<Asset> createAsset(@Body Asset body);
 
 
+    @Operation("createEvent")
     @POST("assets/{assetId}/events")
     @Headers({
             "Content-Type:application/json",
@@ -67,6 +80,7 @@ public interface AmbrosusService {
     Call<Event> createEvent(@Path("assetId") String assetId, @Body Event event);
 
 
+    @Operation("createAccount")
     @POST("accounts")
     @Headers({
             "Content-Type:application/json",
@@ -75,6 +89,7 @@ public interface AmbrosusService {
     Call<Account> createAccount(@Header("Authorization") String token, @Body Account body);
 
 
+    @Operation("createToken")
     @POST("token")
     @Headers({
             "Content-Type:application/json",
@@ -83,9 +98,10 @@ public interface AmbrosusService {
     Call<Token> createToken(@Header("Authorization") String secret, @Body JsonObject body);
 
 
+    @Operation("getAccount")
     @GET("accounts/{accountAddress}")
     @Headers({
             "Accept:application/json"
     })
     Call<Account> getAccount(@Header("Authorization") String token, @Path("accountAddress") String accountAddress);
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the blocking methods of the SDK when the API answered a request without the expected object: with an
+ * unsuccessful status code, or with a body which is empty or could not be deserialized, for instance because its
+ * signature does not match.
+ */
+public class ApiException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+    private final String errorBody;
+
+
+    /**
+     * @param code      The HTTP status code of the response
+     * @param message   The description of the failure
+     * @param errorBody The body of an unsuccessful response, or null if there is none
+     */
+    public ApiException(int code, String message, String errorBody) {
+
+        super(message);
+        this.code = code;
+        this.errorBody = errorBody;
+    }
+
+
+    /**
+     * @return The HTTP status code of the response
+     */
+    public int getCode() {
+
+        return code;
+    }
+
+
+    /**
+     * @return The body of an unsuccessful response, or null if there is none
+     */
+    public String getErrorBody() {
+
+        return errorBody;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport settings of the HTTP client used by the SDK to reach the REST API.
+ * <p>
+ * Settings which are not set keep the OkHttp defaults: a pool of 5 idle connections kept alive for 5 minutes, 64
+ * concurrent requests of which 5 per host, 10 second timeouts and HTTP/2 when the server supports it. Responses are
+ * always requested and decoded with gzip compression by OkHttp.
+ * <p>
+ * A client can also be shared between several SDK instances so that they use a single connection pool and
+ * dispatcher. Timeouts, protocols and request compression are then applied on top of the shared client, while the
+ * pool and dispatcher settings cannot be set since they belong to the shared client.
+ */
+public final class HttpConfig {
+
+    private final OkHttpClient sharedClient;
+    private final Integer maxIdleConnections;
+    private final Long keepAliveMillis;
+    private final Integer maxRequests;
+    private final Integer maxRequestsPerHost;
+    private final Long connectTimeoutMillis;
+    private final Long readTimeoutMillis;
+    private final Long writeTimeoutMillis;
+    private final boolean http2Enabled;
+    private final boolean requestCompressionEnabled;
+
+
+    private HttpConfig(Builder builder) {
+
+        this.sharedClient = builder.sharedClient;
+        this.maxIdleConnections = builder.maxIdleConnections;
+        this.keepAliveMillis = builder.keepAliveMillis;
+        this.maxRequests = builder.maxRequests;
+        this.maxRequestsPerHost = builder.maxRequestsPerHost;
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.readTimeoutMillis = builder.readTimeoutMillis;
+        this.writeTimeoutMillis = builder.writeTimeoutMillis;
+        this.http2Enabled = builder.http2Enabled;
+        this.requestCompressionEnabled = builder.requestCompressionEnabled;
+    }
+
+
+    /**
+     * Creates the client to be used by an SDK instance. If a shared client was set, the returned client uses its
+     * connection pool and dispatcher.
+     *
+     * @return A client configured with these settings
+     */
+    public OkHttpClient createClient() {
+
+        OkHttpClient.Builder clientBuilder = sharedClient != null ? sharedClient.newBuilder() :
+                new OkHttpClient.Builder();
+
+        if (maxIdleConnections != null || keepAliveMillis != null) {
+            clientBuilder.connectionPool(new ConnectionPool(
+                    maxIdleConnections != null ? maxIdleConnections : 5,
+                    keepAliveMillis != null ? keepAliveMillis : TimeUnit.MINUTES.toMillis(5),
+                    TimeUnit.MILLISECONDS));
+        }
+
+        if (maxRequests != null || maxRequestsPerHost != null) {
+            Dispatcher dispatcher = new Dispatcher();
+
+            if (maxRequests != null)
+                dispatcher.setMaxRequests(maxRequests);
+
+            if (maxRequestsPerHost != null)
+                dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+            clientBuilder.dispatcher(dispatcher);
+        }
+
+        if (connectTimeoutMillis != null)
+            clientBuilder.connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        if (readTimeoutMillis != null)
+            clientBuilder.readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        if (writeTimeoutMillis != null)
+            clientBuilder.writeTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        if (!http2Enabled)
+            clientBuilder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+
+        if (requestCompressionEnabled)
+            clientBuilder.addInterceptor(new GzipRequestInterceptor());
+
+        return clientBuilder.build();
+    }
+
+
+    /**
+     * Builder class for HTTP configurations.
+     */
+    public static class Builder {
+
+        private OkHttpClient sharedClient;
+        private Integer maxIdleConnections;
+        private Long keepAliveMillis;
+        private Integer maxRequests;
+        private Integer maxRequestsPerHost;
+        private Long connectTimeoutMillis;
+        private Long readTimeoutMillis;
+        private Long writeTimeoutMillis;
+        private boolean http2Enabled = true;
+        private boolean requestCompressionEnabled = false;
+
+
+        /**
+         * @param sharedClient A client whose connection pool and dispatcher are reused by the SDK
+         */
+        public Builder setSharedClient(OkHttpClient sharedClient) {
+
+            this.sharedClient = sharedClient;
+            return this;
+        }
+
+
+        /**
+         * @param maxIdleConnections Maximum number of idle connections kept in the pool
+         * @param keepAlive          Duration for which an idle connection is kept in the pool
+         * @param unit               The unit of the keepAlive argument
+         */
+        public Builder setConnectionPool(int maxIdleConnections, long keepAlive, TimeUnit unit) {
+
+            this.maxIdleConnections = requirePositive(maxIdleConnections, "maximum number of idle connections");
+            this.keepAliveMillis = requirePositive(unit.toMillis(keepAlive), "keep-alive duration");
+            return this;
+        }
+
+
+        /**
+         * @param maxRequests        Maximum number of requests executed concurrently
+         * @param maxRequestsPerHost Maximum number of requests executed concurrently against a single host
+         */
+        public Builder setMaxRequests(int maxRequests, int maxRequestsPerHost) {
+
+            this.maxRequests = requirePositive(maxRequests, "maximum number of requests");
+            this.maxRequestsPerHost = requirePositive(maxRequestsPerHost, "maximum number of requests per host");
+            return this;
+        }
+
+
+        public Builder setConnectTimeout(long timeout, TimeUnit unit) {
+
+            this.connectTimeoutMillis = requireNonNegative(unit.toMillis(timeout), "connect timeout");
+            return this;
+        }
+
+
+        public Builder setReadTimeout(long timeout, TimeUnit unit) {
+
+            this.readTimeoutMillis = requireNonNegative(unit.toMillis(timeout), "read timeout");
+            return this;
+        }
+
+
+        public Builder setWriteTimeout(long timeout, TimeUnit unit) {
+
+            this.writeTimeoutMillis = requireNonNegative(unit.toMillis(timeout), "write timeout");
+            return this;
+        }
+
+
+        /**
+         * @param http2Enabled False to restrict the client to HTTP/1.1
+         */
+        public Builder setHttp2Enabled(boolean http2Enabled) {
+
+            this.http2Enabled = http2Enabled;
+            return this;
+        }
+
+
+        /**
+         * @param requestCompressionEnabled True to gzip the bodies of the requests. The REST API must accept the
+         *                                  gzip content encoding.
+         */
+        public Builder setRequestCompressionEnabled(boolean requestCompressionEnabled) {
+
+            this.requestCompressionEnabled = requestCompressionEnabled;
+            return this;
+        }
+
+
+        /**
+         * @throws IllegalStateException if connection pool or dispatcher settings are combined with a shared client
+         */
+        public HttpConfig build() {
+
+            if (sharedClient != null && (maxIdleConnections != null || maxRequests != null))
+                throw new IllegalStateException("The connection pool and dispatcher of a shared client cannot be " +
+                        "configured.");
+
+            return new HttpConfig(this);
+        }
+
+
+        private static <N extends Number> N requirePositive(N value, String name) {
+
+            if (value.longValue() <= 0)
+                throw new IllegalArgumentException("The " + name + " must be positive.");
+
+            return value;
+        }
+
+
+        private static long requireNonNegative(long value, String name) {
+
+            if (value < 0)
+                throw new IllegalArgumentException("The " + name + " must not be negative.");
+
+            return value;
+        }
+    }
+
+    /**
+     * Compresses the request bodies with gzip.
+     */
+    private static final class GzipRequestInterceptor implements Interceptor {
+
+        @Override
+        public okhttp3.Response intercept(Chain chain) throws IOException {
+
+            Request request = chain.request();
+
+            if (request.body() == null || request.header("Content-Encoding") != null)
+                return chain.proceed(request);
+
+            Request compressedRequest = request.newBuilder()
+                    .header("Content-Encoding", "gzip")
+                    .method(request.method(), gzip(request.body()))
+                    .build();
+
+            return chain.proceed(compressedRequest);
+        }
+
+
+        private static RequestBody gzip(RequestBody body) {
+
+            return new RequestBody() {
+
+                @Override
+                public MediaType contentType() {
+                    return body.contentType();
+                }
+
+
+                @Override
+                public long contentLength() {
+                    return -1;
+                }
+
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+
+                    try (BufferedSink gzipSink = Okio.buffer(new GzipSink(sink))) {
+                        body.writeTo(gzipSink);
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Initial settings of a {@link RequestLimiter}: the request rate of each operation, the bounds of the adaptive
+ * concurrency limit, and the priority class of each operation. Operations are named by the
+ * {@link com.ambrosus.instrumentation.Operation} annotation of the {@link AmbrosusService} methods.
+ */
+public final class LimitPolicy {
+
+    private final Rate defaultRate;
+    private final Map<String, Rate> rates;
+    private final Map<String, RequestPriority> priorities;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final double bulkShare;
+
+
+    private LimitPolicy(Builder builder) {
+
+        this.defaultRate = builder.defaultRate;
+        this.rates = Collections.unmodifiableMap(new HashMap<>(builder.rates));
+        this.priorities = Collections.unmodifiableMap(new HashMap<>(builder.priorities));
+        this.initialLimit = builder.initialLimit;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyThresholdNanos = builder.latencyThresholdNanos;
+        this.bulkShare = builder.bulkShare;
+    }
+
+
+    /**
+     * @return The rate of the operations without a rate of their own
+     */
+    public Rate getDefaultRate() {
+
+        return defaultRate;
+    }
+
+
+    /**
+     * @return The rates set for specific operations
+     */
+    public Map<String, Rate> getRates() {
+
+        return rates;
+    }
+
+
+    /**
+     * @param operation The name of the operation
+     * @return The priority class of the operation, {@link RequestPriority#INTERACTIVE} unless set otherwise
+     */
+    public RequestPriority getPriority(String operation) {
+
+        RequestPriority priority = priorities.get(operation);
+        return priority != null ? priority : RequestPriority.INTERACTIVE;
+    }
+
+
+    public int getInitialLimit() {
+
+        return initialLimit;
+    }
+
+
+    public int getMinLimit() {
+
+        return minLimit;
+    }
+
+
+    public int getMaxLimit() {
+
+        return maxLimit;
+    }
+
+
+    public double getBackoffRatio() {
+
+        return backoffRatio;
+    }
+
+
+    public long getLatencyThresholdNanos() {
+
+        return latencyThresholdNanos;
+    }
+
+
+    public double getBulkShare() {
+
+        return bulkShare;
+    }
+
+
+    /**
+     * A token bucket rate: requests are sent at most at {@code permitsPerSecond} on average, with bursts of up to
+     * {@code burst} requests after a quiet period.
+     */
+    public static final class Rate {
+
+        /**
+         * No limit on the request rate.
+         */
+        public static final Rate UNLIMITED = new Rate(Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
+
+        private final double permitsPerSecond;
+        private final int burst;
+
+
+        /**
+         * @param permitsPerSecond The average number of requests per second, positive
+         * @param burst            The number of requests which can be sent at once, at least 1
+         */
+        public Rate(double permitsPerSecond, int burst) {
+
+            if (!(permitsPerSecond > 0))
+                throw new IllegalArgumentException("The number of permits per second must be positive.");
+
+            if (burst < 1)
+                throw new IllegalArgumentException("The burst must be at least 1.");
+
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+
+
+        public double getPermitsPerSecond() {
+
+            return permitsPerSecond;
+        }
+
+
+        public int getBurst() {
+
+            return burst;
+        }
+
+
+        public boolean isUnlimited() {
+
+            return Double.isInfinite(permitsPerSecond);
+        }
+    }
+
+    /**
+     * Builder class for limit policies. Defaults to no rate limit, a concurrency limit starting at 10 and adapting
+     * between 1 and 100, and queries of assets, events and accounts as {@link RequestPriority#BULK} requests allowed
+     * half of the concurrency limit.
+     */
+    public static class Builder {
+
+        private Rate defaultRate = Rate.UNLIMITED;
+        private final Map<String, Rate> rates = new HashMap<>();
+        private final Map<String, RequestPriority> priorities = new HashMap<>();
+        private int initialLimit = 10;
+        private int minLimit = 1;
+        private int maxLimit = 100;
+        private double backoffRatio = 0.7;
+        private long latencyThresholdNanos = 0;
+        private double bulkShare = 0.5;
+
+
+        public Builder() {
+
+            priorities.put("findAssets", RequestPriority.BULK);
+            priorities.put("findEvents", RequestPriority.BULK);
+            priorities.put("findAccounts", RequestPriority.BULK);
+        }
+
+
+        /**
+         * @param rate The rate of the operations without a rate of their own, or {@link Rate#UNLIMITED}
+         */
+        public Builder setDefaultRate(Rate rate) {
+
+            if (rate == null)
+                throw new IllegalArgumentException("The rate must not be null.");
+
+            this.defaultRate = rate;
+            return this;
+        }
+
+
+        /**
+         * @param operation The name of the operation, for instance "findEvents"
+         * @param rate      The rate of the operation, or {@link Rate#UNLIMITED}
+         */
+        public Builder setRate(String operation, Rate rate) {
+
+            if (operation == null || rate == null)
+                throw new IllegalArgumentException("The operation and rate must not be null.");
+
+            rates.put(operation, rate);
+            return this;
+        }
+
+
+        /**
+         * @param operation The name of the operation, for instance "getAsset"
+         * @param priority  The priority class of its requests
+         */
+        public Builder setPriority(String operation, RequestPriority priority) {
+
+            if (operation == null || priority == null)
+                throw new IllegalArgumentException("The operation and priority must not be null.");
+
+            priorities.put(operation, priority);
+            return this;
+        }
+
+
+        /**
+         * The number of requests in flight is bounded by a limit which grows by one for every limit's worth of
+         * successful requests, and is multiplied by the backoff ratio whenever a request is refused with a 429 (Too
+         * Many Requests) or 503 (Service Unavailable) response, fails, or exceeds the latency threshold.
+         *
+         * @param initialLimit The limit at startup
+         * @param minLimit     The lowest limit, at least 1
+         * @param maxLimit     The highest limit
+         */
+        public Builder setConcurrency(int initialLimit, int minLimit, int maxLimit) {
+
+            if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit)
+                throw new IllegalArgumentException("The concurrency limits must be positive and increasing.");
+
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+
+        /**
+         * @param backoffRatio The factor applied to the concurrency limit when the API is overloaded, between 0 and 1
+         */
+        public Builder setBackoffRatio(double backoffRatio) {
+
+            if (!(backoffRatio > 0 && backoffRatio < 1))
+                throw new IllegalArgumentException("The backoff ratio must be between 0 and 1.");
+
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+
+        /**
+         * @param latencyThreshold The latency above which a request is considered a sign of overload, or 0 to only
+         *                         rely on responses and failures
+         * @param unit             The unit of the latencyThreshold argument
+         */
+        public Builder setLatencyThreshold(long latencyThreshold, TimeUnit unit) {
+
+            if (latencyThreshold < 0)
+                throw new IllegalArgumentException("The latency threshold must not be negative.");
+
+            this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+            return this;
+        }
+
+
+        /**
+         * @param bulkShare The share of the concurrency limit which {@link RequestPriority#BULK} requests may use,
+         *                  between 0 and 1. They may always use at least one slot.
+         */
+        public Builder setBulkShare(double bulkShare) {
+
+            if (!(bulkShare > 0 && bulkShare <= 1))
+                throw new IllegalArgumentException("The bulk share must be between 0 and 1.");
+
+            this.bulkShare = bulkShare;
+            return this;
+        }
+
+
+        public LimitPolicy build() {
+
+            return new LimitPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of the nodes of the API: when the circuit breaker of a {@link NodePool} stops sending requests to a failing
+ * node, and when a {@link RequestHedger} asks a second node for a read which is slow to be answered.
+ */
+public final class NodePolicy {
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final long initialHedgeDelayMillis;
+    private final long minHedgeDelayMillis;
+    private final double hedgeRatio;
+    private final int minHedges;
+
+
+    private NodePolicy(Builder builder) {
+
+        this.failureThreshold = builder.failureThreshold;
+        this.openDurationMillis = builder.openDurationMillis;
+        this.hedgingEnabled = builder.hedgingEnabled;
+        this.hedgePercentile = builder.hedgePercentile;
+        this.initialHedgeDelayMillis = builder.initialHedgeDelayMillis;
+        this.minHedgeDelayMillis = builder.minHedgeDelayMillis;
+        this.hedgeRatio = builder.hedgeRatio;
+        this.minHedges = builder.minHedges;
+    }
+
+
+    public int getFailureThreshold() {
+
+        return failureThreshold;
+    }
+
+
+    public long getOpenDurationMillis() {
+
+        return openDurationMillis;
+    }
+
+
+    public boolean isHedgingEnabled() {
+
+        return hedgingEnabled;
+    }
+
+
+    public double getHedgePercentile() {
+
+        return hedgePercentile;
+    }
+
+
+    public long getInitialHedgeDelayMillis() {
+
+        return initialHedgeDelayMillis;
+    }
+
+
+    public long getMinHedgeDelayMillis() {
+
+        return minHedgeDelayMillis;
+    }
+
+
+    public double getHedgeRatio() {
+
+        return hedgeRatio;
+    }
+
+
+    public int getMinHedges() {
+
+        return minHedges;
+    }
+
+
+    /**
+     * Builder class for node policies. Defaults to opening the circuit of a node after 5 consecutive failures for 10
+     * seconds, and to no hedged requests.
+     */
+    public static class Builder {
+
+        private int failureThreshold = 5;
+        private long openDurationMillis = TimeUnit.SECONDS.toMillis(10);
+        private boolean hedgingEnabled = false;
+        private double hedgePercentile = 95;
+        private long initialHedgeDelayMillis = 500;
+        private long minHedgeDelayMillis = 10;
+        private double hedgeRatio = 0.05;
+        private int minHedges = 10;
+
+
+        /**
+         * A node whose requests fail the given number of times in a row, with a network failure or a 500, 502, 503 or
+         * 504 response, receives no request for the given duration. A single request is then sent to it, which
+         * closes the circuit if it succeeds, or opens it again otherwise.
+         *
+         * @param failureThreshold The number of consecutive failures opening the circuit of a node, at least 1
+         * @param openDuration     The duration for which a node receives no request once its circuit is open
+         * @param unit             The unit of the openDuration argument
+         */
+        public Builder setCircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+
+            if (failureThreshold < 1)
+                throw new IllegalArgumentException("The failure threshold must be at least 1.");
+
+            if (openDuration < 0)
+                throw new IllegalArgumentException("The open duration must not be negative.");
+
+            this.failureThreshold = failureThreshold;
+            this.openDurationMillis = unit.toMillis(openDuration);
+            return this;
+        }
+
+
+        /**
+         * Enables hedged reads: when a GET request has not been answered after the given percentile of the latencies
+         * of its operation, the same request is sent to another node, and the first answer is kept. Hedges are
+         * limited to {@code hedgeRatio} of the reads plus {@code minHedges}, so that a slow API does not receive twice
+         * the load.
+         *
+         * @param percentile The percentile of the latencies after which a read is hedged, between 0 and 100
+         * @param hedgeRatio The share of the reads which may be hedged, between 0 and 1
+         * @param minHedges  The number of hedges allowed whatever the traffic
+         */
+        public Builder setHedging(double percentile, double hedgeRatio, int minHedges) {
+
+            if (!(percentile >= 0 && percentile <= 100))
+                throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+
+            if (!(hedgeRatio >= 0 && hedgeRatio <= 1))
+                throw new IllegalArgumentException("The hedge ratio must be between 0 and 1.");
+
+            if (minHedges < 0)
+                throw new IllegalArgumentException("The minimum number of hedges must not be negative.");
+
+            this.hedgingEnabled = true;
+            this.hedgePercentile = percentile;
+            this.hedgeRatio = hedgeRatio;
+            this.minHedges = minHedges;
+            return this;
+        }
+
+
+        /**
+         * @param initialDelay The delay before hedging the reads of an operation whose latencies are not known yet
+         * @param minDelay     The shortest delay before hedging a read, whatever the latencies
+         * @param unit         The unit of the initialDelay and minDelay arguments
+         */
+        public Builder setHedgeDelays(long initialDelay, long minDelay, TimeUnit unit) {
+
+            if (initialDelay < 0 || minDelay < 0)
+                throw new IllegalArgumentException("The hedge delays must not be negative.");
+
+            this.initialHedgeDelayMillis = unit.toMillis(initialDelay);
+            this.minHedgeDelayMillis = unit.toMillis(minDelay);
+            return this;
+        }
+
+
+        public NodePolicy build() {
+
+            return new NodePolicy(this);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Interceptor spreading the requests built against the first node of the API over all its nodes.
+ * <p>
+ * Each request is sent to the node with the lowest average latency weighted by its number of requests in flight and
+ * by its recent error rate, nodes not answered yet being tried first. The error rate is counted apart from the
+ * latency and decays over time, so that a node which failed for a while is used again once it recovers. A node
+ * already serving the same request, for instance because a {@link RequestHedger} sends it again, is only chosen when
+ * no other node is available. Each node has a circuit breaker configured by a {@link NodePolicy}: a node failing
+ * repeatedly receives no request for a while, then a single trial request decides whether it is used again, its
+ * latency and error rate being measured afresh if it succeeds. When every circuit is open, requests fail at once with a
+ * {@link ConnectException}.
+ */
+public final class NodePool implements Interceptor {
+
+    private static final double LATENCY_WEIGHT = 0.2;
+    private static final double ERROR_WEIGHT = 0.2;
+    private static final double ERROR_PENALTY = 9;
+    private static final long ERROR_HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final List<Node> nodes;
+    private final NodePolicy policy;
+    private final String primaryUrl;
+    private final ReentrantLock lock;
+    private final AtomicLong rejectedCount;
+    private int nextIndex;
+
+
+    /**
+     * @param baseUrls The base URLs of the nodes, each ending with '/', requests being built against the first one
+     * @param policy   The circuit breaker settings
+     */
+    public NodePool(List<String> baseUrls, NodePolicy policy) {
+
+        if (baseUrls == null || baseUrls.isEmpty())
+            throw new IllegalArgumentException("At least one node URL must be given.");
+
+        this.nodes = new ArrayList<>();
+        this.policy = policy;
+        this.lock = new ReentrantLock();
+        this.rejectedCount = new AtomicLong();
+
+        for (String baseUrl : baseUrls) {
+            HttpUrl url = baseUrl != null ? HttpUrl.parse(baseUrl) : null;
+
+            if (url == null || !url.encodedPath().endsWith("/"))
+                throw new IllegalArgumentException("Invalid node URL, which must end with '/': " + baseUrl);
+
+            nodes.add(new Node(url));
+        }
+
+        this.primaryUrl = nodes.get(0).url.toString();
+    }
+
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+
+        Request request = chain.request();
+        String url = request.url().toString();
+
+        if (!url.startsWith(primaryUrl))
+            return chain.proceed(request);
+
+        String relativeUrl = url.substring(primaryUrl.length());
+        String key = request.method() + " " + relativeUrl;
+        Lease lease = acquire(key);
+
+        if (lease == null) {
+            rejectedCount.incrementAndGet();
+            throw new ConnectException("No node of the API is available, the circuits of all nodes are open.");
+        }
+
+        if (lease.node != nodes.get(0))
+            request = request.newBuilder().url(lease.node.url.toString() + relativeUrl).build();
+
+        long startNanos = System.nanoTime();
+        Boolean failed = null;
+
+        try {
+            Response response = chain.proceed(request);
+            failed = isServerFailure(response.code());
+            return response;
+        } catch (IOException e) {
+            failed = chain.call().isCanceled() ? null : Boolean.TRUE;
+            throw e;
+        } finally {
+            release(lease, key, System.nanoTime() - startNanos, failed);
+        }
+    }
+
+
+    public NodePolicy getPolicy() {
+
+        return policy;
+    }
+
+
+    /**
+     * @return The nodes, in the order of their URLs, to inspect their state and metrics
+     */
+    public List<Node> getNodes() {
+
+        return Collections.unmodifiableList(nodes);
+    }
+
+
+    /**
+     * @return The number of requests failed at once because the circuits of all nodes were open
+     */
+    public long getRejectedCount() {
+
+        return rejectedCount.get();
+    }
+
+
+    private Lease acquire(String key) {
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            Node best = null;
+            boolean bestServesKey = false;
+            double bestScore = 0;
+
+            // Scanned from a rotating index, so that nodes with the same score take turns
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get((nextIndex + i) % nodes.size());
+
+                if (!node.isAvailable(now))
+                    continue;
+
+                boolean servesKey = node.inFlightKeys.contains(key);
+                double score = node.latencyNanos * (node.inFlightKeys.size() + 1) * (node.consecutiveFailures + 1) *
+                        (1 + ERROR_PENALTY * node.errorRateAt(now));
+
+                boolean better = servesKey == bestServesKey ? score < bestScore : bestServesKey;
+
+                if (best == null || better) {
+                    best = node;
+                    bestServesKey = servesKey;
+                    bestScore = score;
+                }
+            }
+
+            if (best == null)
+                return null;
+
+            nextIndex = (nextIndex + 1) % nodes.size();
+
+            boolean trial = best.state != State.CLOSED;
+            if (trial) {
+                best.state = State.HALF_OPEN;
+                best.trialInFlight = true;
+            }
+
+            best.inFlightKeys.add(key);
+            best.requestCount++;
+
+            return new Lease(best, trial);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @param failed True if the request failed, false if it succeeded, null if it says nothing about the node, for
+     *               instance when it was canceled
+     */
+    private void release(Lease lease, String key, long latencyNanos, Boolean failed) {
+
+        Node node = lease.node;
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            node.inFlightKeys.remove(key);
+
+            if (lease.trial)
+                node.trialInFlight = false;
+
+            if (Boolean.FALSE.equals(failed)) {
+                if (lease.trial) {
+                    // The node recovered, so the measures taken while it was failing no longer describe it
+                    node.latencyNanos = latencyNanos;
+                    node.errorRate = 0;
+                    node.errorUpdateNanos = now;
+                } else {
+                    node.latencyNanos = node.latencyNanos == 0 ? latencyNanos :
+                            node.latencyNanos + LATENCY_WEIGHT * (latencyNanos - node.latencyNanos);
+                    node.recordOutcome(now, 0);
+                }
+
+                if (lease.trial || node.state == State.CLOSED) {
+                    node.state = State.CLOSED;
+                    node.consecutiveFailures = 0;
+                }
+            } else if (Boolean.TRUE.equals(failed)) {
+                // Failures are often fast, so they raise the error rate rather than lower the latency
+                if (node.latencyNanos == 0)
+                    node.latencyNanos = latencyNanos;
+
+                node.recordOutcome(now, 1);
+                node.failureCount++;
+
+                if (lease.trial || (node.state == State.CLOSED &&
+                        ++node.consecutiveFailures >= policy.getFailureThreshold())) {
+                    node.state = State.OPEN;
+                    node.openUntilNanos = System.nanoTime() +
+                            TimeUnit.MILLISECONDS.toNanos(policy.getOpenDurationMillis());
+                    node.consecutiveFailures = 0;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private static boolean isServerFailure(int code) {
+
+        return code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+
+    /**
+     * States of the circuit breaker of a node.
+     */
+    public enum State {
+
+        /**
+         * The node receives requests.
+         */
+        CLOSED,
+
+        /**
+         * The node failed repeatedly and receives no request until the end of the open duration.
+         */
+        OPEN,
+
+        /**
+         * The open duration is over, and a single trial request decides whether the node is used again.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * A node of the API, whose state is guarded by the lock of its pool.
+     */
+    public final class Node {
+
+        private final HttpUrl url;
+        private final List<String> inFlightKeys;
+        private State state;
+        private int consecutiveFailures;
+        private long openUntilNanos;
+        private boolean trialInFlight;
+        private double latencyNanos;
+        private double errorRate;
+        private long errorUpdateNanos;
+        private long requestCount;
+        private long failureCount;
+
+
+        Node(HttpUrl url) {
+
+            this.url = url;
+            this.inFlightKeys = new ArrayList<>();
+            this.state = State.CLOSED;
+        }
+
+
+        private boolean isAvailable(long now) {
+
+            if (state == State.OPEN)
+                return now - openUntilNanos >= 0;
+
+            return state == State.CLOSED || !trialInFlight;
+        }
+
+
+        /**
+         * @return The error rate at the given time, decayed since its last update
+         */
+        private double errorRateAt(long now) {
+
+            if (errorRate == 0)
+                return 0;
+
+            return errorRate * Math.pow(0.5, (double) (now - errorUpdateNanos) / ERROR_HALF_LIFE_NANOS);
+        }
+
+
+        /**
+         * @param outcome 1 for a failure, 0 for a success
+         */
+        private void recordOutcome(long now, double outcome) {
+
+            double decayed = errorRateAt(now);
+            errorRate = decayed + ERROR_WEIGHT * (outcome - decayed);
+            errorUpdateNanos = now;
+        }
+
+
+        public String getBaseUrl() {
+
+            return url.toString();
+        }
+
+
+        public State getState() {
+
+            lock.lock();
+            try {
+                return state;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * @return The number of requests currently sent to the node
+         */
+        public int getInFlight() {
+
+            lock.lock();
+            try {
+                return inFlightKeys.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * @return The exponentially weighted average latency of the successful requests, in nanoseconds, or 0 if
+         * none succeeded yet
+         */
+        public long getLatencyNanos() {
+
+            lock.lock();
+            try {
+                return (long) latencyNanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * @return The exponentially weighted share of recent requests which failed, decaying over time, between 0
+         * and 1
+         */
+        public double getErrorRate() {
+
+            lock.lock();
+            try {
+                return errorRateAt(System.nanoTime());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        public long getRequestCount() {
+
+            lock.lock();
+            try {
+                return requestCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        public long getFailureCount() {
+
+            lock.lock();
+            try {
+                return failureCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A request sent to a node.
+     */
+    private static final class Lease {
+
+        private final Node node;
+        private final boolean trial;
+
+
+        Lease(Node node, boolean trial) {
+
+            this.node = node;
+            this.trial = trial;
+        }
+    }
+}
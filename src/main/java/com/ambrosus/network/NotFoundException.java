@@ -0,0 +1,30 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+/**
+ * Thrown by the blocking methods of the SDK when the requested object does not exist, the API answering with a 404
+ * status code.
+ */
+public class NotFoundException extends ApiException {
+
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * @param message   The description of the failure
+     * @param errorBody The body of the response, or null if there is none
+     */
+    public NotFoundException(String message, String errorBody) {
+
+        super(404, message, errorBody);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import com.ambrosus.utils.Consumer;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Iterator over every result of a query, walking the pages of the REST API lazily.
+ * <p>
+ * The first page is requested when the iterator is created. Whenever a page is received, the next one is requested
+ * in the background while the current one is consumed, so at most two pages are held in memory regardless of the
+ * total number of results. {@link #hasNext()} blocks until the page it needs has arrived.
+ * <p>
+ * Iteration stops at the first page holding fewer results than the page size, or once the total result count
+ * reported by the API has been reached. If a page cannot be retrieved, {@link #hasNext()} throws an
+ * {@link IllegalStateException} holding the cause, and so does every later call, so that a failed iteration cannot
+ * be mistaken for a complete one. Close the iterator to cancel the prefetch when results are no longer needed.
+ *
+ * @param <T> The type of the results
+ */
+public final class QueryIterator<T> implements Iterator<T>, Closeable {
+
+    public static final String PAGE_PARAM = "page";
+    public static final String PER_PAGE_PARAM = "perPage";
+    public static final int DEFAULT_PER_PAGE = 100;
+
+    private final PageRequest<T> pageRequest;
+    private final Consumer<? super QueryResponse<T>> pageConsumer;
+    private final Map<String, String> params;
+    private final int perPage;
+    private int nextPage;
+    private int skippedResults;
+    private List<T> currentPage;
+    private int position;
+    private PageFetch pendingFetch;
+    private boolean closed;
+
+
+    /**
+     * @param pageRequest Issues the call retrieving a page for a set of query parameters
+     * @param params      The query parameters. The {@value #PAGE_PARAM} parameter sets the first page to retrieve
+     *                    and the {@value #PER_PAGE_PARAM} parameter the page size, which defaults to
+     *                    {@value #DEFAULT_PER_PAGE}.
+     */
+    public QueryIterator(PageRequest<T> pageRequest, Map<String, String> params) {
+
+        this(pageRequest, params, null);
+    }
+
+
+    /**
+     * @param pageRequest  Issues the call retrieving a page for a set of query parameters
+     * @param params       The query parameters, see {@link #QueryIterator(PageRequest, Map)}
+     * @param pageConsumer Receives every page retrieved successfully, on the thread delivering the response, or null
+     */
+    public QueryIterator(PageRequest<T> pageRequest, Map<String, String> params,
+                         Consumer<? super QueryResponse<T>> pageConsumer) {
+
+        this.pageRequest = pageRequest;
+        this.pageConsumer = pageConsumer;
+        this.params = new HashMap<>(params);
+        this.perPage = params.containsKey(PER_PAGE_PARAM) ? Integer.parseInt(params.get(PER_PAGE_PARAM)) :
+                DEFAULT_PER_PAGE;
+        this.nextPage = params.containsKey(PAGE_PARAM) ? Integer.parseInt(params.get(PAGE_PARAM)) : 0;
+        this.skippedResults = nextPage * perPage;
+        this.currentPage = Collections.emptyList();
+        this.position = 0;
+        this.closed = false;
+
+        this.params.put(PER_PAGE_PARAM, String.valueOf(perPage));
+        this.pendingFetch = fetch();
+    }
+
+
+    /**
+     * @throws IllegalStateException if the page holding the next result could not be retrieved, or if a page could
+     *                               not be retrieved earlier
+     */
+    @Override
+    public boolean hasNext() {
+
+        while (position >= currentPage.size()) {
+
+            if (pendingFetch == null || closed)
+                return false;
+
+            QueryResponse<T> response = pendingFetch.await();
+            List<T> results = response.getResults() != null ? response.getResults() : Collections.<T>emptyList();
+
+            currentPage = results;
+            position = 0;
+            skippedResults += results.size();
+
+            boolean lastPage = results.size() < perPage
+                    || (response.getResultCount() > 0 && skippedResults >= response.getResultCount());
+            pendingFetch = lastPage ? null : fetch();
+        }
+
+        return true;
+    }
+
+
+    @Override
+    public T next() {
+
+        if (!hasNext())
+            throw new NoSuchElementException("The query has no more results.");
+
+        return currentPage.get(position++);
+    }
+
+
+    /**
+     * Stops the iteration and cancels the retrieval of the next page.
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+        currentPage = Collections.emptyList();
+
+        if (pendingFetch != null) {
+            pendingFetch.call.cancel();
+            pendingFetch = null;
+        }
+    }
+
+
+    private PageFetch fetch() {
+
+        params.put(PAGE_PARAM, String.valueOf(nextPage++));
+
+        PageFetch fetch = new PageFetch(pageRequest.call(new HashMap<>(params)));
+        fetch.call.enqueue(fetch);
+        return fetch;
+    }
+
+
+    /**
+     * Issues the call retrieving one page of results.
+     *
+     * @param <T> The type of the results
+     */
+    public interface PageRequest<T> {
+
+        Call<? extends QueryResponse<T>> call(Map<String, String> params);
+    }
+
+    private final class PageFetch implements Callback<QueryResponse<T>> {
+
+        private final Call<QueryResponse<T>> call;
+        private final CountDownLatch done;
+        private volatile QueryResponse<T> response;
+        private volatile String errorMessage;
+        private volatile Throwable error;
+        private IllegalStateException failure;
+
+
+        @SuppressWarnings("unchecked")
+        PageFetch(Call<? extends QueryResponse<T>> call) {
+
+            this.call = (Call<QueryResponse<T>>) call;
+            this.done = new CountDownLatch(1);
+        }
+
+
+        @Override
+        public void onResponse(Call<QueryResponse<T>> call, Response<QueryResponse<T>> response) {
+
+            if (response.isSuccessful() && response.body() != null) {
+                if (pageConsumer != null)
+                    pageConsumer.accept(response.body());
+
+                this.response = response.body();
+            } else
+                this.errorMessage = "Query page request failed with HTTP code " + response.code() + ".";
+
+            done.countDown();
+        }
+
+
+        @Override
+        public void onFailure(Call<QueryResponse<T>> call, Throwable throwable) {
+
+            this.errorMessage = "Query page request failed.";
+            this.error = throwable;
+            done.countDown();
+        }
+
+
+        QueryResponse<T> await() {
+
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a query page.", e);
+            }
+
+            // The failed fetch stays pending, so that every later call reports the same failure
+            if (errorMessage != null) {
+                if (failure == null)
+                    failure = new IllegalStateException(errorMessage, error);
+
+                throw failure;
+            }
+
+            return response;
+        }
+    }
+}
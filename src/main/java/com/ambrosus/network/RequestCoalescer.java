@@ -0,0 +1,406 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Call adapter factory deduplicating concurrent identical reads: while a GET request is in flight, enqueuing another
+ * call with the same URL, query parameters and Authorization header does not send a new request, and its callback
+ * receives the response of the pending one.
+ * <p>
+ * The callbacks of every coalesced call receive the same response body, which must therefore not be modified. Error
+ * bodies are buffered so that each callback can read its own copy. Cancelling a coalesced call delivers a failure to
+ * its callback; the shared request itself is only cancelled once every call waiting for it is. Synchronous executions
+ * are not coalesced.
+ */
+public final class RequestCoalescer extends CallAdapter.Factory {
+
+    private final ReentrantLock lock;
+    private final Map<String, Flight<?>> flights;
+    private final AtomicLong requestCount;
+    private final AtomicLong coalescedCount;
+
+
+    public RequestCoalescer() {
+
+        this.lock = new ReentrantLock();
+        this.flights = new HashMap<>();
+        this.requestCount = new AtomicLong();
+        this.coalescedCount = new AtomicLong();
+    }
+
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+
+        if (getRawType(returnType) != Call.class || !isGet(annotations))
+            return null;
+
+        return new CoalescingCallAdapter<>(retrofit.nextCallAdapter(this, returnType, annotations));
+    }
+
+
+    /**
+     * @return The number of requests sent for enqueued calls
+     */
+    public long getRequestCount() {
+
+        return requestCount.get();
+    }
+
+
+    /**
+     * @return The number of enqueued calls which joined a pending request instead of sending their own
+     */
+    public long getCoalescedCount() {
+
+        return coalescedCount.get();
+    }
+
+
+    /**
+     * @return The number of distinct requests currently in flight
+     */
+    public int pendingCount() {
+
+        lock.lock();
+        try {
+            return flights.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private <T> void join(String key, CoalescedCall<T> call, Callback<T> callback) {
+
+        Flight<T> flight;
+        boolean leader = false;
+
+        lock.lock();
+        try {
+            @SuppressWarnings("unchecked")
+            Flight<T> pending = (Flight<T>) flights.get(key);
+
+            // The key holds the response type, so that calls of the same flight share their type
+            if (pending == null) {
+                pending = new Flight<>(key, call.delegate);
+                flights.put(key, pending);
+                leader = true;
+            }
+
+            flight = pending;
+            flight.waiters.add(new Waiter<>(call, callback));
+            call.flight = flight;
+        } finally {
+            lock.unlock();
+        }
+
+        if (!leader) {
+            coalescedCount.incrementAndGet();
+            return;
+        }
+
+        requestCount.incrementAndGet();
+
+        try {
+            flight.call.enqueue(flight);
+        } catch (RuntimeException e) {
+            flight.onFailure(flight.call, e);
+        }
+    }
+
+
+    private <T> List<Waiter<T>> land(Flight<T> flight) {
+
+        lock.lock();
+        try {
+            removeFlight(flight);
+            flight.landed = true;
+            return flight.waiters;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void cancel(CoalescedCall<?> call) {
+
+        Flight<?> flight;
+        boolean cancelRequest = false;
+
+        lock.lock();
+        try {
+            flight = call.flight;
+
+            if (flight != null && !flight.landed) {
+                cancelRequest = true;
+
+                for (Waiter<?> waiter : flight.waiters)
+                    cancelRequest &= waiter.call.canceled;
+
+                // Calls enqueued from now on send a new request
+                if (cancelRequest)
+                    removeFlight(flight);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (flight == null)
+            call.delegate.cancel();
+        else if (cancelRequest)
+            flight.call.cancel();
+    }
+
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void removeFlight(Flight<?> flight) {
+
+        // A cancelled flight may already have been replaced by a new one
+        if (flights.get(flight.key) == flight)
+            flights.remove(flight.key);
+    }
+
+
+    /**
+     * Two requests are identical if they have the same method, URL, Authorization header and response type. Query
+     * parameters are compared regardless of their order, since they are often built from hash maps.
+     */
+    static String keyOf(Request request, Type responseType) {
+
+        HttpUrl url = request.url();
+        List<String> parameters = new ArrayList<>();
+
+        for (int i = 0; i < url.querySize(); i++)
+            parameters.add(url.queryParameterName(i) + '=' + url.queryParameterValue(i));
+
+        Collections.sort(parameters);
+
+        return request.method() + ' ' + url.newBuilder().query(null).build() + ' ' + parameters + ' ' +
+                request.header("Authorization") + ' ' + responseType;
+    }
+
+
+    private static boolean isGet(Annotation[] annotations) {
+
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof GET)
+                return true;
+        }
+
+        return false;
+    }
+
+
+    private final class CoalescingCallAdapter<R> implements CallAdapter<R, Call<R>> {
+
+        private final CallAdapter<R, ?> delegate;
+
+
+        CoalescingCallAdapter(CallAdapter<R, ?> delegate) {
+
+            this.delegate = delegate;
+        }
+
+
+        @Override
+        public Type responseType() {
+
+            return delegate.responseType();
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Call<R> adapt(Call<R> call) {
+
+            // The next factory handles the same Call return type, and thus returns a call
+            return new CoalescedCall<>((Call<R>) delegate.adapt(call), delegate.responseType());
+        }
+    }
+
+    private final class CoalescedCall<T> implements Call<T> {
+
+        private final Call<T> delegate;
+        private final Type responseType;
+        private final AtomicBoolean executed;
+        private volatile boolean canceled;
+        // Guarded by the lock of the coalescer
+        private Flight<T> flight;
+
+
+        CoalescedCall(Call<T> delegate, Type responseType) {
+
+            this.delegate = delegate;
+            this.responseType = responseType;
+            this.executed = new AtomicBoolean(false);
+        }
+
+
+        @Override
+        public Response<T> execute() throws IOException {
+
+            return delegate.execute();
+        }
+
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+
+            if (!executed.compareAndSet(false, true))
+                throw new IllegalStateException("Already executed.");
+
+            String key;
+
+            try {
+                key = keyOf(delegate.request(), responseType);
+            } catch (RuntimeException e) {
+                // The call cannot be built, let it report the failure to the callback
+                delegate.enqueue(callback);
+                return;
+            }
+
+            join(key, this, callback);
+        }
+
+
+        @Override
+        public boolean isExecuted() {
+
+            return executed.get() || delegate.isExecuted();
+        }
+
+
+        @Override
+        public void cancel() {
+
+            canceled = true;
+            RequestCoalescer.this.cancel(this);
+        }
+
+
+        @Override
+        public boolean isCanceled() {
+
+            return canceled;
+        }
+
+
+        @Override
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        public Call<T> clone() {
+
+            return new CoalescedCall<>(delegate.clone(), responseType);
+        }
+
+
+        @Override
+        public Request request() {
+
+            return delegate.request();
+        }
+    }
+
+    private static final class Waiter<T> {
+
+        private final CoalescedCall<T> call;
+        private final Callback<T> callback;
+
+
+        Waiter(CoalescedCall<T> call, Callback<T> callback) {
+
+            this.call = call;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * A request in flight and the calls waiting for its response.
+     */
+    private final class Flight<T> implements Callback<T> {
+
+        private final String key;
+        private final Call<T> call;
+        private final List<Waiter<T>> waiters;
+        private boolean landed;
+
+
+        Flight(String key, Call<T> call) {
+
+            this.key = key;
+            this.call = call;
+            this.waiters = new ArrayList<>();
+        }
+
+
+        @Override
+        public void onResponse(Call<T> call, Response<T> response) {
+
+            List<Waiter<T>> landedWaiters = land(this);
+            byte[] errorBytes = null;
+
+            if (!response.isSuccessful() && response.errorBody() != null && landedWaiters.size() > 1) {
+                try {
+                    errorBytes = response.errorBody().bytes();
+                } catch (IOException e) {
+                    // The error body can only be read once, so no waiter could be given the response
+                    for (Waiter<T> waiter : landedWaiters)
+                        waiter.callback.onFailure(waiter.call, e);
+
+                    return;
+                }
+            }
+
+            for (Waiter<T> waiter : landedWaiters) {
+                if (waiter.call.canceled) {
+                    waiter.callback.onFailure(waiter.call, new IOException("Canceled"));
+                } else if (errorBytes != null) {
+                    ResponseBody errorBody = ResponseBody.create(response.errorBody().contentType(), errorBytes);
+                    waiter.callback.onResponse(waiter.call, Response.<T>error(errorBody, response.raw()));
+                } else {
+                    waiter.callback.onResponse(waiter.call, response);
+                }
+            }
+        }
+
+
+        @Override
+        public void onFailure(Call<T> call, Throwable throwable) {
+
+            for (Waiter<T> waiter : land(this))
+                waiter.callback.onFailure(waiter.call, throwable);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import com.ambrosus.instrumentation.LatencyHistogram;
+import com.ambrosus.instrumentation.Operation;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Call adapter factory hedging slow reads: when an enqueued GET request has not been answered after a percentile of
+ * the latencies of its operation, the same request is sent again, which a {@link NodePool} sends to another node. The
+ * first successful answer is delivered and the other request is cancelled; failures are only delivered once both
+ * requests failed.
+ * <p>
+ * Hedges are taken from a budget which grows with the number of reads, as configured by the {@link NodePolicy}, so
+ * that a slow API never receives twice the load. Synchronous executions are not hedged.
+ */
+public final class RequestHedger extends CallAdapter.Factory {
+
+    private static final int TOKEN_SCALE = 1000;
+    private static final int MIN_SAMPLES = 20;
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AmbrosusSDK-hedging");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final NodePolicy policy;
+    private final ConcurrentMap<String, LatencyHistogram> latencies;
+    private final AtomicLong budgetTokens;
+    private final long maxBudgetTokens;
+    private final long tokensPerRead;
+    private final AtomicLong hedgeCount;
+    private final AtomicLong hedgeWinCount;
+
+
+    /**
+     * @param policy The hedging settings
+     */
+    public RequestHedger(NodePolicy policy) {
+
+        this.policy = policy;
+        this.latencies = new ConcurrentHashMap<>();
+        this.maxBudgetTokens = (long) policy.getMinHedges() * TOKEN_SCALE;
+        this.tokensPerRead = Math.round(policy.getHedgeRatio() * TOKEN_SCALE);
+        this.budgetTokens = new AtomicLong(maxBudgetTokens);
+        this.hedgeCount = new AtomicLong();
+        this.hedgeWinCount = new AtomicLong();
+    }
+
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+
+        if (getRawType(returnType) != Call.class || !isGet(annotations))
+            return null;
+
+        return new HedgingCallAdapter<>(retrofit.nextCallAdapter(this, returnType, annotations),
+                operationOf(annotations));
+    }
+
+
+    public NodePolicy getPolicy() {
+
+        return policy;
+    }
+
+
+    /**
+     * @return The number of reads sent a second time
+     */
+    public long getHedgeCount() {
+
+        return hedgeCount.get();
+    }
+
+
+    /**
+     * @return The number of reads answered by their hedge rather than by their first request
+     */
+    public long getHedgeWinCount() {
+
+        return hedgeWinCount.get();
+    }
+
+
+    /**
+     * @param operation The name of the operation, for instance "getAsset"
+     * @return The delay after which the reads of the operation are currently hedged, in milliseconds
+     */
+    public long getHedgeDelayMillis(String operation) {
+
+        LatencyHistogram histogram = latencies.get(operation);
+
+        if (histogram == null || histogram.getCount() < MIN_SAMPLES)
+            return policy.getInitialHedgeDelayMillis();
+
+        return Math.max(policy.getMinHedgeDelayMillis(),
+                TimeUnit.NANOSECONDS.toMillis(histogram.getValueAtPercentile(policy.getHedgePercentile())));
+    }
+
+
+    private void recordLatency(String operation, long nanos) {
+
+        LatencyHistogram histogram = latencies.get(operation);
+
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(operation, created);
+
+            if (histogram == null)
+                histogram = created;
+        }
+
+        histogram.record(nanos);
+    }
+
+
+    private void depositRead() {
+
+        for (long tokens = budgetTokens.get(); tokens < maxBudgetTokens; tokens = budgetTokens.get()) {
+            if (budgetTokens.compareAndSet(tokens, Math.min(maxBudgetTokens, tokens + tokensPerRead)))
+                return;
+        }
+    }
+
+
+    private boolean withdrawHedge() {
+
+        for (long tokens = budgetTokens.get(); tokens >= TOKEN_SCALE; tokens = budgetTokens.get()) {
+            if (budgetTokens.compareAndSet(tokens, tokens - TOKEN_SCALE))
+                return true;
+        }
+
+        return false;
+    }
+
+
+    private static boolean isGet(Annotation[] annotations) {
+
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof GET)
+                return true;
+        }
+
+        return false;
+    }
+
+
+    private static String operationOf(Annotation[] annotations) {
+
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Operation)
+                return ((Operation) annotation).value();
+        }
+
+        return "";
+    }
+
+
+    private final class HedgingCallAdapter<R> implements CallAdapter<R, Call<R>> {
+
+        private final CallAdapter<R, ?> delegate;
+        private final String operation;
+
+
+        HedgingCallAdapter(CallAdapter<R, ?> delegate, String operation) {
+
+            this.delegate = delegate;
+            this.operation = operation;
+        }
+
+
+        @Override
+        public Type responseType() {
+
+            return delegate.responseType();
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Call<R> adapt(Call<R> call) {
+
+            // The next factory handles the same Call return type, and thus returns a call
+            return new HedgedCall<>((Call<R>) delegate.adapt(call), operation);
+        }
+    }
+
+    private final class HedgedCall<T> implements Call<T> {
+
+        private final Call<T> primary;
+        private final String operation;
+        private final ReentrantLock lock;
+        private volatile Call<T> hedge;
+        private volatile ScheduledFuture<?> scheduledHedge;
+        private volatile boolean canceled;
+        private Callback<T> callback;
+        private long startNanos;
+        private int outstanding;
+        private boolean done;
+        private Response<T> failedResponse;
+
+
+        HedgedCall(Call<T> primary, String operation) {
+
+            this.primary = primary;
+            this.operation = operation;
+            this.lock = new ReentrantLock();
+        }
+
+
+        @Override
+        public Response<T> execute() throws IOException {
+
+            return primary.execute();
+        }
+
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+
+            lock.lock();
+            try {
+                this.callback = callback;
+                this.startNanos = System.nanoTime();
+                this.outstanding = 1;
+            } finally {
+                lock.unlock();
+            }
+
+            depositRead();
+            primary.enqueue(new AttemptCallback(false));
+
+            scheduledHedge = SCHEDULER.schedule(this::sendHedge, getHedgeDelayMillis(operation),
+                    TimeUnit.MILLISECONDS);
+        }
+
+
+        private void sendHedge() {
+
+            lock.lock();
+            try {
+                if (done || canceled || !withdrawHedge())
+                    return;
+
+                outstanding++;
+            } finally {
+                lock.unlock();
+            }
+
+            hedgeCount.incrementAndGet();
+
+            Call<T> call = primary.clone();
+            hedge = call;
+            call.enqueue(new AttemptCallback(true));
+
+            if (canceled)
+                call.cancel();
+        }
+
+
+        /**
+         * Delivers the outcome of a request if it is the first success, or the last failure.
+         */
+        private void complete(boolean fromHedge, Response<T> response, Throwable throwable) {
+
+            boolean failed = response == null || response.code() >= 500;
+            Response<T> discarded = null;
+            boolean deliver = false;
+
+            lock.lock();
+            try {
+                outstanding--;
+
+                if (done) {
+                    discarded = response;
+                } else if (failed && outstanding > 0) {
+                    // The other request may still succeed, so the failure is kept until it is known
+                    if (response != null) {
+                        discarded = failedResponse;
+                        failedResponse = response;
+                    }
+                } else {
+                    done = true;
+                    deliver = true;
+
+                    if (response == null && failedResponse != null) {
+                        response = failedResponse;
+                    } else {
+                        discarded = failedResponse;
+                    }
+
+                    failedResponse = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (discarded != null && discarded.errorBody() != null)
+                discarded.errorBody().close();
+
+            if (!deliver)
+                return;
+
+            ScheduledFuture<?> scheduled = scheduledHedge;
+            if (scheduled != null)
+                scheduled.cancel(false);
+
+            Call<T> other = fromHedge ? primary : hedge;
+            if (other != null)
+                other.cancel();
+
+            if (!failed) {
+                recordLatency(operation, System.nanoTime() - startNanos);
+
+                if (fromHedge)
+                    hedgeWinCount.incrementAndGet();
+            }
+
+            if (response != null)
+                callback.onResponse(this, response);
+            else
+                callback.onFailure(this, throwable);
+        }
+
+
+        @Override
+        public boolean isExecuted() {
+
+            return primary.isExecuted();
+        }
+
+
+        @Override
+        public void cancel() {
+
+            canceled = true;
+
+            ScheduledFuture<?> scheduled = scheduledHedge;
+            if (scheduled != null)
+                scheduled.cancel(false);
+
+            primary.cancel();
+
+            Call<T> call = hedge;
+            if (call != null)
+                call.cancel();
+        }
+
+
+        @Override
+        public boolean isCanceled() {
+
+            // The request losing the race is cancelled, which does not cancel this call
+            return canceled;
+        }
+
+
+        @Override
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        public Call<T> clone() {
+
+            return new HedgedCall<>(primary.clone(), operation);
+        }
+
+
+        @Override
+        public Request request() {
+
+            return primary.request();
+        }
+
+
+        /**
+         * Receives the outcome of the first request or of its hedge.
+         */
+        private final class AttemptCallback implements Callback<T> {
+
+            private final boolean fromHedge;
+
+
+            AttemptCallback(boolean fromHedge) {
+
+                this.fromHedge = fromHedge;
+            }
+
+
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+
+                complete(fromHedge, response, null);
+            }
+
+
+            @Override
+            public void onFailure(Call<T> call, Throwable throwable) {
+
+                complete(fromHedge, null, throwable);
+            }
+        }
+    }
+}
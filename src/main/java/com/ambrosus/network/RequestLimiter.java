@@ -0,0 +1,714 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import com.ambrosus.instrumentation.Operation;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Call adapter factory holding requests back so that they respect a {@link LimitPolicy}:
+ * <ul>
+ * <li>each operation, such as "getAsset" or "findEvents", has its own token bucket bounding its request rate;</li>
+ * <li>the number of requests in flight is bounded by a limit adapting to the API: it grows slowly while requests
+ * succeed, and shrinks quickly when the API answers 429 (Too Many Requests) or 503 (Service Unavailable), when
+ * requests fail, or when they exceed the latency threshold;</li>
+ * <li>waiting requests are sent by priority class, so that {@link RequestPriority#INTERACTIVE} requests overtake
+ * queued {@link RequestPriority#BULK} ones, which only use a share of the concurrency limit.</li>
+ * </ul>
+ * Requests waiting for a token are woken up by a single daemon thread, so that no HTTP client thread is blocked;
+ * synchronous executions wait on the calling thread. Cancelling a waiting call removes it from the queue and delivers
+ * a failure. The rates and limits can be changed while requests are made.
+ */
+public final class RequestLimiter extends CallAdapter.Factory {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AmbrosusSDK-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LimitPolicy policy;
+    private final ReentrantLock lock;
+    private final Map<RequestPriority, ArrayDeque<Pending>> queues;
+    private final Map<String, TokenBucket> buckets;
+    private final Map<String, LimitPolicy.Rate> rates;
+    private final AtomicLong throttledCount;
+    private final AtomicLong overloadCount;
+    private LimitPolicy.Rate defaultRate;
+    private int minLimit;
+    private int maxLimit;
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpNanos;
+
+
+    /**
+     * @param policy The initial rates, concurrency limits and priorities
+     */
+    public RequestLimiter(LimitPolicy policy) {
+
+        this.policy = policy;
+        this.lock = new ReentrantLock();
+        this.queues = new EnumMap<>(RequestPriority.class);
+        this.buckets = new HashMap<>();
+        this.rates = new HashMap<>(policy.getRates());
+        this.throttledCount = new AtomicLong();
+        this.overloadCount = new AtomicLong();
+        this.defaultRate = policy.getDefaultRate();
+        this.minLimit = policy.getMinLimit();
+        this.maxLimit = policy.getMaxLimit();
+        this.limit = policy.getInitialLimit();
+        this.lastDecreaseNanos = System.nanoTime();
+
+        for (RequestPriority priority : RequestPriority.values())
+            queues.put(priority, new ArrayDeque<>());
+    }
+
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+
+        if (getRawType(returnType) != Call.class)
+            return null;
+
+        String operation = operationOf(annotations);
+
+        return new LimitingCallAdapter<>(retrofit.nextCallAdapter(this, returnType, annotations), operation,
+                policy.getPriority(operation));
+    }
+
+
+    public LimitPolicy getPolicy() {
+
+        return policy;
+    }
+
+
+    /**
+     * Changes the rate of an operation. Requests already waiting for a token are sent according to the new rate.
+     *
+     * @param operation The name of the operation, for instance "findEvents"
+     * @param rate      The new rate, or {@link LimitPolicy.Rate#UNLIMITED}
+     */
+    public void setRate(String operation, LimitPolicy.Rate rate) {
+
+        if (operation == null || rate == null)
+            throw new IllegalArgumentException("The operation and rate must not be null.");
+
+        lock.lock();
+        try {
+            rates.put(operation, rate);
+
+            TokenBucket bucket = buckets.get(operation);
+            if (bucket != null)
+                bucket.setRate(rate, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch();
+    }
+
+
+    /**
+     * Changes the rate of the operations without a rate of their own.
+     *
+     * @param rate The new rate, or {@link LimitPolicy.Rate#UNLIMITED}
+     */
+    public void setDefaultRate(LimitPolicy.Rate rate) {
+
+        if (rate == null)
+            throw new IllegalArgumentException("The rate must not be null.");
+
+        lock.lock();
+        try {
+            defaultRate = rate;
+            long now = System.nanoTime();
+
+            for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+                if (!rates.containsKey(entry.getKey()))
+                    entry.getValue().setRate(rate, now);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch();
+    }
+
+
+    /**
+     * Changes the bounds of the concurrency limit, which is brought within them if needed.
+     *
+     * @param minLimit The lowest limit, at least 1
+     * @param maxLimit The highest limit
+     */
+    public void setConcurrency(int minLimit, int maxLimit) {
+
+        if (minLimit < 1 || maxLimit < minLimit)
+            throw new IllegalArgumentException("The concurrency limits must be positive and increasing.");
+
+        lock.lock();
+        try {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.limit = Math.max(minLimit, Math.min(maxLimit, limit));
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch();
+    }
+
+
+    /**
+     * @return The current number of requests which may be in flight at the same time
+     */
+    public int getLimit() {
+
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The number of requests currently in flight
+     */
+    public int getInFlight() {
+
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @param priority The priority class
+     * @return The number of requests of this class currently waiting to be sent
+     */
+    public int getQueueLength(RequestPriority priority) {
+
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @param operation The name of the operation
+     * @return The number of requests the operation can currently send at once, or infinity if its rate is unlimited
+     */
+    public double getAvailableTokens(String operation) {
+
+        lock.lock();
+        try {
+            return bucket(operation).available(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The number of requests which had to wait for a token of their operation
+     */
+    public long getThrottledCount() {
+
+        return throttledCount.get();
+    }
+
+
+    /**
+     * @return The number of requests whose outcome was taken as a sign of overload of the API
+     */
+    public long getOverloadCount() {
+
+        return overloadCount.get();
+    }
+
+
+    private void submit(Pending pending) {
+
+        lock.lock();
+        try {
+            queues.get(pending.priority).add(pending);
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch();
+    }
+
+
+    /**
+     * @return True if the request was still waiting, and has been removed from its queue
+     */
+    private boolean withdraw(Pending pending) {
+
+        lock.lock();
+        try {
+            return queues.get(pending.priority).remove(pending);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Starts the waiting requests which are allowed to, from the highest priority class to the lowest, and schedules
+     * a wake-up for the ones waiting for a token.
+     */
+    private void dispatch() {
+
+        List<Pending> ready = new ArrayList<>();
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long nextTokenNanos = Long.MAX_VALUE;
+
+            if (wakeUp != null && wakeUpNanos - now <= 0)
+                wakeUp = null;
+
+            for (RequestPriority priority : RequestPriority.values()) {
+                int capacity = priority == RequestPriority.BULK ?
+                        Math.max(1, (int) (limit * policy.getBulkShare())) : (int) limit;
+                Iterator<Pending> iterator = queues.get(priority).iterator();
+
+                while (inFlight < capacity && iterator.hasNext()) {
+                    Pending pending = iterator.next();
+                    long wait = bucket(pending.operation).tryAcquire(now);
+
+                    // Other operations of the same class are not held back by an empty bucket
+                    if (wait > 0) {
+                        if (!pending.throttled) {
+                            pending.throttled = true;
+                            throttledCount.incrementAndGet();
+                        }
+
+                        nextTokenNanos = Math.min(nextTokenNanos, wait);
+                        continue;
+                    }
+
+                    iterator.remove();
+                    inFlight++;
+                    pending.dispatched = true;
+                    ready.add(pending);
+                }
+            }
+
+            if (nextTokenNanos != Long.MAX_VALUE && (wakeUp == null || now + nextTokenNanos - wakeUpNanos < 0)) {
+                if (wakeUp != null)
+                    wakeUp.cancel(false);
+
+                wakeUpNanos = now + nextTokenNanos;
+                wakeUp = SCHEDULER.schedule(this::dispatch, nextTokenNanos, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Started outside of the lock, as starting a request may call back into the limiter
+        for (Pending pending : ready)
+            pending.start.run();
+    }
+
+
+    /**
+     * Frees the slot of a finished request and adapts the concurrency limit to its outcome.
+     *
+     * @param startNanos The time at which the request was started
+     * @param overloaded True if the outcome is a sign of overload, false if it is a success, null if it says
+     *                   nothing about the API, for instance when the request was canceled
+     */
+    private void release(long startNanos, Boolean overloaded) {
+
+        long now = System.nanoTime();
+        long threshold = policy.getLatencyThresholdNanos();
+
+        if (Boolean.FALSE.equals(overloaded) && threshold > 0 && now - startNanos > threshold)
+            overloaded = true;
+
+        lock.lock();
+        try {
+            if (Boolean.TRUE.equals(overloaded)) {
+                overloadCount.incrementAndGet();
+
+                // Requests sent before the last decrease already saw the previous limit, so a burst of failures
+                // only decreases it once
+                if (startNanos - lastDecreaseNanos >= 0) {
+                    limit = Math.max(minLimit, limit * policy.getBackoffRatio());
+                    lastDecreaseNanos = now;
+                }
+            } else if (Boolean.FALSE.equals(overloaded) && inFlight >= limit / 2) {
+                // Only grows while the limit is actually used, by one for every limit's worth of successes
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch();
+    }
+
+
+    private TokenBucket bucket(String operation) {
+
+        TokenBucket bucket = buckets.get(operation);
+
+        if (bucket == null) {
+            LimitPolicy.Rate rate = rates.get(operation);
+            bucket = new TokenBucket(rate != null ? rate : defaultRate, System.nanoTime());
+            buckets.put(operation, bucket);
+        }
+
+        return bucket;
+    }
+
+
+    private static boolean isOverloaded(Response<?> response) {
+
+        return response.code() == 429 || response.code() == 503;
+    }
+
+
+    /**
+     * @return The name given by the {@link Operation} annotation of a service method, or an empty name shared by
+     * the methods without one
+     */
+    private static String operationOf(Annotation[] annotations) {
+
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Operation)
+                return ((Operation) annotation).value();
+        }
+
+        return "";
+    }
+
+
+    /**
+     * A request waiting for a slot and a token.
+     */
+    private static final class Pending {
+
+        private final String operation;
+        private final RequestPriority priority;
+        private final Runnable start;
+        private boolean throttled;
+        private volatile boolean dispatched;
+
+
+        Pending(String operation, RequestPriority priority, Runnable start) {
+
+            this.operation = operation;
+            this.priority = priority;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Token bucket of an operation, guarded by the lock of the limiter.
+     */
+    private static final class TokenBucket {
+
+        private LimitPolicy.Rate rate;
+        private double tokens;
+        private long refilledNanos;
+
+
+        TokenBucket(LimitPolicy.Rate rate, long now) {
+
+            this.rate = rate;
+            this.tokens = rate.isUnlimited() ? 0 : rate.getBurst();
+            this.refilledNanos = now;
+        }
+
+
+        void setRate(LimitPolicy.Rate rate, long now) {
+
+            refill(now);
+
+            this.tokens = this.rate.isUnlimited() ? rate.getBurst() : Math.min(tokens, rate.getBurst());
+            this.rate = rate;
+        }
+
+
+        double available(long now) {
+
+            if (rate.isUnlimited())
+                return Double.POSITIVE_INFINITY;
+
+            refill(now);
+            return tokens;
+        }
+
+
+        /**
+         * @return 0 if a token was taken, or the time in nanoseconds until one is available
+         */
+        long tryAcquire(long now) {
+
+            if (rate.isUnlimited())
+                return 0;
+
+            refill(now);
+
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+
+            return Math.max(1, (long) Math.ceil((1 - tokens) * TimeUnit.SECONDS.toNanos(1) /
+                    rate.getPermitsPerSecond()));
+        }
+
+
+        private void refill(long now) {
+
+            // The bucket may have been created after the time of the dispatch using it
+            if (now - refilledNanos <= 0)
+                return;
+
+            if (!rate.isUnlimited()) {
+                double earned = (now - refilledNanos) * rate.getPermitsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+                tokens = Math.min(rate.getBurst(), tokens + earned);
+            }
+
+            refilledNanos = now;
+        }
+    }
+
+    private final class LimitingCallAdapter<R> implements CallAdapter<R, Call<R>> {
+
+        private final CallAdapter<R, ?> delegate;
+        private final String operation;
+        private final RequestPriority priority;
+
+
+        LimitingCallAdapter(CallAdapter<R, ?> delegate, String operation, RequestPriority priority) {
+
+            this.delegate = delegate;
+            this.operation = operation;
+            this.priority = priority;
+        }
+
+
+        @Override
+        public Type responseType() {
+
+            return delegate.responseType();
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Call<R> adapt(Call<R> call) {
+
+            // The next factory handles the same Call return type, and thus returns a call
+            return new LimitedCall<>((Call<R>) delegate.adapt(call), operation, priority);
+        }
+    }
+
+    private final class LimitedCall<T> implements Call<T> {
+
+        private final Call<T> delegate;
+        private final String operation;
+        private final RequestPriority priority;
+        private final AtomicBoolean executed;
+        private volatile Pending pending;
+        private volatile Runnable onCancel;
+        private volatile boolean canceled;
+
+
+        LimitedCall(Call<T> delegate, String operation, RequestPriority priority) {
+
+            this.delegate = delegate;
+            this.operation = operation;
+            this.priority = priority;
+            this.executed = new AtomicBoolean();
+        }
+
+
+        @Override
+        public Response<T> execute() throws IOException {
+
+            if (!executed.compareAndSet(false, true))
+                throw new IllegalStateException("Already executed.");
+
+            if (canceled)
+                throw new IOException("Canceled");
+
+            CountDownLatch started = new CountDownLatch(1);
+            Pending waiting = new Pending(operation, priority, started::countDown);
+            onCancel = started::countDown;
+            pending = waiting;
+            submit(waiting);
+
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                // Already started requests hold a slot, which is given back
+                if (!withdraw(waiting))
+                    release(System.nanoTime(), null);
+
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the request limiter.");
+            }
+
+            if (!waiting.dispatched)
+                throw new IOException("Canceled");
+
+            long startNanos = System.nanoTime();
+            Boolean overloaded = null;
+
+            try {
+                Response<T> response = delegate.execute();
+                overloaded = isOverloaded(response);
+                return response;
+            } catch (IOException e) {
+                overloaded = delegate.isCanceled() ? null : Boolean.TRUE;
+                throw e;
+            } finally {
+                release(startNanos, overloaded);
+            }
+        }
+
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+
+            if (!executed.compareAndSet(false, true))
+                throw new IllegalStateException("Already executed.");
+
+            if (canceled) {
+                callback.onFailure(this, new IOException("Canceled"));
+                return;
+            }
+
+            Pending waiting = new Pending(operation, priority, () -> start(callback));
+            onCancel = () -> callback.onFailure(LimitedCall.this, new IOException("Canceled"));
+            pending = waiting;
+            submit(waiting);
+        }
+
+
+        private void start(Callback<T> callback) {
+
+            long startNanos = System.nanoTime();
+
+            try {
+                delegate.enqueue(new Callback<T>() {
+
+                    @Override
+                    public void onResponse(Call<T> call, Response<T> response) {
+
+                        release(startNanos, isOverloaded(response));
+                        callback.onResponse(LimitedCall.this, response);
+                    }
+
+
+                    @Override
+                    public void onFailure(Call<T> call, Throwable throwable) {
+
+                        release(startNanos, call.isCanceled() || !(throwable instanceof IOException) ? null :
+                                Boolean.TRUE);
+                        callback.onFailure(LimitedCall.this, throwable);
+                    }
+                });
+            } catch (RuntimeException e) {
+                release(startNanos, null);
+                callback.onFailure(this, e);
+            }
+        }
+
+
+        @Override
+        public boolean isExecuted() {
+
+            return executed.get();
+        }
+
+
+        @Override
+        public void cancel() {
+
+            canceled = true;
+
+            Pending waiting = pending;
+            if (waiting != null && withdraw(waiting))
+                onCancel.run();
+
+            delegate.cancel();
+        }
+
+
+        @Override
+        public boolean isCanceled() {
+
+            return canceled || delegate.isCanceled();
+        }
+
+
+        @Override
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        public Call<T> clone() {
+
+            return new LimitedCall<>(delegate.clone(), operation, priority);
+        }
+
+
+        @Override
+        public Request request() {
+
+            return delegate.request();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+/**
+ * Priority classes of the requests queued by a {@link RequestLimiter}, from the most to the least urgent.
+ */
+public enum RequestPriority {
+
+    /**
+     * Requests a user is waiting for, such as fetching a single asset or creating an event. They are sent before any
+     * queued bulk request and may use the whole concurrency limit.
+     */
+    INTERACTIVE,
+
+    /**
+     * Scans and other background requests. They are only sent when no interactive request is waiting, and only use a
+     * share of the concurrency limit, so that interactive requests can always be sent without waiting for them.
+     */
+    BULK
+}
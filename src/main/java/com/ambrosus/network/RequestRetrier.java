@@ -0,0 +1,431 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Call adapter factory sending failed requests again according to a {@link RetryPolicy}.
+ * <p>
+ * Reads are retried after network failures and after 429 (Too Many Requests), 500, 502, 503 and 504 responses. Other
+ * requests, such as the signed writes creating assets and events, are only retried when the API could not have
+ * processed them: after a connection failure, or a 429 or 503 (Service Unavailable) response. Each retry waits for an
+ * exponential backoff with random jitter, or for the delay given by the Retry-After header of the response if it is
+ * longer. Retries are scheduled on a single daemon thread, so that no HTTP client thread is blocked while waiting;
+ * synchronous executions wait on the calling thread.
+ * <p>
+ * Every retry is taken from a budget shared by all calls, which grows with the number of requests, so that retries
+ * cannot multiply the load of an API which is already overloaded. Once the budget is exhausted, failures are
+ * delivered without retry.
+ */
+public final class RequestRetrier extends CallAdapter.Factory {
+
+    private static final int TOKEN_SCALE = 1000;
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AmbrosusSDK-retries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final RetryPolicy policy;
+    private final AtomicLong budgetTokens;
+    private final long maxBudgetTokens;
+    private final long tokensPerRequest;
+    private final AtomicLong retryCount;
+    private final AtomicLong budgetExhaustedCount;
+
+
+    /**
+     * @param policy The retry settings
+     */
+    public RequestRetrier(RetryPolicy policy) {
+
+        this.policy = policy;
+        this.maxBudgetTokens = (long) policy.getMinRetries() * TOKEN_SCALE;
+        this.tokensPerRequest = Math.round(policy.getRetryRatio() * TOKEN_SCALE);
+        this.budgetTokens = new AtomicLong(maxBudgetTokens);
+        this.retryCount = new AtomicLong();
+        this.budgetExhaustedCount = new AtomicLong();
+    }
+
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+
+        if (getRawType(returnType) != Call.class || policy.getMaxAttempts() == 1)
+            return null;
+
+        return new RetryingCallAdapter<>(retrofit.nextCallAdapter(this, returnType, annotations));
+    }
+
+
+    public RetryPolicy getPolicy() {
+
+        return policy;
+    }
+
+
+    /**
+     * @return The number of requests sent again
+     */
+    public long getRetryCount() {
+
+        return retryCount.get();
+    }
+
+
+    /**
+     * @return The number of failures delivered without retry because the retry budget was exhausted
+     */
+    public long getBudgetExhaustedCount() {
+
+        return budgetExhaustedCount.get();
+    }
+
+
+    /**
+     * @return The number of retries currently available in the budget
+     */
+    public double getAvailableRetries() {
+
+        return (double) budgetTokens.get() / TOKEN_SCALE;
+    }
+
+
+    private void depositRequest() {
+
+        for (long tokens = budgetTokens.get(); tokens < maxBudgetTokens; tokens = budgetTokens.get()) {
+            if (budgetTokens.compareAndSet(tokens, Math.min(maxBudgetTokens, tokens + tokensPerRequest)))
+                return;
+        }
+    }
+
+
+    private boolean withdrawRetry() {
+
+        for (long tokens = budgetTokens.get(); tokens >= TOKEN_SCALE; tokens = budgetTokens.get()) {
+            if (budgetTokens.compareAndSet(tokens, tokens - TOKEN_SCALE)) {
+                retryCount.incrementAndGet();
+                return true;
+            }
+        }
+
+        budgetExhaustedCount.incrementAndGet();
+        return false;
+    }
+
+
+    /**
+     * @param attempt The number of attempts made so far, at least 1
+     * @return The delay before the next attempt in milliseconds, or -1 if the response must not be retried
+     */
+    private long retryDelay(Request request, Response<?> response, int attempt) {
+
+        int code = response.code();
+        boolean read = isRead(request);
+
+        boolean overloaded = code == 429 || code == 503;
+        boolean serverError = code == 500 || code == 502 || code == 504;
+
+        if (!(overloaded || (read && serverError)) || (!read && !policy.isWriteRetriesEnabled()))
+            return -1;
+
+        long retryAfter = retryAfterMillis(response.headers().get("Retry-After"));
+
+        if (retryAfter > policy.getMaxRetryAfterMillis())
+            return -1;
+
+        return Math.max(retryAfter, backoffMillis(attempt));
+    }
+
+
+    /**
+     * @return The delay before the next attempt in milliseconds, or -1 if the failure must not be retried
+     */
+    private long retryDelay(Request request, Throwable throwable, int attempt) {
+
+        if (!(throwable instanceof IOException))
+            return -1;
+
+        // Writes may have reached the API unless the connection could not even be established
+        boolean notSent = throwable instanceof ConnectException || throwable instanceof UnknownHostException;
+
+        if (!isRead(request) && !(policy.isWriteRetriesEnabled() && notSent))
+            return -1;
+
+        return backoffMillis(attempt);
+    }
+
+
+    private long backoffMillis(int attempt) {
+
+        double bound = Math.min(policy.getMaxBackoffMillis(),
+                policy.getInitialBackoffMillis() * Math.pow(policy.getBackoffMultiplier(), attempt - 1));
+
+        return (long) (ThreadLocalRandom.current().nextDouble() * bound);
+    }
+
+
+    private static boolean isRead(Request request) {
+
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+
+    /**
+     * @return The delay requested by a Retry-After header, given in seconds or as an HTTP date, or 0 if it is absent
+     * or invalid
+     */
+    static long retryAfterMillis(String retryAfter) {
+
+        if (retryAfter == null)
+            return 0;
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, try an HTTP date
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        try {
+            Date date = format.parse(retryAfter.trim());
+            return Math.max(0, date.getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+
+    private final class RetryingCallAdapter<R> implements CallAdapter<R, Call<R>> {
+
+        private final CallAdapter<R, ?> delegate;
+
+
+        RetryingCallAdapter(CallAdapter<R, ?> delegate) {
+
+            this.delegate = delegate;
+        }
+
+
+        @Override
+        public Type responseType() {
+
+            return delegate.responseType();
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Call<R> adapt(Call<R> call) {
+
+            // The next factory handles the same Call return type, and thus returns a call
+            return new RetryingCall<>((Call<R>) delegate.adapt(call));
+        }
+    }
+
+    private final class RetryingCall<T> implements Call<T> {
+
+        private final Call<T> original;
+        private volatile Call<T> current;
+        private volatile ScheduledFuture<?> scheduledRetry;
+        private volatile Callback<T> callback;
+        private volatile boolean canceled;
+
+
+        RetryingCall(Call<T> original) {
+
+            this.original = original;
+            this.current = original;
+        }
+
+
+        @Override
+        public Response<T> execute() throws IOException {
+
+            depositRequest();
+
+            for (int attempt = 1; ; attempt++) {
+                long delay;
+
+                try {
+                    Response<T> response = current.execute();
+                    delay = attempt < policy.getMaxAttempts() ? retryDelay(current.request(), response, attempt) :
+                            -1;
+
+                    if (delay < 0 || canceled || !withdrawRetry())
+                        return response;
+
+                    closeErrorBody(response);
+                } catch (IOException e) {
+                    delay = attempt < policy.getMaxAttempts() ? retryDelay(current.request(), e, attempt) : -1;
+
+                    if (delay < 0 || canceled || !withdrawRetry())
+                        throw e;
+                }
+
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry.");
+                }
+
+                current = current.clone();
+            }
+        }
+
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+
+            this.callback = callback;
+            depositRequest();
+            current.enqueue(new AttemptCallback(callback, 1));
+        }
+
+
+        @Override
+        public boolean isExecuted() {
+
+            return original.isExecuted();
+        }
+
+
+        @Override
+        public void cancel() {
+
+            canceled = true;
+
+            ScheduledFuture<?> retry = scheduledRetry;
+
+            // A retry cancelled before it ran will never report, so the cancellation is delivered here
+            if (retry != null && retry.cancel(false))
+                callback.onFailure(this, new IOException("Canceled"));
+
+            current.cancel();
+        }
+
+
+        @Override
+        public boolean isCanceled() {
+
+            return canceled || current.isCanceled();
+        }
+
+
+        @Override
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        public Call<T> clone() {
+
+            return new RetryingCall<>(original.clone());
+        }
+
+
+        @Override
+        public Request request() {
+
+            return original.request();
+        }
+
+
+        private void closeErrorBody(Response<T> response) {
+
+            if (response.errorBody() != null)
+                response.errorBody().close();
+        }
+
+
+        private void retry(long delay, Callback<T> callback, int attempt) {
+
+            scheduledRetry = SCHEDULER.schedule(() -> {
+                if (canceled) {
+                    callback.onFailure(RetryingCall.this, new IOException("Canceled"));
+                    return;
+                }
+
+                current = current.clone();
+                current.enqueue(new AttemptCallback(callback, attempt + 1));
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+
+        /**
+         * Receives the outcome of one attempt, and either delivers it or schedules the next attempt.
+         */
+        private final class AttemptCallback implements Callback<T> {
+
+            private final Callback<T> callback;
+            private final int attempt;
+
+
+            AttemptCallback(Callback<T> callback, int attempt) {
+
+                this.callback = callback;
+                this.attempt = attempt;
+            }
+
+
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+
+                long delay = attempt < policy.getMaxAttempts() ? retryDelay(call.request(), response, attempt) : -1;
+
+                if (delay < 0 || canceled || !withdrawRetry()) {
+                    callback.onResponse(RetryingCall.this, response);
+                    return;
+                }
+
+                closeErrorBody(response);
+                retry(delay, callback, attempt);
+            }
+
+
+            @Override
+            public void onFailure(Call<T> call, Throwable throwable) {
+
+                long delay = attempt < policy.getMaxAttempts() ? retryDelay(call.request(), throwable, attempt) : -1;
+
+                if (delay < 0 || canceled || call.isCanceled() || !withdrawRetry()) {
+                    callback.onFailure(RetryingCall.this, throwable);
+                    return;
+                }
+
+                retry(delay, callback, attempt);
+            }
+        }
+    }
+}
@@ -0,0 +1,492 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process cache of immutable API objects, such as assets and events, keyed by their identifier.
+ * <p>
+ * Entries are evicted in least recently used order once the cache holds more entries or more weight than allowed,
+ * and expire after an optional time to live. When a missing entry is requested several times while it is being
+ * retrieved, a single request is sent and its response is delivered to every caller. Only successful responses with a
+ * body are cached.
+ *
+ * @param <V> The type of the cached objects
+ */
+public final class ResponseCache<V> {
+
+    private final Config config;
+    private final Weigher<? super V> weigher;
+    private final ReentrantLock lock;
+    private final LinkedHashMap<String, Entry<V>> entries;
+    private final Map<String, List<Waiter<V>>> pendingLoads;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong loadCount;
+    private final AtomicLong evictionCount;
+    private long totalWeight;
+
+
+    /**
+     * @param config  The limits of the cache
+     * @param weigher Computes the weight of the cached objects, counted against the maximum weight of the cache
+     */
+    public ResponseCache(Config config, Weigher<? super V> weigher) {
+
+        this.config = config;
+        this.weigher = weigher;
+        this.lock = new ReentrantLock();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.pendingLoads = new HashMap<>();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.loadCount = new AtomicLong();
+        this.evictionCount = new AtomicLong();
+        this.totalWeight = 0;
+    }
+
+
+    /**
+     * @param key The identifier of the object
+     * @return The cached object or null if it is absent or expired
+     */
+    public V getIfPresent(String key) {
+
+        V value = lookup(key);
+        (value != null ? hitCount : missCount).incrementAndGet();
+        return value;
+    }
+
+
+    /**
+     * Adds an object to the cache, evicting the least recently used entries if the cache is full.
+     *
+     * @param key   The identifier of the object
+     * @param value The object to cache
+     */
+    public void put(String key, V value) {
+
+        long weight = weigher.weigh(value);
+        long expiresAt = config.timeToLiveMillis > 0 ? System.currentTimeMillis() + config.timeToLiveMillis :
+                Long.MAX_VALUE;
+
+        lock.lock();
+        try {
+            Entry<V> previous = entries.put(key, new Entry<>(value, weight, expiresAt));
+
+            if (previous != null)
+                totalWeight -= previous.weight;
+
+            totalWeight += weight;
+            evictIfNeeded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Delivers the cached object to the callback if present, otherwise enqueues the call and caches its result. If the
+     * object is already being retrieved, the call is not executed and the callback receives the response of the
+     * pending request. Such a call is never executed, so cancelling it does not abort the pending request; the callback
+     * then receives a failure once the pending request completes.
+     *
+     * @param key      The identifier of the object
+     * @param call     The call retrieving the object. It is passed to the callback but not executed when the object
+     *                 is served from the cache.
+     * @param callback The callback receiving the response
+     */
+    public void load(String key, Call<V> call, Callback<V> callback) {
+
+        V cached;
+        boolean leader = false;
+
+        lock.lock();
+        try {
+            cached = lookup(key);
+
+            if (cached == null) {
+                List<Waiter<V>> waiters = pendingLoads.get(key);
+
+                if (waiters == null) {
+                    waiters = new ArrayList<>();
+                    pendingLoads.put(key, waiters);
+                    leader = true;
+                }
+
+                waiters.add(new Waiter<>(call, callback));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            callback.onResponse(call, Response.success(cached));
+            return;
+        }
+
+        missCount.incrementAndGet();
+
+        if (leader) {
+            loadCount.incrementAndGet();
+
+            try {
+                call.enqueue(new LoadCallback(key));
+            } catch (RuntimeException e) {
+                for (Waiter<V> waiter : removeWaiters(key))
+                    waiter.callback.onFailure(waiter.call, e);
+            }
+        }
+    }
+
+
+    public void invalidate(String key) {
+
+        lock.lock();
+        try {
+            Entry<V> removed = entries.remove(key);
+
+            if (removed != null)
+                totalWeight -= removed.weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public void invalidateAll() {
+
+        lock.lock();
+        try {
+            entries.clear();
+            totalWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The number of entries currently cached, including expired entries not evicted yet
+     */
+    public int size() {
+
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The total weight of the entries currently cached
+     */
+    public long weight() {
+
+        lock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The number of lookups served from the cache
+     */
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+
+    /**
+     * @return The number of lookups which did not find the object in the cache
+     */
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+
+    /**
+     * @return The number of requests sent to retrieve missing objects. Lower than the number of misses when
+     * concurrent lookups of the same object were deduplicated.
+     */
+    public long getLoadCount() {
+
+        return loadCount.get();
+    }
+
+
+    /**
+     * @return The number of entries evicted because the cache was full or the entry expired
+     */
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+
+    private V lookup(String key) {
+
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+
+            if (entry == null)
+                return null;
+
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                totalWeight -= entry.weight;
+                evictionCount.incrementAndGet();
+                return null;
+            }
+
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void evictIfNeeded() {
+
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+
+        while ((entries.size() > config.maxEntries || totalWeight > config.maxWeight) && eldest.hasNext()) {
+            totalWeight -= eldest.next().weight;
+            eldest.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+
+    private List<Waiter<V>> removeWaiters(String key) {
+
+        lock.lock();
+        try {
+            return pendingLoads.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Computes the weight of a cached object.
+     *
+     * @param <V> The type of the cached objects
+     */
+    public interface Weigher<V> {
+
+        long weigh(V value);
+    }
+
+    /**
+     * Limits of a {@link ResponseCache}.
+     */
+    public static final class Config {
+
+        private final int maxEntries;
+        private final long maxWeight;
+        private final long timeToLiveMillis;
+
+
+        private Config(Builder builder) {
+
+            this.maxEntries = builder.maxEntries;
+            this.maxWeight = builder.maxWeight;
+            this.timeToLiveMillis = builder.timeToLiveMillis;
+        }
+
+
+        public int getMaxEntries() {
+
+            return maxEntries;
+        }
+
+
+        public long getMaxWeight() {
+
+            return maxWeight;
+        }
+
+
+        public long getTimeToLiveMillis() {
+
+            return timeToLiveMillis;
+        }
+
+
+        /**
+         * Builder class for cache configurations. Defaults to 10 000 entries, no weight limit and no expiration.
+         */
+        public static class Builder {
+
+            private int maxEntries = 10_000;
+            private long maxWeight = Long.MAX_VALUE;
+            private long timeToLiveMillis = 0;
+
+
+            /**
+             * @param maxEntries Maximum number of objects held by the cache
+             */
+            public Builder setMaxEntries(int maxEntries) {
+
+                if (maxEntries <= 0)
+                    throw new IllegalArgumentException("The maximum number of entries of a cache must be positive.");
+
+                this.maxEntries = maxEntries;
+                return this;
+            }
+
+
+            /**
+             * @param maxWeight Maximum total weight of the objects held by the cache
+             */
+            public Builder setMaxWeight(long maxWeight) {
+
+                if (maxWeight <= 0)
+                    throw new IllegalArgumentException("The maximum weight of a cache must be positive.");
+
+                this.maxWeight = maxWeight;
+                return this;
+            }
+
+
+            /**
+             * @param timeToLive Duration after which a cached object expires, 0 to never expire
+             * @param unit       The unit of the timeToLive argument
+             */
+            public Builder setTimeToLive(long timeToLive, TimeUnit unit) {
+
+                if (timeToLive < 0)
+                    throw new IllegalArgumentException("The time to live of a cache must not be negative.");
+
+                this.timeToLiveMillis = unit.toMillis(timeToLive);
+                return this;
+            }
+
+
+            public Config build() {
+
+                return new Config(this);
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long weight;
+        private final long expiresAt;
+
+
+        Entry(V value, long weight, long expiresAt) {
+
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Waiter<V> {
+
+        private final Call<V> call;
+        private final Callback<V> callback;
+
+
+        Waiter(Call<V> call, Callback<V> callback) {
+
+            this.call = call;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Caches the response of a load and delivers it to every caller waiting for it.
+     */
+    private final class LoadCallback implements Callback<V> {
+
+        private final String key;
+
+
+        LoadCallback(String key) {
+
+            this.key = key;
+        }
+
+
+        @Override
+        public void onResponse(Call<V> call, Response<V> response) {
+
+            if (response.isSuccessful() && response.body() != null)
+                put(key, response.body());
+
+            List<Waiter<V>> waiters = removeWaiters(key);
+            byte[] errorBytes = null;
+
+            if (!response.isSuccessful() && response.errorBody() != null && waiters.size() > 1) {
+                try {
+                    errorBytes = response.errorBody().bytes();
+                } catch (IOException e) {
+                    // The error body can only be read once, so no waiter could be given the response
+                    for (Waiter<V> waiter : waiters)
+                        waiter.callback.onFailure(waiter.call, e);
+                    return;
+                }
+            }
+
+            for (Waiter<V> waiter : waiters) {
+                if (waiter.call.isCanceled()) {
+                    waiter.callback.onFailure(waiter.call, new IOException("Canceled"));
+                } else if (errorBytes != null) {
+                    ResponseBody errorBody = ResponseBody.create(response.errorBody().contentType(), errorBytes);
+                    waiter.callback.onResponse(waiter.call, Response.<V>error(errorBody, response.raw()));
+                } else {
+                    waiter.callback.onResponse(waiter.call, response);
+                }
+            }
+        }
+
+
+        @Override
+        public void onFailure(Call<V> call, Throwable throwable) {
+
+            for (Waiter<V> waiter : removeWaiters(key))
+                waiter.callback.onFailure(waiter.call, throwable);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.network;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of a {@link RequestRetrier}: how many times and how soon failed requests are sent again, and which share of
+ * the traffic retries may take.
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double backoffMultiplier;
+    private final long maxRetryAfterMillis;
+    private final double retryRatio;
+    private final int minRetries;
+    private final boolean writeRetriesEnabled;
+
+
+    private RetryPolicy(Builder builder) {
+
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.backoffMultiplier = builder.backoffMultiplier;
+        this.maxRetryAfterMillis = builder.maxRetryAfterMillis;
+        this.retryRatio = builder.retryRatio;
+        this.minRetries = builder.minRetries;
+        this.writeRetriesEnabled = builder.writeRetriesEnabled;
+    }
+
+
+    public int getMaxAttempts() {
+
+        return maxAttempts;
+    }
+
+
+    public long getInitialBackoffMillis() {
+
+        return initialBackoffMillis;
+    }
+
+
+    public long getMaxBackoffMillis() {
+
+        return maxBackoffMillis;
+    }
+
+
+    public double getBackoffMultiplier() {
+
+        return backoffMultiplier;
+    }
+
+
+    public long getMaxRetryAfterMillis() {
+
+        return maxRetryAfterMillis;
+    }
+
+
+    public double getRetryRatio() {
+
+        return retryRatio;
+    }
+
+
+    public int getMinRetries() {
+
+        return minRetries;
+    }
+
+
+    public boolean isWriteRetriesEnabled() {
+
+        return writeRetriesEnabled;
+    }
+
+
+    /**
+     * Builder class for retry policies. Defaults to 3 attempts, a backoff starting at 100 ms and doubling up to 10
+     * seconds, Retry-After delays of up to 30 seconds, and retries limited to 10% of the requests plus 10.
+     */
+    public static class Builder {
+
+        private int maxAttempts = 3;
+        private long initialBackoffMillis = 100;
+        private long maxBackoffMillis = TimeUnit.SECONDS.toMillis(10);
+        private double backoffMultiplier = 2;
+        private long maxRetryAfterMillis = TimeUnit.SECONDS.toMillis(30);
+        private double retryRatio = 0.1;
+        private int minRetries = 10;
+        private boolean writeRetriesEnabled = true;
+
+
+        /**
+         * @param maxAttempts Maximum number of times a request is sent, including the first one. 1 disables retries.
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+
+            if (maxAttempts <= 0)
+                throw new IllegalArgumentException("The maximum number of attempts must be positive.");
+
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+
+        /**
+         * The delay before the n-th retry is drawn uniformly between 0 and {@code min(maxBackoff, initialBackoff *
+         * multiplier^(n - 1))}, so that clients failing together do not retry together.
+         *
+         * @param initialBackoff The upper bound of the delay before the first retry
+         * @param maxBackoff     The upper bound of the delay before any retry
+         * @param multiplier     The growth of the upper bound from one retry to the next, at least 1
+         * @param unit           The unit of the initialBackoff and maxBackoff arguments
+         */
+        public Builder setBackoff(long initialBackoff, long maxBackoff, double multiplier, TimeUnit unit) {
+
+            if (initialBackoff < 0 || maxBackoff < initialBackoff)
+                throw new IllegalArgumentException("The backoff bounds must not be negative nor decreasing.");
+
+            if (!(multiplier >= 1))
+                throw new IllegalArgumentException("The backoff multiplier must be at least 1.");
+
+            this.initialBackoffMillis = unit.toMillis(initialBackoff);
+            this.maxBackoffMillis = unit.toMillis(maxBackoff);
+            this.backoffMultiplier = multiplier;
+            return this;
+        }
+
+
+        /**
+         * @param maxRetryAfter The longest Retry-After delay honoured. Responses asking for a longer delay are not
+         *                      retried and are delivered as is.
+         * @param unit          The unit of the maxRetryAfter argument
+         */
+        public Builder setMaxRetryAfter(long maxRetryAfter, TimeUnit unit) {
+
+            if (maxRetryAfter < 0)
+                throw new IllegalArgumentException("The maximum Retry-After delay must not be negative.");
+
+            this.maxRetryAfterMillis = unit.toMillis(maxRetryAfter);
+            return this;
+        }
+
+
+        /**
+         * Bounds the retries of all requests together: every request sent for the first time earns
+         * {@code retryRatio} retry, and every retry spends one. Up to {@code minRetries} retries can be saved, which
+         * are also available from the start.
+         *
+         * @param retryRatio The share of the requests which may be retried, between 0 and 1
+         * @param minRetries The number of retries allowed whatever the traffic
+         */
+        public Builder setRetryBudget(double retryRatio, int minRetries) {
+
+            if (!(retryRatio >= 0 && retryRatio <= 1))
+                throw new IllegalArgumentException("The retry ratio must be between 0 and 1.");
+
+            if (minRetries < 0)
+                throw new IllegalArgumentException("The minimum number of retries must not be negative.");
+
+            this.retryRatio = retryRatio;
+            this.minRetries = minRetries;
+            return this;
+        }
+
+
+        /**
+         * @param writeRetriesEnabled False to never retry requests other than reads. When enabled, writes are only
+         *                            retried when the API could not have processed them: when the connection
+         *                            failed, or when the API answered 429 (Too Many Requests) or 503 (Service
+         *                            Unavailable).
+         */
+        public Builder setWriteRetriesEnabled(boolean writeRetriesEnabled) {
+
+            this.writeRetriesEnabled = writeRetriesEnabled;
+            return this;
+        }
+
+
+        public RetryPolicy build() {
+
+            return new RetryPolicy(this);
+        }
+    }
+}
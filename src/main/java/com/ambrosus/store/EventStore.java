@@ -0,0 +1,492 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.store;
+
+import com.ambrosus.model.Asset;
+import com.ambrosus.model.Event;
+import com.ambrosus.utils.Optional;
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local persistent store of assets and events, so that their history does not have to be downloaded again after a
+ * restart.
+ * <p>
+ * Objects are appended to a log split in segment files of bounded size, and read back through memory mappings of
+ * these files. An in-memory index, rebuilt from the record headers when the store is opened, locates the asset and
+ * the events of each asset ordered by timestamp. Since assets and events are immutable, an object already stored is
+ * never written again. A record left incomplete by a crash is discarded when the store is opened.
+ * <p>
+ * The store can be shared between threads. It is meant to be used with
+ * {@link com.ambrosus.AmbrosusSDK#syncAssetWithEvents}, which only retrieves the events added since the newest stored
+ * one.
+ */
+public final class EventStore implements Closeable {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final File directory;
+    private final Gson gson;
+    private final long segmentSize;
+    private final List<LogSegment> segments;
+    private final Map<String, AssetIndex> assets;
+    private final Set<String> eventIds;
+    private final ReentrantReadWriteLock lock;
+    private boolean closed;
+
+
+    private EventStore(File directory, Gson gson, long segmentSize) {
+
+        this.directory = directory;
+        this.gson = gson;
+        this.segmentSize = segmentSize;
+        this.segments = new ArrayList<>();
+        this.assets = new HashMap<>();
+        this.eventIds = new HashSet<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.closed = false;
+    }
+
+
+    /**
+     * Opens the store located in a directory, creating it if needed, with segments of
+     * {@value #DEFAULT_SEGMENT_SIZE} bytes.
+     *
+     * @see #open(File, Gson, long)
+     */
+    public static EventStore open(File directory, Gson gson) throws IOException {
+
+        return open(directory, gson, DEFAULT_SEGMENT_SIZE);
+    }
+
+
+    /**
+     * Opens the store located in a directory, creating it if needed.
+     *
+     * @param directory   The directory holding the segment files
+     * @param gson        A Gson instance with the adapters of the model types registered, such as the one of an
+     *                    initialized SDK
+     * @param segmentSize The size above which a new segment file is started
+     * @return The opened store
+     * @throws IOException              if the directory cannot be created or a segment cannot be read
+     * @throws IllegalArgumentException if the segment size is not positive
+     */
+    public static EventStore open(File directory, Gson gson, long segmentSize) throws IOException {
+
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The segment size must be positive and fit in an int.");
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create the store directory " + directory + ".");
+
+        EventStore store = new EventStore(directory, gson, segmentSize);
+
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+
+        return store;
+    }
+
+
+    /**
+     * Stores an asset, unless an asset with the same ID is already stored.
+     *
+     * @return True if the asset was stored
+     * @throws IOException if the asset could not be written
+     */
+    public boolean putAsset(Asset asset) throws IOException {
+
+        lock.writeLock().lock();
+        try {
+            throwIfClosed();
+
+            if (asset.getAssetId() == null)
+                throw new IllegalArgumentException("An asset without ID cannot be stored.");
+
+            AssetIndex index = assetIndex(asset.getAssetId());
+
+            if (index.asset != null)
+                return false;
+
+            index.asset = append(LogSegment.ASSET, timestampOf(asset.getTimestamp()), asset.getAssetId(),
+                    asset.getAssetId(), gson.toJson(asset, Asset.class));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Stores events, skipping those already stored.
+     *
+     * @return The number of events stored
+     * @throws IOException if an event could not be written
+     */
+    public int putEvents(Collection<Event> events) throws IOException {
+
+        lock.writeLock().lock();
+        try {
+            throwIfClosed();
+
+            // Sorting first keeps the insertions in the index at the end of the timestamp arrays
+            List<Event> sortedEvents = new ArrayList<>(events);
+            Collections.sort(sortedEvents, (first, second) ->
+                    Long.compare(timestampOf(first.getTimestamp()), timestampOf(second.getTimestamp())));
+
+            int stored = 0;
+
+            for (Event event : sortedEvents) {
+                if (event.getEventId() == null || event.getAssetId() == null)
+                    throw new IllegalArgumentException("An event without event ID or asset ID cannot be stored.");
+
+                if (eventIds.contains(event.getEventId()))
+                    continue;
+
+                long timestamp = timestampOf(event.getTimestamp());
+                RecordRef ref = append(LogSegment.EVENT, timestamp, event.getEventId(), event.getAssetId(),
+                        gson.toJson(event, Event.class));
+
+                eventIds.add(event.getEventId());
+                assetIndex(event.getAssetId()).addEvent(timestamp, ref);
+                stored++;
+            }
+
+            return stored;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return The stored asset with the given ID, if any
+     * @throws IOException if the asset could not be read
+     */
+    public Optional<Asset> getAsset(String assetId) throws IOException {
+
+        lock.readLock().lock();
+        try {
+            throwIfClosed();
+
+            AssetIndex index = assets.get(assetId);
+
+            if (index == null || index.asset == null)
+                return Optional.empty();
+
+            return Optional.of(gson.fromJson(read(index.asset), Asset.class));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return Every stored event of an asset, from the oldest to the newest
+     * @throws IOException if an event could not be read
+     */
+    public List<Event> getEvents(String assetId) throws IOException {
+
+        return getEvents(assetId, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+
+    /**
+     * @param assetId       The identifier of the asset
+     * @param fromTimestamp The inclusive lower bound of the event timestamps
+     * @param toTimestamp   The inclusive upper bound of the event timestamps
+     * @return The stored events of an asset within the time range, from the oldest to the newest
+     * @throws IOException if an event could not be read
+     */
+    public List<Event> getEvents(String assetId, long fromTimestamp, long toTimestamp) throws IOException {
+
+        lock.readLock().lock();
+        try {
+            throwIfClosed();
+
+            AssetIndex index = assets.get(assetId);
+            List<Event> events = new ArrayList<>();
+
+            if (index == null)
+                return events;
+
+            for (int i = index.firstIndexFrom(fromTimestamp); i < index.eventCount; i++) {
+                if (index.timestamps[i] > toTimestamp)
+                    break;
+
+                events.add(gson.fromJson(read(index.events[i]), Event.class));
+            }
+
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return The timestamp of the newest stored event of an asset, or null if none is stored
+     */
+    public Long getLatestTimestamp(String assetId) {
+
+        lock.readLock().lock();
+        try {
+            AssetIndex index = assets.get(assetId);
+            return index == null || index.eventCount == 0 ? null : index.timestamps[index.eventCount - 1];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return True if an event with the given ID is stored
+     */
+    public boolean containsEvent(String eventId) {
+
+        lock.readLock().lock();
+        try {
+            return eventIds.contains(eventId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return The number of stored events
+     */
+    public int eventCount() {
+
+        lock.readLock().lock();
+        try {
+            return eventIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Forces the records written so far to the storage device.
+     *
+     * @throws IOException if the segment could not be synchronized
+     */
+    public void flush() throws IOException {
+
+        lock.writeLock().lock();
+        try {
+            throwIfClosed();
+
+            if (!segments.isEmpty())
+                segments.get(segments.size() - 1).force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException {
+
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                return;
+
+            closed = true;
+
+            IOException failure = null;
+
+            for (LogSegment segment : segments) {
+                try {
+                    segment.force();
+                    segment.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+
+            if (failure != null)
+                throw failure;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    private void load() throws IOException {
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+
+        if (files == null)
+            throw new IOException("Cannot list the segments of " + directory + ".");
+
+        Arrays.sort(files);
+
+        for (File file : files) {
+            LogSegment segment = new LogSegment(file);
+            int segmentIndex = segments.size();
+            segments.add(segment);
+
+            long validSize = segment.scan((type, timestamp, key, assetId, offset) -> {
+                RecordRef ref = new RecordRef(segmentIndex, offset);
+
+                if (type == LogSegment.ASSET) {
+                    assetIndex(assetId).asset = ref;
+                } else if (type == LogSegment.EVENT && eventIds.add(key)) {
+                    assetIndex(assetId).addEvent(timestamp, ref);
+                }
+            });
+
+            if (validSize < segment.size()) {
+                if (segmentIndex < files.length - 1)
+                    throw new IOException("The segment " + file + " is corrupted.");
+
+                // Only the last segment can hold a record whose write was interrupted
+                segment.truncate(validSize);
+            }
+        }
+    }
+
+
+    private RecordRef append(byte type, long timestamp, String key, String assetId, String json) throws IOException {
+
+        LogSegment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+
+        if (segment == null || (segment.size() > 0 && segment.size() >= segmentSize)) {
+            if (segment != null)
+                segment.force();
+
+            segment = new LogSegment(new File(directory,
+                    String.format(Locale.ROOT, "%010d%s", segments.size(), SEGMENT_SUFFIX)));
+            segments.add(segment);
+        }
+
+        long offset = segment.append(type, timestamp, key, assetId, json.getBytes(StandardCharsets.UTF_8));
+        return new RecordRef(segments.size() - 1, offset);
+    }
+
+
+    private String read(RecordRef ref) throws IOException {
+
+        return segments.get(ref.segment).readJson(ref.offset);
+    }
+
+
+    private AssetIndex assetIndex(String assetId) {
+
+        AssetIndex index = assets.get(assetId);
+
+        if (index == null) {
+            index = new AssetIndex();
+            assets.put(assetId, index);
+        }
+
+        return index;
+    }
+
+
+    private void throwIfClosed() {
+
+        if (closed)
+            throw new IllegalStateException("The event store was closed.");
+    }
+
+
+    private static long timestampOf(Long timestamp) {
+
+        return timestamp != null ? timestamp : 0;
+    }
+
+
+    private static final class RecordRef {
+
+        private final int segment;
+        private final long offset;
+
+
+        RecordRef(int segment, long offset) {
+
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Locates the asset record and the event records of one asset, the events being sorted by timestamp.
+     */
+    private static final class AssetIndex {
+
+        private RecordRef asset;
+        private long[] timestamps = new long[4];
+        private RecordRef[] events = new RecordRef[4];
+        private int eventCount;
+
+
+        void addEvent(long timestamp, RecordRef ref) {
+
+            if (eventCount == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, eventCount * 2);
+                events = Arrays.copyOf(events, eventCount * 2);
+            }
+
+            // Events mostly arrive in order, so the insertion point is usually the end of the arrays
+            int position = eventCount;
+            while (position > 0 && timestamps[position - 1] > timestamp)
+                position--;
+
+            System.arraycopy(timestamps, position, timestamps, position + 1, eventCount - position);
+            System.arraycopy(events, position, events, position + 1, eventCount - position);
+            timestamps[position] = timestamp;
+            events[position] = ref;
+            eventCount++;
+        }
+
+
+        int firstIndexFrom(long fromTimestamp) {
+
+            int low = 0;
+            int high = eventCount;
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+
+                if (timestamps[middle] < fromTimestamp)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+
+            return low;
+        }
+    }
+}
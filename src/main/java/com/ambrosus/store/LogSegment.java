@@ -0,0 +1,270 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.store;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * One file of the append-only log of an {@link EventStore}.
+ * <p>
+ * Each record is laid out as follows, all integers being big-endian:
+ * <pre>
+ * int    length of everything after the checksum
+ * int    CRC32 of everything after the checksum
+ * byte   record type
+ * long   timestamp
+ * short  length of the key, then the key in UTF-8
+ * short  length of the asset ID, then the asset ID in UTF-8
+ * bytes  JSON representation in UTF-8
+ * </pre>
+ * The header carries everything needed to index a record, so that the index can be rebuilt without parsing JSON.
+ * Records are appended through the file channel. The file is mapped read-only in chunks of fixed size, each chunk
+ * being mapped once it is complete and never remapped; records lying in the incomplete last chunk or across two
+ * chunks are read through the file channel.
+ * <p>
+ * A segment is not thread-safe by itself: appending, truncating and closing require exclusive access, while reads
+ * may run concurrently, as guaranteed by the read-write lock of the store.
+ */
+final class LogSegment implements Closeable {
+
+    static final byte EVENT = 1;
+    static final byte ASSET = 2;
+
+    private static final int CHECKSUM_OFFSET = 4;
+    private static final int BODY_OFFSET = 8;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> chunks;
+    private long size;
+
+
+    LogSegment(File file) throws IOException {
+
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = randomAccessFile.getChannel();
+        this.size = channel.size();
+        this.chunks = new ArrayList<>();
+
+        try {
+            mapCompleteChunks();
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+
+    File getFile() {
+
+        return file;
+    }
+
+
+    long size() {
+
+        return size;
+    }
+
+
+    /**
+     * Appends a record at the end of the segment.
+     *
+     * @return The offset of the record in the segment
+     */
+    long append(byte type, long timestamp, String key, String assetId, byte[] json) throws IOException {
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] assetIdBytes = assetId.getBytes(StandardCharsets.UTF_8);
+
+        if (keyBytes.length > Short.MAX_VALUE || assetIdBytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Identifiers longer than " + Short.MAX_VALUE + " bytes cannot be " +
+                    "stored.");
+
+        int bodyLength = 1 + 8 + 2 + keyBytes.length + 2 + assetIdBytes.length + json.length;
+
+        ByteBuffer record = ByteBuffer.allocate(BODY_OFFSET + bodyLength);
+        record.putInt(bodyLength);
+        record.putInt(0);
+        record.put(type);
+        record.putLong(timestamp);
+        record.putShort((short) keyBytes.length);
+        record.put(keyBytes);
+        record.putShort((short) assetIdBytes.length);
+        record.put(assetIdBytes);
+        record.put(json);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(record.array(), BODY_OFFSET, bodyLength);
+        record.putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+        record.flip();
+
+        long offset = size;
+        while (record.hasRemaining())
+            channel.write(record, offset + record.position());
+
+        size += record.limit();
+        mapCompleteChunks();
+        return offset;
+    }
+
+
+    /**
+     * @return The JSON representation held by the record at the given offset
+     */
+    String readJson(long offset) throws IOException {
+
+        ByteBuffer header = read(offset, BODY_OFFSET);
+        ByteBuffer body = read(offset + BODY_OFFSET, header.getInt(header.position()));
+        int position = body.position() + 1 + 8;
+        position += 2 + body.getShort(position);
+        position += 2 + body.getShort(position);
+
+        byte[] json = new byte[body.limit() - position];
+        body.position(position);
+        body.get(json);
+
+        return new String(json, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Reads the records of the segment in order, stopping at the first incomplete or corrupted record.
+     *
+     * @return The size of the valid part of the segment
+     */
+    long scan(RecordVisitor visitor) throws IOException {
+
+        long offset = 0;
+
+        while (offset + BODY_OFFSET <= size) {
+            ByteBuffer header = read(offset, BODY_OFFSET);
+            int bodyLength = header.getInt(header.position());
+
+            if (bodyLength <= 0 || offset + BODY_OFFSET + bodyLength > size)
+                break;
+
+            ByteBuffer buffer = read(offset + BODY_OFFSET, bodyLength);
+            byte[] body = new byte[bodyLength];
+            buffer.duplicate().get(body);
+
+            CRC32 checksum = new CRC32();
+            checksum.update(body);
+
+            if ((int) checksum.getValue() != header.getInt(header.position() + CHECKSUM_OFFSET))
+                break;
+
+            int position = buffer.position();
+            byte type = buffer.get(position);
+            long timestamp = buffer.getLong(position + 1);
+            position += 1 + 8;
+            String key = readString(buffer, position);
+            position += 2 + buffer.getShort(position);
+            String assetId = readString(buffer, position);
+
+            visitor.visit(type, timestamp, key, assetId, offset);
+            offset += BODY_OFFSET + bodyLength;
+        }
+
+        return offset;
+    }
+
+
+    /**
+     * Discards everything after the given size, such as a record whose write was interrupted.
+     */
+    void truncate(long validSize) throws IOException {
+
+        while (!chunks.isEmpty() && (long) chunks.size() * CHUNK_SIZE > validSize)
+            chunks.remove(chunks.size() - 1);
+
+        channel.truncate(validSize);
+        size = validSize;
+    }
+
+
+    void force() throws IOException {
+
+        channel.force(false);
+    }
+
+
+    @Override
+    public void close() throws IOException {
+
+        chunks.clear();
+        randomAccessFile.close();
+    }
+
+
+    /**
+     * @return A buffer whose remaining bytes are those of the given range of the segment, read from the mapped chunk
+     * holding the range if there is one
+     */
+    private ByteBuffer read(long offset, int length) throws IOException {
+
+        int chunk = (int) (offset / CHUNK_SIZE);
+        int start = (int) (offset % CHUNK_SIZE);
+
+        if (chunk < chunks.size() && start + length <= CHUNK_SIZE) {
+            ByteBuffer view = chunks.get(chunk).duplicate();
+            view.limit(start + length);
+            view.position(start);
+            return view;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+                throw new EOFException("The segment " + file + " ends in the middle of a record.");
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+
+    private void mapCompleteChunks() throws IOException {
+
+        while ((long) (chunks.size() + 1) * CHUNK_SIZE <= size)
+            chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, (long) chunks.size() * CHUNK_SIZE, CHUNK_SIZE));
+    }
+
+
+    private static String readString(ByteBuffer buffer, int position) {
+
+        byte[] bytes = new byte[buffer.getShort(position)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 2);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    interface RecordVisitor {
+
+        void visit(byte type, long timestamp, String key, String assetId, long offset);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a verification over every item of a collection on a fork-join pool. The collection is split in halves until
+ * the chunks are small enough to be verified sequentially, so that the work spreads over every worker of the pool.
+ *
+ * @param <T> The type of the verified items
+ */
+public final class BulkVerifier<T> {
+
+    // Public key recovery is expensive enough that small chunks are worth the scheduling overhead
+    private static final int SEQUENTIAL_THRESHOLD = 8;
+
+    private final Check<? super T> check;
+    private final ForkJoinPool pool;
+
+
+    /**
+     * @param check The verification applied to each item
+     * @param pool  The pool running the verifications
+     */
+    public BulkVerifier(Check<? super T> check, ForkJoinPool pool) {
+
+        this.check = check;
+        this.pool = pool;
+    }
+
+
+    /**
+     * Verifies every item of the collection.
+     *
+     * @param items              The items to verify
+     * @param stopOnFirstFailure If true, items not verified yet are skipped as soon as one item is found invalid
+     * @return The per-item results and aggregate counts
+     */
+    public VerificationReport verify(Collection<? extends T> items, boolean stopOnFirstFailure) {
+
+        List<? extends T> itemList = new ArrayList<>(items);
+        VerificationReport.Result[] results = new VerificationReport.Result[itemList.size()];
+        Arrays.fill(results, VerificationReport.Result.SKIPPED);
+
+        if (!itemList.isEmpty())
+            pool.invoke(new VerificationTask(itemList, results, 0, results.length,
+                    stopOnFirstFailure ? new AtomicBoolean(false) : null));
+
+        return new VerificationReport(results);
+    }
+
+
+    /**
+     * Verification applied to a single item. Must be safe to call from several threads at once.
+     *
+     * @param <T> The type of the verified item
+     */
+    public interface Check<T> {
+
+        boolean isValid(T item);
+    }
+
+    private final class VerificationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends T> items;
+        private final VerificationReport.Result[] results;
+        private final int from;
+        private final int to;
+        private final AtomicBoolean failed;
+
+
+        VerificationTask(List<? extends T> items, VerificationReport.Result[] results, int from, int to,
+                         AtomicBoolean failed) {
+
+            this.items = items;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.failed = failed;
+        }
+
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+
+                    if (failed != null && failed.get())
+                        return;
+
+                    boolean valid = check.isValid(items.get(i));
+                    results[i] = valid ? VerificationReport.Result.VALID : VerificationReport.Result.INVALID;
+
+                    if (!valid && failed != null)
+                        failed.set(true);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VerificationTask(items, results, from, middle, failed),
+                        new VerificationTask(items, results, middle, to, failed));
+            }
+        }
+    }
+}
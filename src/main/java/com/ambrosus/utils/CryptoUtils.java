@@ -10,9 +10,14 @@ This Source Code Form is "Incompatible With Secondary Licenses", as defined by t
 
 package com.ambrosus.utils;
 
+import com.google.gson.JsonElement;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.KeccakDigest;
 import org.web3j.crypto.*;
 import org.web3j.utils.Numeric;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -50,7 +55,7 @@ public abstract class CryptoUtils {
         System.arraycopy(s, 0, rsv, ECDSA_OUTPUT_LENGTH, ECDSA_OUTPUT_LENGTH);
         rsv[rsv.length - 1] = v;
 
-        return Numeric.toHexString(rsv);
+        return Hex.toHexString(rsv);
     }
 
 
@@ -76,7 +81,37 @@ public abstract class CryptoUtils {
      */
     public static String computeHashString(final String message) {
 
-        return Numeric.toHexString(computeHash(message));
+        return Hex.toHexString(computeHash(message));
+    }
+
+
+    /**
+     * Computes the Ethereum hash of the JSON representation of an element whose object properties are sorted by
+     * alphabetical order of the keys. The result is the same as hashing the string representation of the element
+     * after sorting it with {@link JsonUtils#arraySort} or {@link JsonUtils#recursiveSort}, but the representation
+     * is streamed into the hash function instead of being built in memory.
+     *
+     * @param json The element to be hashed.
+     * @return A string with the hexadecimal representation of the hash.
+     */
+    public static String computeHashString(final JsonElement json) {
+
+        // The preamble holds the length of the message, which requires a first pass over the element
+        CharCountingWriter counter = new CharCountingWriter();
+        writeSorted(json, counter);
+
+        KeccakDigest digest = new KeccakDigest(256);
+        byte[] preamble = (ETH_PREAMBLE + counter.count).getBytes(StandardCharsets.UTF_8);
+        digest.update(preamble, 0, preamble.length);
+
+        Utf8DigestWriter digestWriter = new Utf8DigestWriter(digest);
+        writeSorted(json, digestWriter);
+        digestWriter.flush();
+
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.doFinal(hash, 0);
+
+        return Hex.toHexString(hash);
     }
 
 
@@ -89,6 +124,7 @@ public abstract class CryptoUtils {
      * @param hexSignature     The signature of the message, as a hexadecimal string.
      * @return True if the address recovered from the message and the signature matches the candidate address. Returns
      * false otherwise.
+     * @see MessageSigner MessageSigner, to verify many signatures with little allocation
      */
     public static boolean signatureMatches(final String message, final String candidateAddress, final String
             hexSignature) {
@@ -110,6 +146,42 @@ public abstract class CryptoUtils {
     }
 
 
+    /**
+     * Same as {@link #signatureMatches(String, String, String)}, but looks the address of the signatory up in a cache
+     * before recovering it, and caches the recovered address.
+     *
+     * @param message          The message that was hashed and signed.
+     * @param candidateAddress The address to be verified.
+     * @param hexSignature     The signature of the message, as a hexadecimal string.
+     * @param signerCache      The cache of recovered addresses, or null to always recover the address.
+     * @return True if the address recovered from the message and the signature matches the candidate address. Returns
+     * false otherwise.
+     */
+    public static boolean signatureMatches(final String message, final String candidateAddress, final String
+            hexSignature, final SignerCache signerCache) {
+
+        byte[] signature = Hex.decode(hexSignature);
+
+        if (signerCache == null || signature.length != MessageSigner.SIGNATURE_LENGTH)
+            return signatureMatches(message, candidateAddress, hexSignature);
+
+        byte[] hash = computeHash(message);
+        byte[] address = new byte[MessageSigner.ADDRESS_LENGTH];
+
+        if (!signerCache.get(hash, 0, signature, 0, address, 0)) {
+            BigInteger r = Numeric.toBigInt(Arrays.copyOfRange(signature, 0, ECDSA_OUTPUT_LENGTH));
+            BigInteger s = Numeric.toBigInt(Arrays.copyOfRange(signature, ECDSA_OUTPUT_LENGTH,
+                    2 * ECDSA_OUTPUT_LENGTH));
+            int v = signature[signature.length - 1] - 27;
+
+            Hex.decode(Keys.getAddress(Sign.recoverFromSignature(v, new ECDSASignature(r, s), hash)), address, 0);
+            signerCache.put(hash, 0, signature, 0, address, 0);
+        }
+
+        return candidateAddress.equals(Keys.toChecksumAddress(Hex.toHexString(address)));
+    }
+
+
     /**
      * Compute the Ethereum Keccak256 hash of the given message and compares it to a given hash.
      *
@@ -122,4 +194,157 @@ public abstract class CryptoUtils {
 
         return computeHashString(message).equals(candidateHash);
     }
+
+
+    private static void writeSorted(final JsonElement json, final Writer writer) {
+
+        try {
+            JsonUtils.writeSorted(json, writer);
+        } catch (IOException e) {
+            // The writers used for hashing never fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Counts the UTF-16 characters written to it, which is the length of the equivalent string.
+     */
+    private static final class CharCountingWriter extends Writer {
+
+        private long count;
+
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+
+        @Override
+        public void flush() {
+        }
+
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Encodes the characters written to it in UTF-8 and feeds the bytes to a digest. Unpaired surrogates are encoded
+     * as '?', like {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    private static final class Utf8DigestWriter extends Writer {
+
+        private final Digest digest;
+        private final byte[] buffer;
+        private int position;
+        private char highSurrogate;
+
+
+        Utf8DigestWriter(Digest digest) {
+
+            this.digest = digest;
+            this.buffer = new byte[512];
+            this.position = 0;
+            this.highSurrogate = 0;
+        }
+
+
+        @Override
+        public void write(int c) {
+            encode((char) c);
+        }
+
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            for (int i = off; i < off + len; i++)
+                encode(cbuf[i]);
+        }
+
+
+        @Override
+        public void write(String str, int off, int len) {
+            for (int i = off; i < off + len; i++)
+                encode(str.charAt(i));
+        }
+
+
+        @Override
+        public void flush() {
+
+            if (highSurrogate != 0) {
+                put('?');
+                highSurrogate = 0;
+            }
+
+            digest.update(buffer, 0, position);
+            position = 0;
+        }
+
+
+        @Override
+        public void close() {
+            flush();
+        }
+
+
+        private void encode(char c) {
+
+            if (position > buffer.length - 4) {
+                digest.update(buffer, 0, position);
+                position = 0;
+            }
+
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    put(0xF0 | (codePoint >> 18));
+                    put(0x80 | ((codePoint >> 12) & 0x3F));
+                    put(0x80 | ((codePoint >> 6) & 0x3F));
+                    put(0x80 | (codePoint & 0x3F));
+                    return;
+                }
+
+                put('?');
+            }
+
+            if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xC0 | (c >> 6));
+                put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                put('?');
+            } else {
+                put(0xE0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3F));
+                put(0x80 | (c & 0x3F));
+            }
+        }
+
+
+        private void put(int b) {
+            buffer[position++] = (byte) b;
+        }
+    }
 }
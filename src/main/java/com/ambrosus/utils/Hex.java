@@ -0,0 +1,138 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.utils;
+
+import java.util.Arrays;
+
+/**
+ * Table-based hexadecimal codec. Encoding produces lowercase digits, decoding accepts both cases and an optional "0x"
+ * prefix. The methods working on arrays with offsets do not allocate.
+ */
+public abstract class Hex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+
+        for (int i = 0; i < 10; i++)
+            VALUES['0' + i] = (byte) i;
+
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+
+    /**
+     * @param bytes The bytes to encode
+     * @return The hexadecimal representation of the bytes, prefixed with "0x"
+     */
+    public static String toHexString(byte[] bytes) {
+
+        char[] chars = new char[2 + 2 * bytes.length];
+        chars[0] = '0';
+        chars[1] = 'x';
+        encode(bytes, 0, bytes.length, chars, 2);
+        return new String(chars);
+    }
+
+
+    /**
+     * Writes the hexadecimal representation of some bytes, without prefix, into a character array.
+     *
+     * @return The number of characters written, which is twice the number of bytes
+     */
+    public static int encode(byte[] source, int offset, int length, char[] destination, int destinationOffset) {
+
+        for (int i = 0; i < length; i++) {
+            int b = source[offset + i];
+            destination[destinationOffset + 2 * i] = DIGITS[(b >> 4) & 0xF];
+            destination[destinationOffset + 2 * i + 1] = DIGITS[b & 0xF];
+        }
+
+        return 2 * length;
+    }
+
+
+    /**
+     * @param hex A hexadecimal string, optionally prefixed with "0x"
+     * @return The decoded bytes
+     * @throws IllegalArgumentException if the string has an odd number of digits or contains a non-hexadecimal
+     *                                  character
+     */
+    public static byte[] decode(CharSequence hex) {
+
+        byte[] bytes = new byte[decodedLength(hex)];
+        decode(hex, bytes, 0);
+        return bytes;
+    }
+
+
+    /**
+     * Decodes a hexadecimal string into a byte array.
+     *
+     * @param hex               A hexadecimal string, optionally prefixed with "0x"
+     * @param destination       The array receiving the bytes
+     * @param destinationOffset The position of the first byte in the array
+     * @return The number of bytes written
+     * @throws IllegalArgumentException if the string has an odd number of digits or contains a non-hexadecimal
+     *                                  character
+     */
+    public static int decode(CharSequence hex, byte[] destination, int destinationOffset) {
+
+        int start = prefixLength(hex);
+        int length = decodedLength(hex);
+
+        for (int i = 0; i < length; i++) {
+            int high = value(hex.charAt(start + 2 * i));
+            int low = value(hex.charAt(start + 2 * i + 1));
+            destination[destinationOffset + i] = (byte) ((high << 4) | low);
+        }
+
+        return length;
+    }
+
+
+    /**
+     * @param hex A hexadecimal string, optionally prefixed with "0x"
+     * @return The number of bytes represented by the string
+     * @throws IllegalArgumentException if the string has an odd number of digits
+     */
+    public static int decodedLength(CharSequence hex) {
+
+        int digits = hex.length() - prefixLength(hex);
+
+        if (digits % 2 != 0)
+            throw new IllegalArgumentException("A hexadecimal string must have an even number of digits.");
+
+        return digits / 2;
+    }
+
+
+    private static int prefixLength(CharSequence hex) {
+
+        return hex.length() >= 2 && hex.charAt(0) == '0' && (hex.charAt(1) == 'x' || hex.charAt(1) == 'X') ? 2 : 0;
+    }
+
+
+    private static int value(char c) {
+
+        int value = c < VALUES.length ? VALUES[c] : -1;
+
+        if (value < 0)
+            throw new IllegalArgumentException("Invalid hexadecimal character: " + c);
+
+        return value;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of the paths accepted by {@link JsonUtils#elementWithPath(JsonObject, String, Character)}, parsed
+ * once and evaluated any number of times. Instances are immutable and can be shared between threads.
+ * <p>
+ * Each level of a path is one of:
+ * <ul>
+ * <li>a property name, such as {@code content}</li>
+ * <li>a non-negative integer, which selects an array element by index, or a property with that name in an
+ * object</li>
+ * <li>{@code *}, which selects every element of an array or every property of an object</li>
+ * </ul>
+ * For example {@code "content|data|*|type"} selects the type of every event data entry. Paths without wildcard are
+ * evaluated by {@link #get(JsonElement)} without allocation.
+ *
+ * @see JsonPathSet JsonPathSet, to evaluate several paths in one pass over a document
+ */
+public final class JsonPath {
+
+    static final String WILDCARD = "*";
+
+    private final String path;
+    private final String[] names;
+    private final int[] indices;
+    private final boolean[] wildcards;
+
+
+    private JsonPath(String path, List<String> segments) {
+
+        this.path = path;
+        this.names = segments.toArray(new String[0]);
+        this.indices = new int[names.length];
+        this.wildcards = new boolean[names.length];
+
+        for (int i = 0; i < names.length; i++) {
+            indices[i] = parseIndex(names[i]);
+            wildcards[i] = WILDCARD.equals(names[i]);
+        }
+    }
+
+
+    /**
+     * Calls {@link #compile(String, char)} with the '|' (pipe) separator
+     */
+    public static JsonPath compile(String path) {
+
+        return compile(path, '|');
+    }
+
+
+    /**
+     * @param path      The levels of the path, separated by the separator character
+     * @param separator The separation character used in the path to distinguish levels in the hierarchy
+     * @return The compiled path
+     */
+    public static JsonPath compile(String path, char separator) {
+
+        return new JsonPath(path, split(path, separator));
+    }
+
+
+    /**
+     * @param root The element on which to evaluate the path
+     * @return The first element matching the path, or null if there is none
+     */
+    public JsonElement get(JsonElement root) {
+
+        return first(root, 0);
+    }
+
+
+    /**
+     * @param root The element on which to evaluate the path
+     * @return The first element matching the path
+     */
+    public Optional<JsonElement> find(JsonElement root) {
+
+        return Optional.ofNullable(get(root));
+    }
+
+
+    /**
+     * Calls the consumer with every element matching the path, in document order.
+     *
+     * @param root     The element on which to evaluate the path
+     * @param consumer The consumer of the matching elements
+     */
+    public void forEachMatch(JsonElement root, Consumer<JsonElement> consumer) {
+
+        forEach(root, 0, consumer);
+    }
+
+
+    /**
+     * @param root The element on which to evaluate the path
+     * @return Every element matching the path, in document order
+     */
+    public List<JsonElement> getAll(JsonElement root) {
+
+        List<JsonElement> matches = new ArrayList<>();
+        forEachMatch(root, matches::add);
+        return matches;
+    }
+
+
+    int length() {
+
+        return names.length;
+    }
+
+
+    String name(int level) {
+
+        return names[level];
+    }
+
+
+    @Override
+    public String toString() {
+
+        return path;
+    }
+
+
+    private JsonElement first(JsonElement element, int level) {
+
+        if (level == names.length)
+            return element;
+
+        if (element == null)
+            return null;
+
+        if (!wildcards[level]) {
+            return first(child(element, names[level], indices[level]), level + 1);
+        }
+
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+
+            for (int i = 0; i < array.size(); i++) {
+                JsonElement match = first(array.get(i), level + 1);
+
+                if (match != null)
+                    return match;
+            }
+        } else if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                JsonElement match = first(entry.getValue(), level + 1);
+
+                if (match != null)
+                    return match;
+            }
+        }
+
+        return null;
+    }
+
+
+    private void forEach(JsonElement element, int level, Consumer<JsonElement> consumer) {
+
+        if (element == null)
+            return;
+
+        if (level == names.length) {
+            consumer.accept(element);
+            return;
+        }
+
+        if (!wildcards[level]) {
+            forEach(child(element, names[level], indices[level]), level + 1, consumer);
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+
+            for (int i = 0; i < array.size(); i++)
+                forEach(array.get(i), level + 1, consumer);
+        } else if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet())
+                forEach(entry.getValue(), level + 1, consumer);
+        }
+    }
+
+
+    /**
+     * @return The property with the given name of an object, or the element at the given index of an array
+     */
+    static JsonElement child(JsonElement element, String name, int index) {
+
+        if (element.isJsonObject())
+            return element.getAsJsonObject().get(name);
+
+        if (element.isJsonArray() && index >= 0 && index < element.getAsJsonArray().size())
+            return element.getAsJsonArray().get(index);
+
+        return null;
+    }
+
+
+    /**
+     * @return The index represented by a level of a path, or -1 if it is not a non-negative integer
+     */
+    static int parseIndex(String segment) {
+
+        if (segment.isEmpty() || segment.length() > 9)
+            return -1;
+
+        int index = 0;
+
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+
+            if (c < '0' || c > '9')
+                return -1;
+
+            index = 10 * index + (c - '0');
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Splits a path like {@link String#split(String)} does with a literal separator: trailing empty levels are
+     * removed, unless the path holds no separator.
+     */
+    static List<String> split(String path, char separator) {
+
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+
+        for (int end = path.indexOf(separator); end >= 0; end = path.indexOf(separator, start)) {
+            segments.add(path.substring(start, end));
+            start = end + 1;
+        }
+
+        if (segments.isEmpty())
+            return Collections.singletonList(path);
+
+        segments.add(path.substring(start));
+
+        int size = segments.size();
+        while (size > 0 && segments.get(size - 1).isEmpty())
+            segments.remove(--size);
+
+        return segments;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Several {@link JsonPath}s evaluated together in a single pass over a document. The paths are merged into a tree
+ * sharing their common levels, so that each level of the document is visited once whatever the number of paths.
+ * <p>
+ * Documents can be evaluated as a parsed {@link JsonElement} or read directly from a {@link JsonReader}, in which
+ * case only the matched values are parsed and everything else is skipped. Instances are immutable and can be shared
+ * between threads.
+ */
+public final class JsonPathSet {
+
+    private final List<JsonPath> paths;
+    private final Node root;
+
+
+    private JsonPathSet(List<JsonPath> paths) {
+
+        this.paths = paths;
+        this.root = new Node();
+
+        for (int i = 0; i < paths.size(); i++) {
+            Node node = root;
+            JsonPath path = paths.get(i);
+
+            for (int level = 0; level < path.length(); level++)
+                node = node.child(path.name(level));
+
+            node.addPath(i);
+        }
+
+        root.freeze();
+    }
+
+
+    /**
+     * @param paths The paths, identified by their position when matched
+     */
+    public static JsonPathSet of(JsonPath... paths) {
+
+        return new JsonPathSet(new ArrayList<>(Arrays.asList(paths)));
+    }
+
+
+    /**
+     * @param paths The paths separated by '|' (pipe), identified by their position when matched
+     */
+    public static JsonPathSet compile(String... paths) {
+
+        List<JsonPath> compiled = new ArrayList<>();
+
+        for (String path : paths)
+            compiled.add(JsonPath.compile(path));
+
+        return new JsonPathSet(compiled);
+    }
+
+
+    public List<JsonPath> getPaths() {
+
+        return Collections.unmodifiableList(paths);
+    }
+
+
+    /**
+     * Reports every element of a document matching one of the paths.
+     *
+     * @param document The document
+     * @param visitor  The visitor called for each match
+     */
+    public void evaluate(JsonElement document, MatchVisitor visitor) {
+
+        evaluate(root, document, visitor);
+    }
+
+
+    /**
+     * Reads the next value of a reader and reports every element matching one of the paths, in document order. Only
+     * the matched values are parsed into {@link JsonElement}s.
+     *
+     * @param reader  The reader positioned before the document
+     * @param visitor The visitor called for each match
+     * @throws IOException if the reader fails or the document is malformed
+     */
+    public void evaluate(JsonReader reader, MatchVisitor visitor) throws IOException {
+
+        List<List<Node>> levels = new ArrayList<>();
+        List<Node> rootLevel = new ArrayList<>();
+        rootLevel.add(root);
+        levels.add(rootLevel);
+
+        read(reader, levels, 0, visitor);
+    }
+
+
+    private void evaluate(Node node, JsonElement element, MatchVisitor visitor) {
+
+        if (element == null)
+            return;
+
+        for (int pathIndex : node.pathIndices)
+            visitor.match(pathIndex, element);
+
+        if (element.isJsonObject()) {
+            for (Map.Entry<String, Node> entry : node.named.entrySet())
+                evaluate(entry.getValue(), element.getAsJsonObject().get(entry.getKey()), visitor);
+
+            if (node.wildcard != null) {
+                for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet())
+                    evaluate(node.wildcard, entry.getValue(), visitor);
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+
+            for (int i = 0; i < node.indices.length; i++) {
+                if (node.indices[i] < array.size())
+                    evaluate(node.indexNodes[i], array.get(node.indices[i]), visitor);
+            }
+
+            if (node.wildcard != null) {
+                for (int i = 0; i < array.size(); i++)
+                    evaluate(node.wildcard, array.get(i), visitor);
+            }
+        }
+    }
+
+
+    /**
+     * Reads the next value, which matches the nodes of the given level.
+     */
+    private void read(JsonReader reader, List<List<Node>> levels, int depth, MatchVisitor visitor)
+            throws IOException {
+
+        List<Node> nodes = levels.get(depth);
+
+        for (Node node : nodes) {
+            if (node.pathIndices.length > 0) {
+                // The value itself is matched, so it is parsed and the deeper levels are evaluated on the tree
+                JsonElement element = new JsonParser().parse(reader);
+
+                for (Node matched : nodes)
+                    evaluate(matched, element, visitor);
+
+                return;
+            }
+        }
+
+        if (levels.size() == depth + 1)
+            levels.add(new ArrayList<>());
+
+        List<Node> children = levels.get(depth + 1);
+        JsonToken token = reader.peek();
+
+        if (token == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                children.clear();
+
+                for (Node node : nodes) {
+                    Node child = node.named.get(name);
+
+                    if (child != null)
+                        children.add(child);
+
+                    if (node.wildcard != null)
+                        children.add(node.wildcard);
+                }
+
+                if (children.isEmpty())
+                    reader.skipValue();
+                else
+                    read(reader, levels, depth + 1, visitor);
+            }
+
+            reader.endObject();
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+
+            for (int index = 0; reader.hasNext(); index++) {
+                children.clear();
+
+                for (Node node : nodes) {
+                    Node child = node.indexChild(index);
+
+                    if (child != null)
+                        children.add(child);
+
+                    if (node.wildcard != null)
+                        children.add(node.wildcard);
+                }
+
+                if (children.isEmpty())
+                    reader.skipValue();
+                else
+                    read(reader, levels, depth + 1, visitor);
+            }
+
+            reader.endArray();
+        } else {
+            reader.skipValue();
+        }
+    }
+
+
+    /**
+     * Receives the elements matching the paths of a {@link JsonPathSet}.
+     */
+    public interface MatchVisitor {
+
+        /**
+         * @param pathIndex The position of the matched path in the set
+         * @param element   The matching element
+         */
+        void match(int pathIndex, JsonElement element);
+    }
+
+    /**
+     * A level of the merged paths.
+     */
+    private static final class Node {
+
+        private static final int[] NO_PATH = new int[0];
+
+        private final Map<String, Node> named = new HashMap<>();
+        private Node wildcard;
+        private int[] pathIndices = NO_PATH;
+        private int[] indices;
+        private Node[] indexNodes;
+
+
+        Node child(String name) {
+
+            if (JsonPath.WILDCARD.equals(name)) {
+                if (wildcard == null)
+                    wildcard = new Node();
+
+                return wildcard;
+            }
+
+            Node child = named.get(name);
+
+            if (child == null) {
+                child = new Node();
+                named.put(name, child);
+            }
+
+            return child;
+        }
+
+
+        void addPath(int pathIndex) {
+
+            pathIndices = Arrays.copyOf(pathIndices, pathIndices.length + 1);
+            pathIndices[pathIndices.length - 1] = pathIndex;
+        }
+
+
+        /**
+         * Collects the levels which can select array elements, once every path has been added.
+         */
+        void freeze() {
+
+            List<Integer> indexList = new ArrayList<>();
+            List<Node> nodeList = new ArrayList<>();
+
+            for (Map.Entry<String, Node> entry : named.entrySet()) {
+                int index = JsonPath.parseIndex(entry.getKey());
+
+                if (index >= 0) {
+                    indexList.add(index);
+                    nodeList.add(entry.getValue());
+                }
+
+                entry.getValue().freeze();
+            }
+
+            if (wildcard != null)
+                wildcard.freeze();
+
+            indices = new int[indexList.size()];
+            for (int i = 0; i < indices.length; i++)
+                indices[i] = indexList.get(i);
+
+            indexNodes = nodeList.toArray(new Node[0]);
+        }
+
+
+        Node indexChild(int index) {
+
+            for (int i = 0; i < indices.length; i++) {
+                if (indices[i] == index)
+                    return indexNodes[i];
+            }
+
+            return null;
+        }
+    }
+}
@@ -13,10 +13,15 @@ package com.ambrosus.utils;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.regex.Pattern;
+import java.util.List;
 
 /**
  * Utility class for Json-related operations.
@@ -86,6 +91,66 @@ public abstract class JsonUtils {
     }
 
 
+    /**
+     * Writes the JSON representation of an element with the properties of every {@link JsonObject} sorted by
+     * alphabetical order of the keys. The output is identical to the string representation of the element after
+     * going through {@link #recursiveSort(JsonObject)} or {@link #arraySort(JsonArray)}, but no sorted copy of the
+     * element is built: only the keys of one object at a time are sorted.
+     *
+     * @param element The element to write.
+     * @param writer  The destination of the JSON representation.
+     * @throws IOException if the writer fails.
+     */
+    public static void writeSorted(final JsonElement element, final Writer writer) throws IOException {
+
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        // Same settings as JsonElement.toString()
+        jsonWriter.setLenient(true);
+        writeSorted(element, jsonWriter);
+        jsonWriter.flush();
+    }
+
+
+    private static void writeSorted(final JsonElement element, final JsonWriter jsonWriter) throws IOException {
+
+        if (element == null || element.isJsonNull()) {
+
+            jsonWriter.nullValue();
+
+        } else if (element.isJsonObject()) {
+
+            JsonObject jsonObject = element.getAsJsonObject();
+            String[] keys = jsonObject.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+
+            jsonWriter.beginObject();
+            for (String key : keys) {
+                jsonWriter.name(key);
+                writeSorted(jsonObject.get(key), jsonWriter);
+            }
+            jsonWriter.endObject();
+
+        } else if (element.isJsonArray()) {
+
+            jsonWriter.beginArray();
+            for (JsonElement arrayElement : element.getAsJsonArray())
+                writeSorted(arrayElement, jsonWriter);
+            jsonWriter.endArray();
+
+        } else {
+
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+
+            if (primitive.isNumber())
+                jsonWriter.value(primitive.getAsNumber());
+            else if (primitive.isBoolean())
+                jsonWriter.value(primitive.getAsBoolean());
+            else
+                jsonWriter.value(primitive.getAsString());
+        }
+    }
+
+
     /**
      * Call {@link #elementWithPath(JsonObject, String, Character)} with the '|' (pipe) separator
      */
@@ -114,9 +179,10 @@ public abstract class JsonUtils {
      * @param path       The path to the {@link JsonElement}.
      * @param separator  The separation character used in the path to distinguish levels in the object's hierarchy.
      * @return An {@link Optional} {@link JsonElement} value.
+     * @see JsonPath JsonPath, to evaluate the same path repeatedly or to select array elements
      */
     public static Optional<JsonElement> elementWithPath(JsonObject jsonObject, String path, Character separator) {
-        String[] paths = path.split(Pattern.quote(String.valueOf(separator)));
+        List<String> paths = JsonPath.split(path, separator);
 
         com.google.gson.JsonElement currentElement = jsonObject;
 
@@ -0,0 +1,317 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.utils;
+
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.web3j.crypto.ECDSASignature;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte-oriented counterpart of the signing and verification methods of {@link CryptoUtils}, for messages held in byte
+ * arrays or buffers in UTF-8.
+ * <p>
+ * Signatures are the 65 bytes r, s and v, and addresses the raw 20 bytes, so that no hexadecimal string or checksum
+ * address is built. The hash, preamble and key buffers are reused across calls, which leaves the elliptic curve
+ * operations as the only significant allocations. Signatures are compatible with those of {@link CryptoUtils}: the
+ * length written in the Ethereum preamble is the number of UTF-16 characters of the message, as for a string.
+ * <p>
+ * Instances are not thread-safe. Threads verifying concurrently should each use their own instance, and may share a
+ * {@link SignerCache}.
+ */
+public final class MessageSigner {
+
+    public static final int SIGNATURE_LENGTH = 65;
+    public static final int ADDRESS_LENGTH = 20;
+
+    private static final byte[] ETH_PREAMBLE = "\u0019Ethereum Signed Message:\n".getBytes(StandardCharsets.UTF_8);
+    private static final int ECDSA_OUTPUT_LENGTH = 32;
+    private static final int PUBLIC_KEY_LENGTH = 64;
+
+    private final SignerCache signerCache;
+    private final KeccakDigest digest;
+    private final byte[] hash;
+    private final byte[] scalar;
+    private final byte[] publicKey;
+    private final byte[] publicKeyHash;
+    private final byte[] recoveredAddress;
+    private final byte[] chunk;
+
+
+    public MessageSigner() {
+
+        this(null);
+    }
+
+
+    /**
+     * @param signerCache A cache of the addresses recovered from signatures, or null to recover every address
+     */
+    public MessageSigner(SignerCache signerCache) {
+
+        this.signerCache = signerCache;
+        this.digest = new KeccakDigest(256);
+        this.hash = new byte[SignerCache.HASH_LENGTH];
+        this.scalar = new byte[ECDSA_OUTPUT_LENGTH];
+        this.publicKey = new byte[PUBLIC_KEY_LENGTH];
+        this.publicKeyHash = new byte[32];
+        this.recoveredAddress = new byte[ADDRESS_LENGTH];
+        this.chunk = new byte[512];
+    }
+
+
+    /**
+     * Computes the Ethereum hash of a message, as {@link CryptoUtils#computeHashString(String)} does.
+     *
+     * @param message           The array holding the message
+     * @param offset            The position of the message in the array
+     * @param length            The length of the message in bytes
+     * @param destination       The array receiving the 32 bytes of the hash
+     * @param destinationOffset The position of the hash in the destination array
+     */
+    public void hash(byte[] message, int offset, int length, byte[] destination, int destinationOffset) {
+
+        updatePreamble(utf16Length(message, offset, length));
+        digest.update(message, offset, length);
+        digest.doFinal(destination, destinationOffset);
+    }
+
+
+    /**
+     * Computes the Ethereum hash of the remaining bytes of a buffer, without changing its position.
+     *
+     * @see #hash(byte[], int, int, byte[], int)
+     */
+    public void hash(ByteBuffer message, byte[] destination, int destinationOffset) {
+
+        if (message.hasArray()) {
+            hash(message.array(), message.arrayOffset() + message.position(), message.remaining(), destination,
+                    destinationOffset);
+            return;
+        }
+
+        updatePreamble(utf16Length(message));
+
+        for (int position = message.position(); position < message.limit(); position += chunk.length) {
+            int length = Math.min(chunk.length, message.limit() - position);
+
+            for (int i = 0; i < length; i++)
+                chunk[i] = message.get(position + i);
+
+            digest.update(chunk, 0, length);
+        }
+
+        digest.doFinal(destination, destinationOffset);
+    }
+
+
+    /**
+     * Signs a message, as {@link CryptoUtils#computeSignature(String, ECKeyPair)} does.
+     *
+     * @param message           The array holding the message
+     * @param offset            The position of the message in the array
+     * @param length            The length of the message in bytes
+     * @param keyPair           The key pair to use for signing
+     * @param signature         The array receiving the 65 bytes of the signature
+     * @param signatureOffset   The position of the signature in the destination array
+     */
+    public void sign(byte[] message, int offset, int length, ECKeyPair keyPair, byte[] signature,
+                     int signatureOffset) {
+
+        hash(message, offset, length, hash, 0);
+        sign(keyPair, signature, signatureOffset);
+    }
+
+
+    /**
+     * Signs the remaining bytes of a buffer, without changing its position.
+     *
+     * @see #sign(byte[], int, int, ECKeyPair, byte[], int)
+     */
+    public void sign(ByteBuffer message, ECKeyPair keyPair, byte[] signature, int signatureOffset) {
+
+        hash(message, hash, 0);
+        sign(keyPair, signature, signatureOffset);
+    }
+
+
+    /**
+     * Recovers the address of the signatory of a message and compares it to a given address.
+     *
+     * @param message         The array holding the message
+     * @param offset          The position of the message in the array
+     * @param length          The length of the message in bytes
+     * @param signature       The array holding the 65 bytes of the signature
+     * @param signatureOffset The position of the signature in its array
+     * @param address         The array holding the 20 bytes of the candidate address
+     * @param addressOffset   The position of the address in its array
+     * @return True if the address recovered from the message and the signature matches the candidate address
+     */
+    public boolean verify(byte[] message, int offset, int length, byte[] signature, int signatureOffset,
+                          byte[] address, int addressOffset) {
+
+        hash(message, offset, length, hash, 0);
+        return recoveredAddressMatches(signature, signatureOffset, address, addressOffset);
+    }
+
+
+    /**
+     * Verifies the signature of the remaining bytes of a buffer, without changing its position.
+     *
+     * @see #verify(byte[], int, int, byte[], int, byte[], int)
+     */
+    public boolean verify(ByteBuffer message, byte[] signature, int signatureOffset, byte[] address,
+                          int addressOffset) {
+
+        hash(message, hash, 0);
+        return recoveredAddressMatches(signature, signatureOffset, address, addressOffset);
+    }
+
+
+    private void sign(ECKeyPair keyPair, byte[] signature, int signatureOffset) {
+
+        Sign.SignatureData data = Sign.signMessage(hash, keyPair, false);
+
+        System.arraycopy(data.getR(), 0, signature, signatureOffset, ECDSA_OUTPUT_LENGTH);
+        System.arraycopy(data.getS(), 0, signature, signatureOffset + ECDSA_OUTPUT_LENGTH, ECDSA_OUTPUT_LENGTH);
+        signature[signatureOffset + 2 * ECDSA_OUTPUT_LENGTH] = data.getV();
+    }
+
+
+    private boolean recoveredAddressMatches(byte[] signature, int signatureOffset, byte[] address,
+                                            int addressOffset) {
+
+        if (signerCache == null || !signerCache.get(hash, 0, signature, signatureOffset, recoveredAddress, 0)) {
+            if (!recoverAddress(signature, signatureOffset))
+                return false;
+
+            if (signerCache != null)
+                signerCache.put(hash, 0, signature, signatureOffset, recoveredAddress, 0);
+        }
+
+        int difference = 0;
+
+        for (int i = 0; i < ADDRESS_LENGTH; i++)
+            difference |= recoveredAddress[i] ^ address[addressOffset + i];
+
+        return difference == 0;
+    }
+
+
+    /**
+     * Recovers the address of the signatory of {@link #hash} into {@link #recoveredAddress}.
+     *
+     * @return False if the signature is invalid
+     */
+    private boolean recoverAddress(byte[] signature, int signatureOffset) {
+
+        int v = signature[signatureOffset + 2 * ECDSA_OUTPUT_LENGTH];
+        int recoveryId = v >= 27 ? v - 27 : v;
+
+        if (recoveryId < 0 || recoveryId > 3)
+            return false;
+
+        // BigInteger copies its magnitude, so the same buffer serves for r and s
+        System.arraycopy(signature, signatureOffset, scalar, 0, ECDSA_OUTPUT_LENGTH);
+        BigInteger r = new BigInteger(1, scalar);
+        System.arraycopy(signature, signatureOffset + ECDSA_OUTPUT_LENGTH, scalar, 0, ECDSA_OUTPUT_LENGTH);
+        BigInteger s = new BigInteger(1, scalar);
+
+        BigInteger recoveredKey;
+
+        try {
+            recoveredKey = Sign.recoverFromSignature(recoveryId, new ECDSASignature(r, s), hash);
+        } catch (IllegalArgumentException e) {
+            // Thrown for values of r which are not the coordinate of a point of the curve
+            return false;
+        }
+
+        if (recoveredKey == null)
+            return false;
+
+        writePublicKey(recoveredKey);
+        digest.update(publicKey, 0, PUBLIC_KEY_LENGTH);
+        digest.doFinal(publicKeyHash, 0);
+
+        // The address is the last 20 bytes of the hash of the public key
+        System.arraycopy(publicKeyHash, publicKeyHash.length - ADDRESS_LENGTH, recoveredAddress, 0, ADDRESS_LENGTH);
+        return true;
+    }
+
+
+    private void writePublicKey(BigInteger key) {
+
+        byte[] bytes = key.toByteArray();
+        int length = Math.min(bytes.length, PUBLIC_KEY_LENGTH);
+        int padding = PUBLIC_KEY_LENGTH - length;
+
+        for (int i = 0; i < padding; i++)
+            publicKey[i] = 0;
+
+        System.arraycopy(bytes, bytes.length - length, publicKey, padding, length);
+    }
+
+
+    private void updatePreamble(long messageLength) {
+
+        digest.update(ETH_PREAMBLE, 0, ETH_PREAMBLE.length);
+
+        int digits = 0;
+        long remaining = messageLength;
+
+        do {
+            chunk[digits++] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+
+        for (int i = digits - 1; i >= 0; i--)
+            digest.update(chunk[i]);
+    }
+
+
+    /**
+     * Counts the UTF-16 characters encoded by valid UTF-8: one per byte which is not a continuation byte, plus one
+     * for each four-byte sequence, which encodes a surrogate pair.
+     */
+    private static long utf16Length(byte[] message, int offset, int length) {
+
+        long count = 0;
+
+        for (int i = offset; i < offset + length; i++)
+            count += utf16Units(message[i]);
+
+        return count;
+    }
+
+
+    private static long utf16Length(ByteBuffer message) {
+
+        long count = 0;
+
+        for (int i = message.position(); i < message.limit(); i++)
+            count += utf16Units(message.get(i));
+
+        return count;
+    }
+
+
+    private static int utf16Units(byte b) {
+
+        if ((b & 0xC0) == 0x80)
+            return 0;
+
+        return (b & 0xF8) == 0xF0 ? 2 : 1;
+    }
+}
@@ -12,11 +12,27 @@ package com.ambrosus.utils;
 
 import com.ambrosus.AmbrosusSDK;
 import com.ambrosus.model.Asset;
+import com.ambrosus.model.Event;
+import com.ambrosus.network.EventQueryResponse;
+import com.ambrosus.network.QueryIterator;
 import com.ambrosus.network.ResponseWrapper;
+import com.ambrosus.store.EventStore;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Default retrofit2 callbacks for the SDK
@@ -94,4 +110,316 @@ public abstract class NetworkUtils {
                 errorConsumer.accept(call, throwable);
         }
     }
+
+    /**
+     * Retrieves a collection of assets with their events, keeping a bounded number of assets in flight.
+     * <p>
+     * For each asset, the asset and its events are requested at the same time and merged once both responses are
+     * received. As soon as an asset is delivered or reported as failed, the retrieval of the next one starts.
+     */
+    public static class RetrieveAssetsWithEvents {
+
+        final AmbrosusSDK context;
+        private final Queue<String> remainingIds;
+        private final AtomicInteger pendingAssets;
+        private final int parallelism;
+        private final Consumer<Asset> successConsumer;
+        private final BiConsumer<Call<?>, Throwable> errorConsumer;
+        private final Runnable completionCallback;
+
+        public RetrieveAssetsWithEvents(AmbrosusSDK context,
+                                        Collection<String> assetIds,
+                                        int parallelism,
+                                        Consumer<Asset> successConsumer,
+                                        BiConsumer<Call<?>, Throwable> errorConsumer,
+                                        Runnable completionCallback) {
+
+            if (parallelism <= 0)
+                throw new IllegalArgumentException("The parallelism must be positive.");
+
+            this.context = context;
+            this.remainingIds = new ConcurrentLinkedQueue<>(assetIds);
+            this.pendingAssets = new AtomicInteger(remainingIds.size());
+            this.parallelism = parallelism;
+            this.successConsumer = successConsumer;
+            this.errorConsumer = errorConsumer;
+            this.completionCallback = completionCallback;
+        }
+
+
+        public void start() {
+
+            if (pendingAssets.get() == 0) {
+                complete();
+                return;
+            }
+
+            for (int i = 0; i < parallelism; i++)
+                retrieveNext();
+        }
+
+
+        private void retrieveNext() {
+
+            String assetId = remainingIds.poll();
+
+            if (assetId != null)
+                new AssetWithEvents(assetId).retrieve();
+        }
+
+
+        private void assetDone() {
+
+            if (pendingAssets.decrementAndGet() == 0)
+                complete();
+            else
+                retrieveNext();
+        }
+
+
+        private void complete() {
+
+            if (completionCallback != null)
+                completionCallback.run();
+        }
+
+
+        /**
+         * Joins the asset and events responses of one asset.
+         */
+        private final class AssetWithEvents {
+
+            private final String assetId;
+            private final AtomicInteger pendingResponses;
+            private final AtomicBoolean failed;
+            private final AtomicReference<Asset> asset;
+            private final AtomicReference<EventQueryResponse> events;
+
+
+            AssetWithEvents(String assetId) {
+
+                this.assetId = assetId;
+                this.pendingResponses = new AtomicInteger(2);
+                this.failed = new AtomicBoolean(false);
+                this.asset = new AtomicReference<>();
+                this.events = new AtomicReference<>();
+            }
+
+
+            void retrieve() {
+
+                try {
+                    context.getAsset(assetId, assetWrapper -> {
+                        if (assetWrapper.isSuccessful() && assetWrapper.hasBody())
+                            asset.set(assetWrapper.body());
+                        else
+                            fail(null, new Throwable("Response body was empty after getAsset."));
+
+                        responseReceived();
+                    }, (call, throwable) -> {
+                        fail(call, throwable);
+                        responseReceived();
+                    });
+
+                    context.getEvents(assetId, eventsWrapper -> {
+                        if (eventsWrapper.hasBody())
+                            events.set(eventsWrapper.body());
+
+                        responseReceived();
+                    }, (call, throwable) -> {
+                        fail(call, throwable);
+                        responseReceived();
+                    });
+                } catch (RuntimeException e) {
+                    fail(null, e);
+                    assetDone();
+                }
+            }
+
+
+            private void responseReceived() {
+
+                if (pendingResponses.decrementAndGet() > 0)
+                    return;
+
+                try {
+                    if (!failed.get()) {
+                        Asset.Builder assetBuilder = Asset.Builder.fromExistingAsset(asset.get());
+                        EventQueryResponse eventQueryResponse = events.get();
+
+                        if (eventQueryResponse != null && eventQueryResponse.getResultCount() > 0)
+                            assetBuilder.addAllEvents(eventQueryResponse.getResults());
+
+                        successConsumer.accept(assetBuilder.build());
+                    }
+                } finally {
+                    assetDone();
+                }
+            }
+
+
+            private void fail(Call<?> call, Throwable throwable) {
+
+                // Each asset is reported once, even if both of its requests fail
+                if (failed.compareAndSet(false, true) && errorConsumer != null)
+                    errorConsumer.accept(call, throwable);
+            }
+        }
+    }
+
+    /**
+     * Brings the local store of an asset up to date, then delivers the asset with every stored event.
+     * <p>
+     * The asset is only requested from the API when it is not stored yet. Events are queried page by page from the
+     * timestamp of the newest stored event, so that only the events added since the last synchronization are
+     * transferred. Events received again because they share that timestamp are skipped by the store.
+     */
+    public static class SyncAssetWithEvents {
+
+        final AmbrosusSDK context;
+        private final String assetId;
+        private final EventStore store;
+        private final Consumer<Asset> successConsumer;
+        private final BiConsumer<Call<?>, Throwable> errorConsumer;
+
+        public SyncAssetWithEvents(AmbrosusSDK context,
+                                   String assetId,
+                                   EventStore store,
+                                   Consumer<Asset> successConsumer,
+                                   BiConsumer<Call<?>, Throwable> errorConsumer) {
+
+            this.context = context;
+            this.assetId = assetId;
+            this.store = store;
+            this.successConsumer = successConsumer;
+            this.errorConsumer = errorConsumer;
+        }
+
+
+        public void start() {
+
+            try {
+                if (store.getAsset(assetId).isPresent()) {
+                    syncEvents();
+                    return;
+                }
+            } catch (IOException e) {
+                fail(null, e);
+                return;
+            }
+
+            context.getAsset(assetId, assetWrapper -> {
+                if (!assetWrapper.isSuccessful() || !assetWrapper.hasBody()) {
+                    fail(null, new Throwable("Response body was empty after getAsset."));
+                    return;
+                }
+
+                try {
+                    store.putAsset(assetWrapper.body());
+                } catch (IOException e) {
+                    fail(null, e);
+                    return;
+                }
+
+                syncEvents();
+            }, this::fail);
+        }
+
+
+        private void syncEvents() {
+
+            new RetrieveEventsFrom(context, assetId, store.getLatestTimestamp(assetId), events -> {
+                try {
+                    store.putEvents(events);
+                    complete();
+                } catch (IOException e) {
+                    fail(null, e);
+                }
+            }, errorConsumer).start();
+        }
+
+
+        private void complete() throws IOException {
+
+            Optional<Asset> asset = store.getAsset(assetId);
+
+            if (!asset.isPresent()) {
+                fail(null, new Throwable("The asset is missing from the store."));
+                return;
+            }
+
+            successConsumer.accept(Asset.Builder.fromExistingAsset(asset.get())
+                    .addAllEvents(store.getEvents(assetId))
+                    .build());
+        }
+
+
+        private void fail(Call<?> call, Throwable throwable) {
+
+            if (errorConsumer != null)
+                errorConsumer.accept(call, throwable);
+        }
+    }
+
+    /**
+     * Retrieves every event of an asset from a given timestamp, page by page, and delivers them together once the last
+     * page has been received.
+     */
+    public static class RetrieveEventsFrom {
+
+        private static final int PAGE_SIZE = 100;
+
+        final AmbrosusSDK context;
+        private final Consumer<List<Event>> successConsumer;
+        private final BiConsumer<Call<?>, Throwable> errorConsumer;
+        private final Map<String, String> params;
+        private final List<Event> events;
+        private int page;
+
+        /**
+         * @param fromTimestamp The inclusive lower bound of the event timestamps, or null to retrieve every event
+         */
+        public RetrieveEventsFrom(AmbrosusSDK context,
+                                  String assetId,
+                                  Long fromTimestamp,
+                                  Consumer<List<Event>> successConsumer,
+                                  BiConsumer<Call<?>, Throwable> errorConsumer) {
+
+            this.context = context;
+            this.successConsumer = successConsumer;
+            this.errorConsumer = errorConsumer;
+            this.params = new HashMap<>();
+            this.events = new ArrayList<>();
+            this.page = 0;
+
+            params.put("assetId", assetId);
+            params.put(QueryIterator.PER_PAGE_PARAM, String.valueOf(PAGE_SIZE));
+            if (fromTimestamp != null)
+                params.put("fromTimestamp", String.valueOf(fromTimestamp));
+        }
+
+
+        public void start() {
+
+            params.put(QueryIterator.PAGE_PARAM, String.valueOf(page++));
+
+            context.findEvents(new HashMap<>(params), queryWrapper -> {
+                if (!queryWrapper.isSuccessful() || !queryWrapper.hasBody()) {
+                    if (errorConsumer != null)
+                        errorConsumer.accept(null, new Throwable("Event query failed with HTTP code " +
+                                queryWrapper.code() + "."));
+                    return;
+                }
+
+                List<Event> results = queryWrapper.body().getResults() != null ? queryWrapper.body().getResults() :
+                        Collections.<Event>emptyList();
+                events.addAll(results);
+
+                if (results.size() < PAGE_SIZE)
+                    successConsumer.accept(events);
+                else
+                    start();
+            }, errorConsumer == null ? null : errorConsumer::accept);
+        }
+    }
 }
@@ -0,0 +1,57 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free generator of sequence numbers wrapping around a bound.
+ * <p>
+ * Concurrent callers never receive the same number until the sequence has wrapped, and after any number of wraps
+ * every value of the range has been handed out the same number of times, give or take one.
+ */
+public final class SequenceGenerator {
+
+    private final int bound;
+    private final AtomicInteger current;
+
+
+    /**
+     * @param bound The exclusive upper bound of the sequence numbers
+     * @throws IllegalArgumentException if the bound is not positive
+     */
+    public SequenceGenerator(int bound) {
+
+        if (bound <= 0)
+            throw new IllegalArgumentException("The bound of a sequence must be positive.");
+
+        this.bound = bound;
+        this.current = new AtomicInteger(0);
+    }
+
+
+    /**
+     * Increments and returns the sequence number, starting at 1 and wrapping to 0 at the bound.
+     *
+     * @return The sequence number
+     */
+    public int next() {
+
+        // The counter stays below the bound, so it cannot overflow however many numbers are generated
+        while (true) {
+            int previous = current.get();
+            int next = previous + 1 == bound ? 0 : previous + 1;
+
+            if (current.compareAndSet(previous, next))
+                return next;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.utils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of the addresses recovered from signatures, keyed by the signed hash and the signature, so that
+ * verifying the same signature again is a lookup rather than a public key recovery.
+ * <p>
+ * Entries are spread over independently locked segments, so that parallel verifications rarely wait for each other,
+ * and each segment evicts its least recently used entries once it holds its share of the maximum number of entries.
+ * An entry holds 32 bytes of hash, 65 bytes of signature and 20 bytes of address, which amounts to about 250 bytes
+ * with the map and object overhead.
+ */
+public final class SignerCache {
+
+    public static final int HASH_LENGTH = 32;
+
+    private static final int MAX_SEGMENT_COUNT = 16;
+
+    private final int maxEntries;
+    private final Segment[] segments;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong evictionCount;
+
+
+    /**
+     * @param maxEntries Maximum number of addresses held by the cache
+     */
+    public SignerCache(int maxEntries) {
+
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("The maximum number of entries of a cache must be positive.");
+
+        // A power of two no greater than the number of entries, so that no segment is empty
+        int segmentCount = Integer.highestOneBit(Math.min(maxEntries, MAX_SEGMENT_COUNT));
+
+        this.maxEntries = maxEntries;
+        this.segments = new Segment[segmentCount];
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.evictionCount = new AtomicLong();
+
+        // The first segments take the remainder so that the capacities add up to the maximum
+        for (int i = 0; i < segmentCount; i++)
+            segments[i] = new Segment(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0));
+    }
+
+
+    /**
+     * Copies the address recovered from a signature, if cached, into the given array.
+     *
+     * @param hash            The array holding the 32 bytes of the signed hash
+     * @param hashOffset      The position of the hash in its array
+     * @param signature       The array holding the 65 bytes of the signature
+     * @param signatureOffset The position of the signature in its array
+     * @param address         The array receiving the 20 bytes of the address
+     * @param addressOffset   The position of the address in its array
+     * @return True if the address was cached and copied
+     */
+    public boolean get(byte[] hash, int hashOffset, byte[] signature, int signatureOffset, byte[] address,
+                       int addressOffset) {
+
+        Key key = new Key(hash, hashOffset, signature, signatureOffset);
+        byte[] cached = segmentFor(key).get(key);
+
+        if (cached == null) {
+            missCount.incrementAndGet();
+            return false;
+        }
+
+        hitCount.incrementAndGet();
+        System.arraycopy(cached, 0, address, addressOffset, MessageSigner.ADDRESS_LENGTH);
+        return true;
+    }
+
+
+    /**
+     * Caches the address recovered from a signature.
+     *
+     * @see #get(byte[], int, byte[], int, byte[], int)
+     */
+    public void put(byte[] hash, int hashOffset, byte[] signature, int signatureOffset, byte[] address,
+                    int addressOffset) {
+
+        Key key = new Key(hash, hashOffset, signature, signatureOffset);
+        byte[] value = Arrays.copyOfRange(address, addressOffset, addressOffset + MessageSigner.ADDRESS_LENGTH);
+        segmentFor(key).put(key, value);
+    }
+
+
+    public void invalidateAll() {
+
+        for (Segment segment : segments)
+            segment.clear();
+    }
+
+
+    public int getMaxEntries() {
+
+        return maxEntries;
+    }
+
+
+    /**
+     * @return The number of addresses currently cached
+     */
+    public int size() {
+
+        int size = 0;
+
+        for (Segment segment : segments)
+            size += segment.size();
+
+        return size;
+    }
+
+
+    /**
+     * @return The number of lookups served from the cache
+     */
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+
+    /**
+     * @return The number of lookups which did not find the signature in the cache
+     */
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+
+    /**
+     * @return The number of entries evicted because their segment was full
+     */
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+
+    private Segment segmentFor(Key key) {
+
+        // Spread the high bits of the hash code, as HashMap does
+        int hash = key.hashCode;
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+
+    private final class Segment {
+
+        private final ReentrantLock lock;
+        private final LinkedHashMap<Key, byte[]> entries;
+
+
+        Segment(final int capacity) {
+
+            this.lock = new ReentrantLock();
+            this.entries = new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+
+                    if (size() <= capacity)
+                        return false;
+
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+            };
+        }
+
+
+        byte[] get(Key key) {
+
+            lock.lock();
+            try {
+                return entries.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        void put(Key key, byte[] value) {
+
+            lock.lock();
+            try {
+                entries.put(key, value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        void clear() {
+
+            lock.lock();
+            try {
+                entries.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        int size() {
+
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The signed hash followed by the signature.
+     */
+    private static final class Key {
+
+        private final byte[] bytes;
+        private final int hashCode;
+
+
+        Key(byte[] hash, int hashOffset, byte[] signature, int signatureOffset) {
+
+            this.bytes = new byte[HASH_LENGTH + MessageSigner.SIGNATURE_LENGTH];
+            System.arraycopy(hash, hashOffset, bytes, 0, HASH_LENGTH);
+            System.arraycopy(signature, signatureOffset, bytes, HASH_LENGTH, MessageSigner.SIGNATURE_LENGTH);
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+
+            return this == o || (o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes));
+        }
+
+
+        @Override
+        public int hashCode() {
+
+            return hashCode;
+        }
+    }
+}
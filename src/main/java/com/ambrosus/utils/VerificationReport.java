@@ -0,0 +1,130 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package com.ambrosus.utils;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Outcome of the verification of a collection of items. Results are given in the iteration order of the verified
+ * collection.
+ */
+public final class VerificationReport {
+
+    private final Result[] results;
+    private final int validCount;
+    private final int invalidCount;
+    private final int firstFailure;
+
+
+    VerificationReport(Result[] results) {
+
+        int valid = 0;
+        int invalid = 0;
+        int first = -1;
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == Result.VALID) {
+                valid++;
+            } else if (results[i] == Result.INVALID) {
+                invalid++;
+                if (first < 0)
+                    first = i;
+            }
+        }
+
+        this.results = results;
+        this.validCount = valid;
+        this.invalidCount = invalid;
+        this.firstFailure = first;
+    }
+
+
+    /**
+     * @param index The position of the item in the verified collection
+     * @return The verification result of the item
+     */
+    public Result resultAt(int index) {
+
+        return results[index];
+    }
+
+
+    /**
+     * @return A read-only list of the results of every item
+     */
+    public List<Result> getResults() {
+
+        return new AbstractList<Result>() {
+            @Override
+            public Result get(int index) {
+                return results[index];
+            }
+
+
+            @Override
+            public int size() {
+                return results.length;
+            }
+        };
+    }
+
+
+    public int size() {
+
+        return results.length;
+    }
+
+
+    public int getValidCount() {
+
+        return validCount;
+    }
+
+
+    public int getInvalidCount() {
+
+        return invalidCount;
+    }
+
+
+    /**
+     * @return The number of items left unverified because verification stopped at a failure
+     */
+    public int getSkippedCount() {
+
+        return results.length - validCount - invalidCount;
+    }
+
+
+    /**
+     * @return True if every item was verified and found valid
+     */
+    public boolean allValid() {
+
+        return validCount == results.length;
+    }
+
+
+    /**
+     * @return The position of the first invalid item found in the collection, or -1 if there was none. When
+     * verification stops at the first failure, items located before it may have been skipped.
+     */
+    public int getFirstFailureIndex() {
+
+        return firstFailure;
+    }
+
+
+    public enum Result {
+        VALID, INVALID, SKIPPED
+    }
+}
@@ -0,0 +1,130 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.AsyncAmbrosusSDK;
+import com.ambrosus.model.Asset;
+import com.ambrosus.network.ResponseWrapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncAmbrosusSDKTests {
+
+    private final static String PRIVATE_KEY = "0x012345";
+    private final static String TEST_ASSET_ID = "0xABC123";
+    private final static String TEST_ASSET_JSON = "{\"assetId\":\"0xABC123\",\"content\":{\"idData\":" +
+            "{\"createdBy\":\"0x123\",\"timestamp\":1,\"sequenceNumber\":0},\"signature\":\"0x1\"}}";
+    private AmbrosusSDK ambrosus;
+    private MockWebServer mockWebServer;
+    private ExecutorService completionExecutor;
+
+
+    @Before
+    public void init() throws IOException {
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(), PRIVATE_KEY));
+        ambrosus.init();
+
+        completionExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "completion"));
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+
+        completionExecutor.shutdownNow();
+        mockWebServer.shutdown();
+    }
+
+
+    @Test
+    public void futureCompletesOnCompletionExecutor() throws Exception {
+
+        mockWebServer.enqueue(new MockResponse().setBody(TEST_ASSET_JSON));
+
+        AsyncAmbrosusSDK async = new AsyncAmbrosusSDK(ambrosus, completionExecutor);
+
+        String thread = async.getAsset(TEST_ASSET_ID)
+                .thenApply(assetWrapper -> {
+                    assertEquals(TEST_ASSET_ID, assetWrapper.body().getAssetId());
+                    return Thread.currentThread().getName();
+                })
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals("completion", thread);
+    }
+
+
+    @Test
+    public void fanOutCompletesEveryFuture() throws Exception {
+
+        int requestCount = 20;
+
+        for (int i = 0; i < requestCount; i++)
+            mockWebServer.enqueue(new MockResponse().setBody(TEST_ASSET_JSON));
+
+        AsyncAmbrosusSDK async = new AsyncAmbrosusSDK(ambrosus);
+        List<CompletableFuture<ResponseWrapper<Asset>>> futures = new ArrayList<>();
+
+        for (int i = 0; i < requestCount; i++)
+            futures.add(async.getAsset(TEST_ASSET_ID));
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+        for (CompletableFuture<ResponseWrapper<Asset>> future : futures)
+            assertEquals(TEST_ASSET_ID, future.get().body().getAssetId());
+    }
+
+
+    @Test
+    public void failedRequestCompletesExceptionally() throws Exception {
+
+        mockWebServer.shutdown();
+
+        CompletableFuture<ResponseWrapper<Asset>> future = new AsyncAmbrosusSDK(ambrosus, completionExecutor)
+                .getAsset(TEST_ASSET_ID);
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("The future should have completed exceptionally.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+
+    @Test
+    public void uninitializedSdkCompletesExceptionally() throws Exception {
+
+        AmbrosusSDK uninitialized = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(),
+                PRIVATE_KEY));
+
+        CompletableFuture<ResponseWrapper<Asset>> future = new AsyncAmbrosusSDK(uninitialized).getAsset(TEST_ASSET_ID);
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+}
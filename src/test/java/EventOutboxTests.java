@@ -0,0 +1,194 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.EventOutbox;
+import com.ambrosus.commons.RawJson;
+import com.ambrosus.model.Event;
+import com.ambrosus.utils.JsonUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static utils.TestUtils.noOp;
+
+public class EventOutboxTests {
+
+    private final static String PRIVATE_KEY = "0x012345";
+    private final static String TEST_ASSET_ID = "0xABC123";
+    private AmbrosusSDK ambrosus;
+    private MockWebServer mockWebServer;
+
+
+    @Before
+    public void init() throws IOException {
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(), PRIVATE_KEY));
+        ambrosus.init();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+
+    @Test
+    public void submittedEventsAreSignedAndSent() throws InterruptedException {
+
+        int eventCount = 20;
+        AtomicInteger responses = new AtomicInteger();
+
+        for (int i = 0; i < eventCount; i++)
+            mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        try (EventOutbox outbox = ambrosus.createEventOutbox(new EventOutbox.Config.Builder()
+                .setBatchSize(3)
+                .setWorkerThreads(2)
+                .setMaxInFlight(4)
+                .build())) {
+
+            for (int i = 0; i < eventCount; i++) {
+                Event.Builder eventBuilder = new Event.Builder()
+                        .setAssetId(TEST_ASSET_ID)
+                        .addEventData(new RawJson(new JsonObject()));
+                eventBuilder.setTimestamp((long) i);
+
+                outbox.submit(eventBuilder, eventResponseWrapper -> responses.incrementAndGet(), noOp());
+            }
+
+            assertTrue(outbox.flush(10, TimeUnit.SECONDS));
+            assertEquals(0, outbox.pendingCount());
+        }
+
+        assertEquals(eventCount, responses.get());
+
+        Set<String> signatures = new HashSet<>();
+        Gson gson = new Gson();
+
+        for (int i = 0; i < eventCount; i++) {
+            RecordedRequest recordedRequest = mockWebServer.takeRequest();
+            assertEquals(String.format("POST /assets/%s/events HTTP/1.1", TEST_ASSET_ID),
+                    recordedRequest.getRequestLine());
+
+            JsonObject jsonEvent = gson.fromJson(recordedRequest.getBody().readUtf8(), JsonObject.class);
+            assertEquals(ambrosus.getAddress(),
+                    JsonUtils.elementWithPath(jsonEvent, "content|idData|createdBy").get().getAsString());
+            assertTrue(JsonUtils.elementWithPath(jsonEvent, "content|idData|dataHash").isPresent());
+            signatures.add(JsonUtils.elementWithPath(jsonEvent, "content|signature").get().getAsString());
+        }
+
+        assertEquals(eventCount, signatures.size());
+    }
+
+
+    @Test
+    public void fullOutboxRejectsOffers() throws InterruptedException {
+
+        mockWebServer.enqueue(new MockResponse().setBody("{}").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        try (EventOutbox outbox = ambrosus.createEventOutbox(new EventOutbox.Config.Builder()
+                .setCapacity(1)
+                .build())) {
+
+            assertTrue(outbox.offer(new Event.Builder().setAssetId(TEST_ASSET_ID), e -> {
+            }, noOp()));
+            assertFalse(outbox.offer(new Event.Builder().setAssetId(TEST_ASSET_ID), e -> {
+            }, noOp()));
+
+            assertTrue(outbox.flush(10, TimeUnit.SECONDS));
+            assertTrue(outbox.offer(new Event.Builder().setAssetId(TEST_ASSET_ID), e -> {
+            }, noOp()));
+            assertTrue(outbox.flush(10, TimeUnit.SECONDS));
+        }
+    }
+
+
+    @Test
+    public void invalidEventIsReportedToErrorConsumer() throws InterruptedException {
+
+        AtomicInteger errors = new AtomicInteger();
+
+        try (EventOutbox outbox = ambrosus.createEventOutbox(new EventOutbox.Config.Builder().build())) {
+            outbox.submit(new Event.Builder(), e -> {
+            }, (call, t) -> errors.incrementAndGet());
+
+            assertTrue(outbox.flush(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, errors.get());
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void closedOutboxRejectsEvents() throws InterruptedException {
+
+        EventOutbox outbox = ambrosus.createEventOutbox(new EventOutbox.Config.Builder().build());
+        outbox.close();
+        outbox.submit(new Event.Builder().setAssetId(TEST_ASSET_ID), e -> {
+        }, noOp());
+    }
+
+
+    @Test
+    public void closeStopsWorkersAndReportsUnsentEvents() throws InterruptedException {
+
+        int eventCount = 5;
+        AtomicInteger responses = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        for (int i = 0; i < eventCount; i++)
+            mockWebServer.enqueue(new MockResponse().setBody("{}").setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        EventOutbox outbox = ambrosus.createEventOutbox(new EventOutbox.Config.Builder()
+                .setBatchSize(1)
+                .setWorkerThreads(2)
+                .setMaxInFlight(1)
+                .build());
+
+        for (int i = 0; i < eventCount; i++)
+            outbox.submit(new Event.Builder().setAssetId(TEST_ASSET_ID), e -> responses.incrementAndGet(),
+                    (call, t) -> errors.incrementAndGet());
+
+        outbox.close();
+
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            assertFalse(thread.getName().startsWith("ambrosus-outbox-"));
+
+        // The event sent before the close is still answered, every other one is reported as failed
+        assertTrue(outbox.flush(10, TimeUnit.SECONDS));
+        assertEquals(eventCount, responses.get() + errors.get());
+        assertTrue(errors.get() > 0);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidConfigThrowsException() {
+
+        new EventOutbox.Config.Builder().setCapacity(0);
+    }
+}
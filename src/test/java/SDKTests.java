@@ -11,7 +11,10 @@ This Source Code Form is "Incompatible With Secondary Licenses", as defined by t
 import com.ambrosus.AmbrosusSDK;
 import com.ambrosus.commons.Location;
 import com.ambrosus.commons.RawJson;
+import com.ambrosus.instrumentation.Instrumentation;
+import com.ambrosus.instrumentation.MetricsRecorder;
 import com.ambrosus.model.Account;
+import com.ambrosus.model.AmbrosusType;
 import com.ambrosus.model.Asset;
 import com.ambrosus.model.Event;
 import com.ambrosus.model.EventData;
@@ -19,11 +22,13 @@ import com.ambrosus.network.ResponseWrapper;
 import com.ambrosus.utils.Consumer;
 import com.ambrosus.utils.JsonUtils;
 import com.ambrosus.utils.NetworkUtils;
+import com.ambrosus.utils.VerificationReport;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -32,10 +37,14 @@ import org.junit.Test;
 import utils.TestUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.ambrosus.network.AmbrosusService.SECRET_PREAMBLE;
 import static com.ambrosus.network.AmbrosusService.TOKEN_PREAMBLE;
@@ -151,6 +160,78 @@ public class SDKTests {
     }
 
 
+    @Test
+    public void getAssetsWithEventsIsCorrect() throws InterruptedException {
+
+        int assetCount = 10;
+        String assetJson = TestUtils.readJson(PATH_PREFIX + "valid_asset.json").toString();
+        String eventJson = TestUtils.readJson(PATH_PREFIX + "event_query_response.json").toString();
+
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().equals("/assets/0x3"))
+                    return new MockResponse().setResponseCode(404);
+
+                return new MockResponse().setBody(request.getPath().startsWith("/events") ? eventJson : assetJson);
+            }
+        });
+
+        List<String> assetIds = new ArrayList<>();
+        for (int i = 0; i < assetCount; i++)
+            assetIds.add("0x" + i);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger assets = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        ambrosus.getAssetsWithEvents(assetIds, 3, asset -> {
+            assertEquals(1, asset.getEventsList().size());
+            assets.incrementAndGet();
+        }, (call, t) -> errors.incrementAndGet(), latch::countDown);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(assetCount - 1, assets.get());
+        assertEquals(1, errors.get());
+        assertEquals(2 * assetCount, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void syncAssetRequestsNewerEventsOnly() throws InterruptedException {
+
+        JsonObject assetJson = TestUtils.readJson(PATH_PREFIX + "valid_asset.json");
+        String eventJson = TestUtils.readJson(PATH_PREFIX + "event_query_response.json").toString();
+
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson.toString()));
+        mockWebServer.enqueue(new MockResponse().setBody(eventJson));
+        mockWebServer.enqueue(new MockResponse().setBody(eventJson));
+
+        CountDownLatch latch = new CountDownLatch(2);
+        AtomicReference<Asset> asset = new AtomicReference<>();
+
+        ambrosus.getAssetWithEvents(TEST_ASSET_ID, retrieved -> {
+            asset.set(retrieved);
+            latch.countDown();
+
+            ambrosus.syncAsset(retrieved, synced -> {
+                asset.set(synced);
+                latch.countDown();
+            }, (call, t) -> t.printStackTrace());
+        }, (call, t) -> t.printStackTrace());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, asset.get().getEventsList().size());
+
+        mockWebServer.takeRequest();
+        mockWebServer.takeRequest();
+
+        RecordedRequest syncRequest = mockWebServer.takeRequest();
+        assertTrue(syncRequest.getPath().startsWith("/events?"));
+        assertTrue(syncRequest.getPath().contains("fromTimestamp=" + asset.get().getLatestEventTimestamp()));
+    }
+
+
     @Test
     public void getAccountIsCorrect() throws InterruptedException {
 
@@ -259,6 +340,67 @@ public class SDKTests {
     }
 
 
+    @Test
+    public void signerCacheServesRepeatedVerifications() {
+
+        AmbrosusSDK cachingAmbrosus = new AmbrosusSDK(config);
+        cachingAmbrosus.enableSignerCache(100);
+        cachingAmbrosus.init();
+
+        Asset valid = gson.fromJson(TestUtils.readJson(PATH_PREFIX + "valid_asset.json"), Asset.class);
+        Asset invalid = gson.fromJson(TestUtils.readJson(PATH_PREFIX + "invalid_signature_asset.json"), Asset.class);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cachingAmbrosus.verifySignature(valid));
+            assertFalse(cachingAmbrosus.verifySignature(invalid));
+        }
+
+        assertEquals(2, cachingAmbrosus.getSignerCache().getMissCount());
+        assertEquals(4, cachingAmbrosus.getSignerCache().getHitCount());
+    }
+
+
+    @Test
+    public void instrumentationRecordsPhasesOfOperations() throws InterruptedException {
+
+        MetricsRecorder recorder = new MetricsRecorder();
+        CountDownLatch callbacks = new CountDownLatch(2);
+
+        AmbrosusSDK instrumentedAmbrosus = new AmbrosusSDK(config);
+        instrumentedAmbrosus.setInstrumentation(recorder.andThen((operation, phase, durationNanos, error) -> {
+            if (phase == Instrumentation.Phase.CALLBACK)
+                callbacks.countDown();
+        }));
+        instrumentedAmbrosus.init();
+
+        Event.Builder eventBuilder = new Event.Builder();
+        eventBuilder.setAssetId(TEST_ASSET_ID);
+        eventBuilder.addEventData(new RawJson(new JsonObject()));
+
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+        instrumentedAmbrosus.getAsset(TEST_ASSET_ID, assetResponseWrapper -> {
+        }, noOp());
+        mockWebServer.takeRequest();
+        instrumentedAmbrosus.createEvent(eventBuilder, eventResponseWrapper -> {
+        }, noOp());
+
+        assertTrue(callbacks.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, recorder.getLatency("getAsset", Instrumentation.Phase.NETWORK).getCount());
+        assertEquals(1, recorder.getLatency("getAsset", Instrumentation.Phase.DESERIALIZATION).getCount());
+        assertEquals(1, recorder.getLatency("getAsset", Instrumentation.Phase.CALLBACK).getCount());
+        assertEquals(1, recorder.getLatency("createEvent", Instrumentation.Phase.SERIALIZATION).getCount());
+        assertEquals(0, recorder.getLatency("createEvent", Instrumentation.Phase.DESERIALIZATION).getCount());
+        assertEquals(1, recorder.getLatency("signEvent", Instrumentation.Phase.CRYPTO).getCount());
+        assertEquals(1, recorder.getLatency("hashEventData", Instrumentation.Phase.CRYPTO).getCount());
+
+        Asset valid = gson.fromJson(TestUtils.readJson(PATH_PREFIX + "valid_asset.json"), Asset.class);
+        assertTrue(instrumentedAmbrosus.verifySignature(valid));
+        assertEquals(1, recorder.getLatency("verifySignature", Instrumentation.Phase.CRYPTO).getCount());
+    }
+
+
     @Test
     public void eventSignatureVerificationIsCorrect() {
         JsonObject validObj = TestUtils.readJson(PATH_PREFIX + "valid_event2.json");
@@ -269,6 +411,30 @@ public class SDKTests {
     }
 
 
+    @Test
+    public void bulkSignatureVerificationIsCorrect() {
+        Event validEvent = gson.fromJson(TestUtils.readJson(PATH_PREFIX + "valid_event2.json"), Event.class);
+        Event invalidEvent = gson.fromJson(TestUtils.readJson(PATH_PREFIX + "invalid_signature_event.json"),
+                Event.class);
+        Asset validAsset = gson.fromJson(TestUtils.readJson(PATH_PREFIX + "valid_asset.json"), Asset.class);
+
+        List<AmbrosusType> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(validEvent);
+            items.add(validAsset);
+        }
+        items.add(invalidEvent);
+
+        VerificationReport report = ambrosus.verifySignatures(items, false);
+
+        assertEquals(40, report.getValidCount());
+        assertEquals(1, report.getInvalidCount());
+        assertEquals(40, report.getFirstFailureIndex());
+
+        assertTrue(ambrosus.verifySignatures(items.subList(0, 40), true).allValid());
+    }
+
+
     @Test
     public void exceptionInSignatureDecodeIsCaught() {
 
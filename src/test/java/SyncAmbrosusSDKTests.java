@@ -0,0 +1,167 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.SyncAmbrosusSDK;
+import com.ambrosus.model.Asset;
+import com.ambrosus.network.ApiException;
+import com.ambrosus.network.NotFoundException;
+import com.ambrosus.network.ResponseCache;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SyncAmbrosusSDKTests {
+
+    private final static String PRIVATE_KEY = "0x012345";
+    private final static String TEST_ASSET_ID = "0xABC123";
+    private final static String TEST_ASSET_JSON = "{\"assetId\":\"0xABC123\",\"content\":{\"idData\":" +
+            "{\"createdBy\":\"0x123\",\"timestamp\":1,\"sequenceNumber\":0},\"signature\":\"0x1\"}}";
+    private AmbrosusSDK ambrosus;
+    private MockWebServer mockWebServer;
+
+
+    @Before
+    public void init() throws IOException {
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(), PRIVATE_KEY));
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+
+        mockWebServer.shutdown();
+    }
+
+
+    @Test
+    public void objectIsReturnedOnCallingThread() throws IOException {
+
+        ambrosus.init();
+        mockWebServer.enqueue(new MockResponse().setBody(TEST_ASSET_JSON));
+
+        Asset asset = new SyncAmbrosusSDK(ambrosus).getAsset(TEST_ASSET_ID);
+
+        assertEquals(TEST_ASSET_ID, asset.getAssetId());
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void missingObjectThrowsNotFound() throws IOException {
+
+        ambrosus.init();
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404).setBody("{\"reason\":\"Not found\"}"));
+
+        try {
+            new SyncAmbrosusSDK(ambrosus).getAsset(TEST_ASSET_ID);
+            fail("A missing asset should throw.");
+        } catch (NotFoundException e) {
+            assertEquals(404, e.getCode());
+            assertEquals("{\"reason\":\"Not found\"}", e.getErrorBody());
+        }
+    }
+
+
+    @Test
+    public void unsuccessfulResponseThrowsApiException() throws IOException {
+
+        ambrosus.init();
+        mockWebServer.enqueue(new MockResponse().setResponseCode(401));
+
+        try {
+            new SyncAmbrosusSDK(ambrosus).findAssets(new HashMap<>());
+            fail("An unauthorized request should throw.");
+        } catch (ApiException e) {
+            assertFalse(e instanceof NotFoundException);
+            assertEquals(401, e.getCode());
+        }
+    }
+
+
+    @Test
+    public void cachedAssetIsNotRequestedAgain() throws IOException {
+
+        ambrosus.enableCache(new ResponseCache.Config.Builder().build());
+        ambrosus.init();
+        mockWebServer.enqueue(new MockResponse().setBody(TEST_ASSET_JSON));
+
+        SyncAmbrosusSDK sync = new SyncAmbrosusSDK(ambrosus);
+
+        assertSame(sync.getAsset(TEST_ASSET_ID), sync.getAsset(TEST_ASSET_ID));
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void concurrentCallersReceiveTheirObjects() throws Exception {
+
+        ambrosus.init();
+        int requestCount = 20;
+
+        for (int i = 0; i < requestCount; i++)
+            mockWebServer.enqueue(new MockResponse().setBody(TEST_ASSET_JSON));
+
+        SyncAmbrosusSDK sync = new SyncAmbrosusSDK(ambrosus);
+        ExecutorService executor = Executors.newFixedThreadPool(requestCount);
+        List<Future<Asset>> assets = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < requestCount; i++)
+                assets.add(executor.submit(() -> sync.getAsset(TEST_ASSET_ID)));
+
+            for (Future<Asset> asset : assets)
+                assertEquals(TEST_ASSET_ID, asset.get(10, TimeUnit.SECONDS).getAssetId());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(requestCount, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void networkFailureThrowsIOException() throws IOException {
+
+        ambrosus.init();
+        mockWebServer.shutdown();
+
+        try {
+            new SyncAmbrosusSDK(ambrosus).getAsset(TEST_ASSET_ID);
+            fail("An unreachable API should throw.");
+        } catch (IOException e) {
+            assertFalse(e instanceof ApiException);
+        }
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void uninitializedSdkThrows() throws IOException {
+
+        new SyncAmbrosusSDK(ambrosus).getAsset(TEST_ASSET_ID);
+    }
+}
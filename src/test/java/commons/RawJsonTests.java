@@ -16,8 +16,16 @@ import org.junit.Before;
 import org.junit.Test;
 import utils.TestUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static utils.TestUtils.PATH_PREFIX;
 
 public class RawJsonTests {
@@ -52,4 +60,52 @@ public class RawJsonTests {
         assertNotEquals(raw1, raw3);
         assertNotEquals(raw1.hashCode(), raw3.hashCode());
     }
+
+
+    @Test
+    public void utf8IsParsedOnFirstAccess() {
+        byte[] utf8 = "{\"type\":\"custom\",\"value\":1.50}".getBytes(StandardCharsets.UTF_8);
+        RawJson rawJson = RawJson.fromUtf8(utf8);
+
+        assertFalse(rawJson.isParsed());
+        assertEquals("custom", rawJson.json().get("type").getAsString());
+        assertTrue(rawJson.isParsed());
+        assertEquals("1.50", rawJson.json().get("value").getAsString());
+    }
+
+
+    @Test
+    public void utf8EqualsParsedObject() {
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("prop1", "valué");
+        byte[] utf8 = ("[" + jsonObject + "]").getBytes(StandardCharsets.UTF_8);
+
+        RawJson parsed = new RawJson(jsonObject);
+        RawJson lazy1 = RawJson.fromUtf8(utf8, 1, utf8.length - 2);
+        RawJson lazy2 = RawJson.fromUtf8(Arrays.copyOfRange(utf8, 1, utf8.length - 1));
+
+        assertEquals(lazy1, lazy2);
+        assertFalse(lazy1.isParsed());
+        assertEquals(parsed, lazy1);
+        assertEquals(lazy2, parsed);
+        assertEquals(parsed.hashCode(), lazy1.hashCode());
+        assertNotEquals(lazy2, RawJson.fromUtf8("{}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+
+    @Test
+    public void utf8IsWrittenUntouched() throws IOException {
+        byte[] utf8 = "{ \"value\" : 1e3, \"text\": \"\\u00e9\" }".getBytes(StandardCharsets.UTF_8);
+        RawJson rawJson = RawJson.fromUtf8(utf8);
+        rawJson.json();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        rawJson.writeTo(out);
+
+        assertArrayEquals(utf8, out.toByteArray());
+        assertArrayEquals(utf8, rawJson.toUtf8());
+
+        JsonObject jsonObject = new JsonObject();
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), new RawJson(jsonObject).toUtf8());
+    }
 }
@@ -0,0 +1,87 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package instrumentation;
+
+import com.ambrosus.instrumentation.LatencyHistogram;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99), 0);
+        assertEquals(0, histogram.getMeanNanos(), 0);
+    }
+
+
+    @Test
+    public void aggregatesAreExact() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(10);
+        histogram.record(30);
+        histogram.record(-5);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(40, histogram.getTotalNanos());
+        assertEquals(30, histogram.getMaxNanos());
+        assertEquals(40 / 3.0, histogram.getMeanNanos(), 1e-9);
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(30, histogram.getValueAtPercentile(100));
+    }
+
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long value = 1; value <= 100_000; value++)
+            histogram.record(value * 1000);
+
+        long[] percentiles = {50, 90, 99};
+
+        for (long percentile : percentiles) {
+            long expected = percentile * 1000 * 1000;
+            long actual = histogram.getValueAtPercentile(percentile);
+
+            assertTrue(actual + " for " + percentile, actual >= expected && actual < expected * 1.25);
+        }
+
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+    }
+
+
+    @Test
+    public void largeValuesAreRecorded() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(50));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentileThrowsException() {
+
+        new LatencyHistogram().getValueAtPercentile(101);
+    }
+}
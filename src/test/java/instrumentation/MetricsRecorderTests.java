@@ -0,0 +1,79 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package instrumentation;
+
+import com.ambrosus.instrumentation.Instrumentation;
+import com.ambrosus.instrumentation.Instrumentation.Phase;
+import com.ambrosus.instrumentation.MetricsRecorder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MetricsRecorderTests {
+
+    @Test
+    public void phasesAreRecordedSeparately() {
+
+        MetricsRecorder recorder = new MetricsRecorder();
+
+        recorder.record("getAsset", Phase.NETWORK, 1000, null);
+        recorder.record("getAsset", Phase.NETWORK, 3000, new Throwable());
+        recorder.record("getAsset", Phase.DESERIALIZATION, 200, null);
+        recorder.record("signEvent", Phase.CRYPTO, 500, null);
+
+        assertEquals(2, recorder.getLatency("getAsset", Phase.NETWORK).getCount());
+        assertEquals(3000, recorder.getLatency("getAsset", Phase.NETWORK).getMaxNanos());
+        assertEquals(1, recorder.getErrorCount("getAsset", Phase.NETWORK));
+        assertEquals(0, recorder.getErrorCount("getAsset", Phase.DESERIALIZATION));
+        assertEquals(0, recorder.getLatency("getAsset", Phase.CRYPTO).getCount());
+        assertNull(recorder.getLatency("findEvents", Phase.NETWORK));
+        assertEquals(2, recorder.getOperations().size());
+    }
+
+
+    @Test
+    public void visitorReceivesRecordedPhasesOnly() {
+
+        MetricsRecorder recorder = new MetricsRecorder();
+        List<String> visited = new ArrayList<>();
+
+        recorder.record("createEvent", Phase.SERIALIZATION, 10, null);
+        recorder.record("createEvent", Phase.CALLBACK, 20, new Throwable());
+
+        recorder.forEach((operation, phase, latency, errorCount) ->
+                visited.add(operation + " " + phase + " " + latency.getTotalNanos() + " " + errorCount));
+
+        Collections.sort(visited);
+        assertEquals("[createEvent CALLBACK 20 1, createEvent SERIALIZATION 10 0]", visited.toString());
+    }
+
+
+    @Test
+    public void measurementsAreForwarded() {
+
+        MetricsRecorder recorder = new MetricsRecorder();
+        AtomicInteger forwarded = new AtomicInteger();
+        Instrumentation instrumentation = recorder.andThen((operation, phase, durationNanos, error) ->
+                forwarded.incrementAndGet());
+
+        instrumentation.record("getEvent", Phase.NETWORK, 10, null);
+        Instrumentation.NONE.record("getEvent", Phase.NETWORK, 10, null);
+
+        assertEquals(1, forwarded.get());
+        assertEquals(1, recorder.getLatency("getEvent", Phase.NETWORK).getCount());
+    }
+}
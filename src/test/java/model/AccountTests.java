@@ -22,6 +22,7 @@ import java.util.Arrays;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 
 public class AccountTests {
 
@@ -129,6 +130,23 @@ public class AccountTests {
     }
 
 
+    @Test
+    public void streamingDeserializerMatchesTreeDeserializer() {
+
+        Gson streamingGson = new GsonBuilder()
+                .registerTypeAdapter(Account.class, new Account.Adapter())
+                .registerTypeAdapterFactory(new Account.StreamingAdapter())
+                .create();
+
+        String jsonAccount = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_account.json").toString();
+
+        assertEquals(gson.fromJson(jsonAccount, Account.class), streamingGson.fromJson(jsonAccount, Account.class));
+        assertEquals(jsonAccount, streamingGson.toJson(streamingGson.fromJson(jsonAccount, Account.class)));
+        assertNull(streamingGson.fromJson("{}", Account.class));
+        assertNull(streamingGson.fromJson(jsonAccount.replace("create_entity", "unknown"), Account.class));
+    }
+
+
     @Test
     public void deserializationIsCorrect() {
 
@@ -30,6 +30,8 @@ import java.util.*;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 public class AssetTests {
 
@@ -152,6 +154,112 @@ public class AssetTests {
     }
 
 
+    @Test
+    public void withNewEventsAppendsMoreRecentEvents() {
+
+        Transport transport4 = new Transport("name4", "status4", "vehicle4");
+        Message message = new Message("message");
+        Event e4 = EventTests.createEvent("event4", 4, Arrays.asList(transport4, message));
+
+        Asset synced = asset.withNewEvents(Arrays.asList(e4, e3));
+
+        assertEquals(Long.valueOf(4), synced.getLatestEventTimestamp());
+        assertEquals(Arrays.asList(e4, e3, e2, e1), synced.getEventsList());
+        assertEquals(Arrays.asList(transport4, transport3, transport2, transport1),
+                synced.sectionsOfType(Transport.class));
+        assertEquals(Arrays.asList(loc3, loc2, loc1), synced.sectionsOfType(Location.class));
+        assertEquals(message, synced.firstOf(Message.class));
+        assertEquals(ASSET_ID, synced.getAssetId());
+        assertEquals(assetMetaData, synced.getMetaData());
+
+        assertEquals(Arrays.asList(e3, e2, e1), asset.getEventsList());
+        assertFalse(asset.hasEventDataOfType(Message.class));
+    }
+
+
+    @Test
+    public void withNewEventsMatchesFullRebuild() {
+
+        Location loc4 = new Location(4, 4, "loc4", "city4", "country4");
+        Event e0 = EventTests.createEvent("event0", 0, Collections.singletonList(transport1));
+        Event e2bis = EventTests.createEvent("event2bis", 2, Collections.singletonList(loc4));
+
+        Asset merged = asset.withNewEvents(Arrays.asList(e2bis, e0, e2));
+        Asset rebuilt = Asset.Builder.fromExistingAsset(asset).addAllEvents(Arrays.asList(e2bis, e0)).build();
+
+        assertEquals(rebuilt.getEventsList(), merged.getEventsList());
+        assertEquals(rebuilt.sectionsOfType(Transport.class), merged.sectionsOfType(Transport.class));
+        assertEquals(rebuilt.sectionsOfType(Location.class), merged.sectionsOfType(Location.class));
+        assertEquals(5, merged.getEventsList().size());
+    }
+
+
+    @Test
+    public void withNewEventsExtendsBuiltIndex() {
+
+        Transport transport4 = new Transport("name4", "status4", "vehicle4");
+        Event e4 = EventTests.createEvent("event4", 4, Collections.singletonList(transport4));
+
+        asset.sectionsOfType(Transport.class);
+        Asset synced = asset.withNewEvents(Collections.singletonList(e4));
+        Asset rebuilt = Asset.Builder.fromExistingAsset(asset).addEvent(e4).build();
+
+        assertEquals(rebuilt.sectionsOfType(Transport.class), synced.sectionsOfType(Transport.class));
+        assertEquals(rebuilt.sectionsOfType(Location.class), synced.sectionsOfType(Location.class));
+        assertEquals(transport4, synced.firstOf(Transport.class));
+        assertEquals(loc1, synced.lastOf(Location.class));
+    }
+
+
+    @Test
+    public void sectionsOfTypeAreSharedAndReadOnly() {
+
+        List<Transport> transports = asset.sectionsOfType(Transport.class);
+
+        assertTrue(transports == asset.sectionsOfType(Transport.class));
+        assertTrue(asset.sectionsOfType(Message.class).isEmpty());
+
+        try {
+            transports.clear();
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+
+    @Test
+    public void withNoNewEventsReturnsSameAsset() {
+
+        assertTrue(asset == asset.withNewEvents(Collections.<Event>emptyList()));
+        assertTrue(asset == asset.withNewEvents(Arrays.asList(e1, e2)));
+    }
+
+
+    @Test
+    public void eventsWithTypeIsCorrect() {
+
+        Location loc4 = new Location(4, 4, "loc4", "city4", "country4");
+        Location loc5 = new Location(5, 5, "loc5", "city5", "country5");
+        Event e4 = EventTests.createEvent("event4", 4, Arrays.asList(loc4, new Message("message"), loc5));
+        Asset asset = Asset.Builder.fromExistingAsset(this.asset).addEvent(e4).build();
+
+        assertEquals(Arrays.asList(e4, e3, e2, e1), asset.eventsWithType(Location.class));
+        assertEquals(Collections.singletonList(e4), asset.eventsWithType(Message.class));
+        assertTrue(asset.eventsWithType(RawJson.class).isEmpty());
+        assertTrue(asset.eventsWithType(Location.class) == asset.eventsWithType(Location.class));
+    }
+
+
+    @Test
+    public void forEachSectionOfTypeIsCorrect() {
+
+        List<Transport> transports = new ArrayList<>();
+        asset.forEachSectionOfType(Transport.class, transports::add);
+
+        assertEquals(asset.sectionsOfType(Transport.class), transports);
+    }
+
+
     @Test
     public void builderIsCorrect() {
 
@@ -183,6 +291,26 @@ public class AssetTests {
     }
 
 
+    @Test
+    public void streamingDeserializerMatchesTreeDeserializer() {
+
+        Gson streamingGson = new GsonBuilder()
+                .registerTypeAdapter(Asset.class, new Asset.Adapter(null))
+                .registerTypeAdapterFactory(new Asset.StreamingAdapter())
+                .create();
+
+        String jsonAsset = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_asset.json").toString();
+        Asset treeAsset = gson.fromJson(jsonAsset, Asset.class);
+        Asset streamedAsset = streamingGson.fromJson(jsonAsset, Asset.class);
+
+        assertEquals(gson.toJson(treeAsset), streamingGson.toJson(streamedAsset));
+        assertEquals(treeAsset.getMetaData(), streamedAsset.getMetaData());
+        assertEquals(treeAsset.getTimestamp(), streamedAsset.getTimestamp());
+
+        assertNull(streamingGson.fromJson("{}", Asset.class));
+    }
+
+
     @Test
     public void serializationisCorrect() {
 
@@ -11,6 +11,7 @@ This Source Code Form is "Incompatible With Secondary Licenses", as defined by t
 package model;
 
 import com.ambrosus.commons.Location;
+import com.ambrosus.commons.RawJson;
 import com.ambrosus.commons.Transport;
 import com.ambrosus.model.Event;
 import com.ambrosus.model.EventData;
@@ -20,13 +21,17 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertArrayEquals;
 
 public class EventDataTests {
 
@@ -112,6 +117,65 @@ public class EventDataTests {
     }
 
 
+    @Test
+    public void streamingDeserializerMatchesTreeDeserializer() {
+
+        Map<String, Type> typeMap = new HashMap<>();
+        typeMap.put("ambrosus.asset.location", Location.class);
+        typeMap.put("ambrosus.event.transport", Transport.class);
+
+        Gson streamingGson = new GsonBuilder()
+                .registerTypeAdapter(Location.class, new Location.Adapter())
+                .registerTypeAdapter(RawJson.class, new RawJson.Adapter())
+                .registerTypeAdapter(datalistType, new EventData.Adapter(typeMap))
+                .registerTypeAdapterFactory(new EventData.StreamingAdapter(typeMap))
+                .create();
+
+        JsonObject untyped = new JsonObject();
+        untyped.addProperty("prop1", "value1");
+
+        JsonObject unregistered = new JsonObject();
+        unregistered.addProperty("type", "ambrosus.event.unknown");
+
+        JsonArray array = new JsonArray();
+        array.add(gson.toJsonTree(transport));
+        array.add(new JsonPrimitive(2));
+        array.add(untyped);
+        array.add(unregistered);
+        array.add(gson.toJsonTree(loc));
+
+        List<EventData> eventData = streamingGson.fromJson(array.toString(), datalistType);
+
+        assertEquals(Arrays.asList(transport, new RawJson(unregistered), loc), eventData);
+        assertTrue(((List<?>) streamingGson.fromJson("{}", datalistType)).isEmpty());
+
+        JsonArray expected = new JsonArray();
+        expected.add(array.get(0));
+        expected.add(unregistered);
+        expected.add(array.get(4));
+        assertEquals(expected, streamingGson.toJsonTree(eventData, datalistType));
+    }
+
+
+    @Test
+    public void streamingDeserializerWrapsUnknownSections() {
+
+        Gson streamingGson = new GsonBuilder()
+                .registerTypeAdapter(RawJson.class, new RawJson.Adapter())
+                .registerTypeAdapterFactory(new EventData.StreamingAdapter(Collections.<String, Type>emptyMap()))
+                .create();
+
+        String section = "{\"type\":\"ambrosus.event.unknown\",\"amount\":12.50,\"tags\":[null,true,\"é\"]}";
+        List<EventData> eventData = streamingGson.fromJson("[" + section + "]", datalistType);
+        RawJson rawJson = (RawJson) eventData.get(0);
+
+        assertTrue(rawJson.isParsed());
+        assertArrayEquals(section.getBytes(StandardCharsets.UTF_8), rawJson.toUtf8());
+        assertEquals("12.50", rawJson.json().get("amount").getAsString());
+        assertEquals("é", rawJson.json().getAsJsonArray("tags").get(2).getAsString());
+    }
+
+
     @Test
     public void deserializesRegisteredTypeCorrectly() {
 
@@ -33,6 +33,7 @@ import org.web3j.crypto.Keys;
 import utils.TestUtils;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -155,6 +156,17 @@ public class EventTests {
     }
 
 
+    @Test
+    public void forEachDataOfTypeIsCorrect() {
+
+        List<Location> locations = new ArrayList<>();
+        event.forEachDataOfType(Location.class, locations::add);
+
+        assertEquals(Arrays.asList(loc1, loc2, loc3), locations);
+        assertTrue(event.eventDataWithType(Location.class) == event.eventDataWithType(Location.class));
+    }
+
+
     @Test
     public void builderIsCorrect() {
 
@@ -224,6 +236,36 @@ public class EventTests {
     }
 
 
+    @Test
+    public void streamingDeserializerMatchesTreeDeserializer() {
+        Map<String, Type> typeMap = new HashMap<>();
+        typeMap.put("ambrosus.event.message", Message.class);
+
+        Gson streamingGson = new GsonBuilder()
+                .registerTypeAdapter(Event.class, new Event.Adapter(keys))
+                .registerTypeAdapter(RawJson.class, new RawJson.Adapter())
+                .registerTypeAdapter(new TypeToken<List<EventData>>() {
+                }.getType(), new EventData.Adapter(typeMap))
+                .registerTypeAdapterFactory(new Event.StreamingAdapter())
+                .registerTypeAdapterFactory(new EventData.StreamingAdapter(typeMap))
+                .setExclusionStrategies(new AmbrosusSDK.AmbTypeExclusionStrategy())
+                .create();
+
+        String jsonEvent = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_event.json").toString();
+        Event treeEvent = gson.fromJson(jsonEvent, Event.class);
+        Event streamedEvent = streamingGson.fromJson(jsonEvent, Event.class);
+
+        assertEquals(gson.toJson(treeEvent), streamingGson.toJson(streamedEvent));
+        assertEquals(treeEvent.getEventDataList(), streamedEvent.getEventDataList());
+        assertEquals(treeEvent.getTimestamp(), streamedEvent.getTimestamp());
+        assertEquals(treeEvent.getMetaData(), streamedEvent.getMetaData());
+        assertEquals(streamedEvent, streamedEvent.getEventDataList().get(0).getParentEvent());
+
+        assertNull(streamingGson.fromJson("{\"content\":{\"idData\":{}}}", Event.class));
+        assertNull(streamingGson.fromJson("null", Event.class));
+    }
+
+
     @Test
     public void deserializerFailsGracefullyWithMalformedEventJson() {
         JsonObject jObj = new JsonObject();
@@ -0,0 +1,131 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package network;
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.model.Asset;
+import com.ambrosus.network.HttpConfig;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static utils.TestUtils.noOp;
+
+public class HttpConfigTests {
+
+    private MockWebServer mockWebServer;
+
+
+    @Before
+    public void init() throws IOException {
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+
+    @Test
+    public void settingsAreAppliedToClient() {
+
+        OkHttpClient client = new HttpConfig.Builder()
+                .setMaxRequests(128, 32)
+                .setConnectTimeout(2, TimeUnit.SECONDS)
+                .setReadTimeout(3, TimeUnit.SECONDS)
+                .setWriteTimeout(4, TimeUnit.SECONDS)
+                .setHttp2Enabled(false)
+                .build()
+                .createClient();
+
+        assertEquals(128, client.dispatcher().getMaxRequests());
+        assertEquals(32, client.dispatcher().getMaxRequestsPerHost());
+        assertEquals(2000, client.connectTimeoutMillis());
+        assertEquals(3000, client.readTimeoutMillis());
+        assertEquals(4000, client.writeTimeoutMillis());
+        assertEquals(Collections.singletonList(Protocol.HTTP_1_1), client.protocols());
+    }
+
+
+    @Test
+    public void sharedClientPoolAndDispatcherAreReused() {
+
+        OkHttpClient sharedClient = new OkHttpClient();
+        HttpConfig httpConfig = new HttpConfig.Builder()
+                .setSharedClient(sharedClient)
+                .setReadTimeout(1, TimeUnit.SECONDS)
+                .build();
+
+        OkHttpClient first = httpConfig.createClient();
+        OkHttpClient second = httpConfig.createClient();
+
+        assertSame(sharedClient.connectionPool(), first.connectionPool());
+        assertSame(sharedClient.connectionPool(), second.connectionPool());
+        assertSame(sharedClient.dispatcher(), first.dispatcher());
+        assertEquals(1000, first.readTimeoutMillis());
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void sharedClientPoolCannotBeConfigured() {
+
+        new HttpConfig.Builder()
+                .setSharedClient(new OkHttpClient())
+                .setConnectionPool(10, 1, TimeUnit.MINUTES)
+                .build();
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSettingThrowsException() {
+
+        new HttpConfig.Builder().setMaxRequests(0, 1);
+    }
+
+
+    @Test
+    public void requestBodiesAreCompressed() throws Exception {
+
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        AmbrosusSDK ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(), "0x012345",
+                new HttpConfig.Builder().setRequestCompressionEnabled(true).build()));
+        ambrosus.init();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        ambrosus.createAsset(new Asset.Builder(), assetWrapper -> latch.countDown(), noOp());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        RecordedRequest recordedRequest = mockWebServer.takeRequest();
+        assertEquals("gzip", recordedRequest.getHeader("Content-Encoding"));
+
+        Buffer body = new Buffer();
+        body.writeAll(new GzipSource(recordedRequest.getBody()));
+        assertTrue(body.readUtf8().contains("\"content\""));
+    }
+}
@@ -0,0 +1,231 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package network;
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.model.Asset;
+import com.ambrosus.network.HttpConfig;
+import com.ambrosus.network.NodePolicy;
+import com.ambrosus.network.NodePool;
+import com.ambrosus.network.ResponseWrapper;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import utils.TestUtils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class NodePoolTests {
+
+    private MockWebServer firstNode;
+    private MockWebServer secondNode;
+    private String assetJson;
+    private String assetId;
+
+
+    @Before
+    public void init() throws IOException {
+
+        firstNode = new MockWebServer();
+        firstNode.start();
+        secondNode = new MockWebServer();
+        secondNode.start();
+
+        JsonObject asset = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_asset.json");
+        assetJson = asset.toString();
+        assetId = asset.get("assetId").getAsString();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        firstNode.shutdown();
+        secondNode.shutdown();
+    }
+
+
+    private AmbrosusSDK createSDK(NodePolicy policy, MockWebServer... nodes) {
+
+        String[] urls = new String[nodes.length];
+        for (int i = 0; i < nodes.length; i++)
+            urls[i] = nodes[i].url("/").toString();
+
+        AmbrosusSDK ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(Arrays.asList(urls), "0x012345",
+                new HttpConfig.Builder().build()));
+
+        if (policy != null)
+            ambrosus.setNodePolicy(policy);
+
+        ambrosus.init();
+        return ambrosus;
+    }
+
+
+    private Object getAsset(AmbrosusSDK ambrosus) throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Object> outcome = new AtomicReference<>();
+
+        ambrosus.getAsset(assetId, (ResponseWrapper<Asset> assetWrapper) -> {
+            outcome.set(assetWrapper);
+            latch.countDown();
+        }, (call, throwable) -> {
+            outcome.set(throwable);
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return outcome.get();
+    }
+
+
+    @Test
+    public void requestsAreSpreadOverNodes() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(null, firstNode, secondNode);
+
+        for (int i = 0; i < 4; i++) {
+            firstNode.enqueue(new MockResponse().setBody(assetJson));
+            secondNode.enqueue(new MockResponse().setBody(assetJson));
+        }
+
+        for (int i = 0; i < 4; i++)
+            assertTrue(((ResponseWrapper<?>) getAsset(ambrosus)).isSuccessful());
+
+        assertTrue(firstNode.getRequestCount() > 0);
+        assertTrue(secondNode.getRequestCount() > 0);
+        assertEquals(4, firstNode.getRequestCount() + secondNode.getRequestCount());
+        assertEquals(firstNode.takeRequest().getPath(), secondNode.takeRequest().getPath());
+    }
+
+
+    @Test
+    public void unreachableNodeIsAvoided() throws InterruptedException, IOException {
+
+        AmbrosusSDK ambrosus = createSDK(new NodePolicy.Builder()
+                .setCircuitBreaker(1, 1, TimeUnit.MINUTES)
+                .build(), firstNode, secondNode);
+        secondNode.shutdown();
+
+        for (int i = 0; i < 4; i++)
+            firstNode.enqueue(new MockResponse().setBody(assetJson));
+
+        int failures = 0;
+
+        for (int i = 0; i < 5; i++) {
+            if (getAsset(ambrosus) instanceof IOException)
+                failures++;
+        }
+
+        NodePool.Node unreachable = ambrosus.getNodePool().getNodes().get(1);
+
+        assertEquals(1, failures);
+        assertEquals(4, firstNode.getRequestCount());
+        assertEquals(NodePool.State.OPEN, unreachable.getState());
+        assertEquals(1, unreachable.getFailureCount());
+    }
+
+
+    @Test
+    public void circuitIsClosedAgainByTrialRequest() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new NodePolicy.Builder()
+                .setCircuitBreaker(2, 200, TimeUnit.MILLISECONDS)
+                .build(), firstNode);
+        NodePool nodePool = ambrosus.getNodePool();
+
+        firstNode.enqueue(new MockResponse().setResponseCode(503));
+        firstNode.enqueue(new MockResponse().setResponseCode(502));
+        firstNode.enqueue(new MockResponse().setBody(assetJson));
+
+        assertEquals(503, ((ResponseWrapper<?>) getAsset(ambrosus)).code());
+        assertEquals(502, ((ResponseWrapper<?>) getAsset(ambrosus)).code());
+        assertEquals(NodePool.State.OPEN, nodePool.getNodes().get(0).getState());
+
+        // Every circuit is open, so the request is not sent
+        assertTrue(getAsset(ambrosus) instanceof ConnectException);
+        assertEquals(1, nodePool.getRejectedCount());
+        assertEquals(2, firstNode.getRequestCount());
+
+        Thread.sleep(250);
+
+        assertTrue(((ResponseWrapper<?>) getAsset(ambrosus)).isSuccessful());
+        assertEquals(NodePool.State.CLOSED, nodePool.getNodes().get(0).getState());
+        assertEquals(3, firstNode.getRequestCount());
+    }
+
+
+    private void getAssets(AmbrosusSDK ambrosus, int count) throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++)
+            ambrosus.getAsset(assetId, assetWrapper -> latch.countDown(), (call, throwable) -> latch.countDown());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+
+    @Test
+    public void recoveredNodeReceivesRequestsAgain() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new NodePolicy.Builder()
+                .setCircuitBreaker(1, 100, TimeUnit.MILLISECONDS)
+                .build(), firstNode, secondNode);
+        NodePool.Node recovering = ambrosus.getNodePool().getNodes().get(1);
+
+        // The answers of the first node are delayed, so that the concurrent requests overlap
+        for (int i = 0; i < 100; i++)
+            firstNode.enqueue(new MockResponse().setBody(assetJson).setBodyDelay(30, TimeUnit.MILLISECONDS));
+
+        int failures = 6;
+        for (int i = 0; i < failures; i++)
+            secondNode.enqueue(new MockResponse().setResponseCode(503));
+        for (int i = 0; i < 100; i++)
+            secondNode.enqueue(new MockResponse().setBody(assetJson));
+
+        // Every open and half-open cycle of the second node ends with a failed trial, until its failures run out
+        while (recovering.getFailureCount() < failures) {
+            getAssets(ambrosus, 2);
+            Thread.sleep(120);
+        }
+
+        getAssets(ambrosus, 2);
+        assertEquals(NodePool.State.CLOSED, recovering.getState());
+        assertEquals(0, recovering.getErrorRate(), 0.25);
+
+        int before = secondNode.getRequestCount();
+
+        for (int i = 0; i < 10; i++)
+            getAssets(ambrosus, 4);
+
+        assertTrue(secondNode.getRequestCount() - before >= 5);
+        assertTrue(recovering.getLatencyNanos() < 10 * ambrosus.getNodePool().getNodes().get(0).getLatencyNanos());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nodeUrlsMustEndWithSlash() {
+
+        new NodePool(Arrays.asList(firstNode.url("/").toString(), "http://localhost:8080/api"),
+                new NodePolicy.Builder().build());
+    }
+}
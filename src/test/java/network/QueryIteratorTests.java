@@ -0,0 +1,170 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package network;
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.model.Event;
+import com.ambrosus.network.QueryIterator;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import utils.TestUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class QueryIteratorTests {
+
+    private AmbrosusSDK ambrosus;
+    private MockWebServer mockWebServer;
+    private JsonObject eventJson;
+
+
+    @Before
+    public void init() throws IOException {
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(), "0x012345"));
+        ambrosus.init();
+
+        eventJson = TestUtils.readJson(TestUtils.PATH_PREFIX + "event_query_response.json")
+                .getAsJsonArray("results").get(0).getAsJsonObject();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+
+    private MockResponse page(int size, int resultCount) {
+
+        JsonArray results = new JsonArray();
+        for (int i = 0; i < size; i++)
+            results.add(eventJson);
+
+        JsonObject page = new JsonObject();
+        page.add("results", results);
+        page.addProperty("resultCount", resultCount);
+
+        return new MockResponse().setBody(page.toString());
+    }
+
+
+    @Test
+    public void everyPageIsRetrieved() throws InterruptedException {
+
+        mockWebServer.enqueue(page(2, 5));
+        mockWebServer.enqueue(page(2, 5));
+        mockWebServer.enqueue(page(1, 5));
+
+        Map<String, String> params = new HashMap<>();
+        params.put("assetId", "0xABC");
+        params.put("perPage", "2");
+
+        int count = 0;
+        try (QueryIterator<Event> events = ambrosus.iterateEvents(params)) {
+            while (events.hasNext()) {
+                assertNotNull(events.next().getAssetId());
+                count++;
+            }
+        }
+
+        assertEquals(5, count);
+        assertEquals(3, mockWebServer.getRequestCount());
+        String firstRequest = mockWebServer.takeRequest().getRequestLine();
+        assertTrue(firstRequest.startsWith("GET /events?"));
+        assertTrue(firstRequest.contains("assetId=0xABC"));
+        assertTrue(firstRequest.contains("perPage=2"));
+        assertTrue(firstRequest.contains("page=0"));
+        assertTrue(mockWebServer.takeRequest().getRequestLine().contains("page=1"));
+        assertTrue(mockWebServer.takeRequest().getRequestLine().contains("page=2"));
+        assertEquals(2, params.size());
+    }
+
+
+    @Test
+    public void iterationStopsAtResultCount() {
+
+        mockWebServer.enqueue(page(2, 4));
+        mockWebServer.enqueue(page(2, 4));
+
+        Map<String, String> params = new HashMap<>();
+        params.put("perPage", "2");
+
+        QueryIterator<Event> events = ambrosus.iterateEvents(params);
+        for (int i = 0; i < 4; i++)
+            events.next();
+
+        assertFalse(events.hasNext());
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+
+    @Test(expected = NoSuchElementException.class)
+    public void emptyQueryHasNoResults() {
+
+        mockWebServer.enqueue(page(0, 0));
+
+        ambrosus.iterateEvents(new HashMap<>()).next();
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void failedPageThrowsException() {
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+        ambrosus.iterateAssets(new HashMap<>()).hasNext();
+    }
+
+
+    @Test
+    public void failedPageIsReportedByEveryLaterCall() {
+
+        mockWebServer.enqueue(page(2, 0));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+        Map<String, String> params = new HashMap<>();
+        params.put("perPage", "2");
+
+        QueryIterator<Event> events = ambrosus.iterateEvents(params);
+        events.next();
+        events.next();
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                events.hasNext();
+                fail("A failed page should be reported.");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("500"));
+            }
+        }
+
+        try {
+            events.next();
+            fail("A failed page should be reported.");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("500"));
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package network;
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.model.Account;
+import com.ambrosus.model.Asset;
+import com.ambrosus.network.AmbrosusService;
+import com.ambrosus.network.EventQueryResponse;
+import com.ambrosus.network.RequestCoalescer;
+import com.ambrosus.network.ResponseWrapper;
+import com.google.gson.JsonObject;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import utils.TestUtils;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RequestCoalescerTests {
+
+    private AmbrosusSDK ambrosus;
+    private MockWebServer mockWebServer;
+    private CountDownLatch release;
+    private String assetJson;
+    private String assetId;
+
+
+    @Before
+    public void init() throws IOException {
+
+        release = new CountDownLatch(1);
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+
+                // Responses are held back until released, so that the requests overlap
+                release.await(10, TimeUnit.SECONDS);
+
+                if (request.getPath().startsWith("/assets/"))
+                    return new MockResponse().setBody(assetJson);
+
+                if (request.getPath().startsWith("/accounts/"))
+                    return new MockResponse().setResponseCode(401).setBody("Unauthorized");
+
+                return new MockResponse().setBody("{\"results\":[],\"resultCount\":0}");
+            }
+        });
+        mockWebServer.start();
+
+        ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(), "0x012345"));
+        ambrosus.enableRequestCoalescing();
+        ambrosus.init();
+
+        JsonObject asset = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_asset.json");
+        assetJson = asset.toString();
+        assetId = asset.get("assetId").getAsString();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        release.countDown();
+        mockWebServer.shutdown();
+    }
+
+
+    @Test
+    public void concurrentIdenticalReadsShareOneRequest() throws InterruptedException {
+
+        int callers = 20;
+        CountDownLatch latch = new CountDownLatch(callers);
+        List<Asset> assets = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < callers; i++) {
+            ambrosus.getAsset(assetId, assetWrapper -> {
+                assetWrapper.ifBodyPresent(assets::add);
+                latch.countDown();
+            }, (call, throwable) -> latch.countDown());
+        }
+
+        release.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(callers, assets.size());
+        assertEquals(1, mockWebServer.getRequestCount());
+        assertEquals(1, ambrosus.getRequestCoalescer().getRequestCount());
+        assertEquals(callers - 1, ambrosus.getRequestCoalescer().getCoalescedCount());
+        assertEquals(0, ambrosus.getRequestCoalescer().pendingCount());
+    }
+
+
+    @Test
+    public void queryParametersAreComparedRegardlessOfOrder() throws InterruptedException {
+
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("assetId", assetId);
+        params.put("perPage", "10");
+
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("perPage", "10");
+        reversed.put("assetId", assetId);
+
+        Map<String, String> other = new HashMap<>(params);
+        other.put("page", "1");
+
+        CountDownLatch latch = new CountDownLatch(4);
+        List<ResponseWrapper<EventQueryResponse>> responses = new CopyOnWriteArrayList<>();
+
+        for (Map<String, String> query : Arrays.asList(params, reversed, other, params)) {
+            ambrosus.findEvents(query, response -> {
+                responses.add(response);
+                latch.countDown();
+            }, (call, throwable) -> latch.countDown());
+        }
+
+        release.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(4, responses.size());
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void authorizationSeparatesRequestsAndErrorBodiesAreCopied() throws InterruptedException, IOException {
+
+        CountDownLatch latch = new CountDownLatch(3);
+        List<String> errorBodies = new CopyOnWriteArrayList<>();
+
+        for (String token : new String[]{"token1", "token2", "token1"}) {
+            ambrosus.getAccount(token, "0xABCDEF", (ResponseWrapper<Account> response) -> {
+                try {
+                    errorBodies.add(response.errorBody().string());
+                } catch (IOException e) {
+                    errorBodies.add(e.toString());
+                }
+                latch.countDown();
+            }, (call, throwable) -> latch.countDown());
+        }
+
+        release.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(2, mockWebServer.getRequestCount());
+        assertEquals(3, errorBodies.size());
+
+        for (String errorBody : errorBodies)
+            assertEquals("Unauthorized", errorBody);
+    }
+
+
+    @Test
+    public void requestIsCancelledWithItsLastCall() throws InterruptedException {
+
+        RequestCoalescer coalescer = new RequestCoalescer();
+        AmbrosusService service = new Retrofit.Builder()
+                .baseUrl(mockWebServer.url("/"))
+                .addCallAdapterFactory(coalescer)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(AmbrosusService.class);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        Callback<EventQueryResponse> callback = new Callback<EventQueryResponse>() {
+
+            @Override
+            public void onResponse(Call<EventQueryResponse> call, Response<EventQueryResponse> response) {
+                latch.countDown();
+            }
+
+
+            @Override
+            public void onFailure(Call<EventQueryResponse> call, Throwable throwable) {
+                failures.add(throwable);
+                latch.countDown();
+            }
+        };
+
+        Call<EventQueryResponse> first = service.getEvents(assetId);
+        Call<EventQueryResponse> second = service.getEvents(assetId);
+        first.enqueue(callback);
+        second.enqueue(callback);
+
+        first.cancel();
+        assertEquals(1, coalescer.pendingCount());
+        second.cancel();
+        assertEquals(0, coalescer.pendingCount());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(2, failures.size());
+        assertTrue(first.isCanceled());
+        assertEquals(1, coalescer.getCoalescedCount());
+    }
+
+
+    @Test
+    public void unreadableErrorBodyFailsEveryCall() throws InterruptedException {
+
+        List<Callback<EventQueryResponse>> sentCallbacks = new CopyOnWriteArrayList<>();
+        AmbrosusService service = new Retrofit.Builder()
+                .baseUrl(mockWebServer.url("/"))
+                .addCallAdapterFactory(new RequestCoalescer())
+                .addCallAdapterFactory(new UnreadableErrorFactory(sentCallbacks))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(AmbrosusService.class);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        Callback<EventQueryResponse> callback = new Callback<EventQueryResponse>() {
+
+            @Override
+            public void onResponse(Call<EventQueryResponse> call, Response<EventQueryResponse> response) {
+                latch.countDown();
+            }
+
+
+            @Override
+            public void onFailure(Call<EventQueryResponse> call, Throwable throwable) {
+                failures.add(throwable);
+                latch.countDown();
+            }
+        };
+
+        service.getEvents(assetId).enqueue(callback);
+        service.getEvents(assetId).enqueue(callback);
+
+        assertEquals(1, sentCallbacks.size());
+        sentCallbacks.get(0).onResponse(null, Response.<EventQueryResponse>error(500, unreadableBody()));
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(2, failures.size());
+        assertEquals("Connection reset", failures.get(0).getMessage());
+    }
+
+
+    private static ResponseBody unreadableBody() {
+
+        return new ResponseBody() {
+
+            @Override
+            public okhttp3.MediaType contentType() {
+                return null;
+            }
+
+
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+
+            @Override
+            public BufferedSource source() {
+                return Okio.buffer(new Source() {
+
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        throw new IOException("Connection reset");
+                    }
+
+
+                    @Override
+                    public Timeout timeout() {
+                        return Timeout.NONE;
+                    }
+
+
+                    @Override
+                    public void close() {
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Replaces the HTTP requests with calls whose callbacks are collected, to be completed by the test.
+     */
+    private static final class UnreadableErrorFactory extends CallAdapter.Factory {
+
+        private final List<Callback<EventQueryResponse>> sentCallbacks;
+
+
+        UnreadableErrorFactory(List<Callback<EventQueryResponse>> sentCallbacks) {
+
+            this.sentCallbacks = sentCallbacks;
+        }
+
+
+        @Override
+        public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+
+            Type responseType = getParameterUpperBound(0, (ParameterizedType) returnType);
+
+            return new CallAdapter<EventQueryResponse, Call<EventQueryResponse>>() {
+
+                @Override
+                public Type responseType() {
+                    return responseType;
+                }
+
+
+                @Override
+                public Call<EventQueryResponse> adapt(Call<EventQueryResponse> call) {
+                    return new CollectedCall(call, sentCallbacks);
+                }
+            };
+        }
+    }
+
+    private static final class CollectedCall implements Call<EventQueryResponse> {
+
+        private final Call<EventQueryResponse> delegate;
+        private final List<Callback<EventQueryResponse>> sentCallbacks;
+
+
+        CollectedCall(Call<EventQueryResponse> delegate, List<Callback<EventQueryResponse>> sentCallbacks) {
+
+            this.delegate = delegate;
+            this.sentCallbacks = sentCallbacks;
+        }
+
+
+        @Override
+        public Response<EventQueryResponse> execute() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void enqueue(Callback<EventQueryResponse> callback) {
+            sentCallbacks.add(callback);
+        }
+
+
+        @Override
+        public boolean isExecuted() {
+            return !sentCallbacks.isEmpty();
+        }
+
+
+        @Override
+        public void cancel() {
+        }
+
+
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+
+
+        @Override
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        public Call<EventQueryResponse> clone() {
+            return new CollectedCall(delegate.clone(), sentCallbacks);
+        }
+
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+    }
+}
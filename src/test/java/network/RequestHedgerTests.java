@@ -0,0 +1,159 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package network;
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.model.Asset;
+import com.ambrosus.network.HttpConfig;
+import com.ambrosus.network.NodePolicy;
+import com.ambrosus.network.RequestHedger;
+import com.ambrosus.network.ResponseWrapper;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import utils.TestUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RequestHedgerTests {
+
+    private MockWebServer slowNode;
+    private MockWebServer fastNode;
+    private AmbrosusSDK ambrosus;
+    private String assetJson;
+    private String assetId;
+
+
+    @Before
+    public void init() throws IOException {
+
+        slowNode = new MockWebServer();
+        slowNode.start();
+        fastNode = new MockWebServer();
+        fastNode.start();
+
+        // The first node is tried first, as no latency is known yet
+        ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(Arrays.asList(slowNode.url("/").toString(),
+                fastNode.url("/").toString()), "0x012345", new HttpConfig.Builder().build()));
+        ambrosus.setNodePolicy(new NodePolicy.Builder()
+                .setHedging(95, 0.5, 1)
+                .setHedgeDelays(100, 10, TimeUnit.MILLISECONDS)
+                .build());
+        ambrosus.init();
+
+        JsonObject asset = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_asset.json");
+        assetJson = asset.toString();
+        assetId = asset.get("assetId").getAsString();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        slowNode.shutdown();
+        fastNode.shutdown();
+    }
+
+
+    private ResponseWrapper<Asset> getAsset() throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ResponseWrapper<Asset>> asset = new AtomicReference<>();
+
+        ambrosus.getAsset(assetId, assetWrapper -> {
+            asset.set(assetWrapper);
+            latch.countDown();
+        }, (call, throwable) -> latch.countDown());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return asset.get();
+    }
+
+
+    @Test
+    public void slowReadIsAnsweredByAnotherNode() throws InterruptedException {
+
+        RequestHedger hedger = ambrosus.getRequestHedger();
+
+        slowNode.enqueue(new MockResponse().setBody(assetJson).setBodyDelay(5, TimeUnit.SECONDS));
+        fastNode.enqueue(new MockResponse().setBody(assetJson));
+
+        long start = System.nanoTime();
+        ResponseWrapper<Asset> asset = getAsset();
+
+        assertTrue(asset.isSuccessful());
+        assertEquals(assetId, asset.body().getAssetId());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+        assertEquals(1, slowNode.getRequestCount());
+        assertEquals(1, fastNode.getRequestCount());
+        assertEquals(1, hedger.getHedgeCount());
+        assertEquals(1, hedger.getHedgeWinCount());
+    }
+
+
+    @Test
+    public void failureIsDeliveredOnceBothRequestsFailed() throws InterruptedException {
+
+        slowNode.enqueue(new MockResponse().setResponseCode(500).setBodyDelay(300, TimeUnit.MILLISECONDS));
+        fastNode.enqueue(new MockResponse().setResponseCode(503));
+
+        assertEquals(500, getAsset().code());
+        assertEquals(1, ambrosus.getRequestHedger().getHedgeCount());
+        assertEquals(0, ambrosus.getRequestHedger().getHedgeWinCount());
+    }
+
+
+    @Test
+    public void hedgesAreLimitedByBudget() throws InterruptedException {
+
+        RequestHedger hedger = ambrosus.getRequestHedger();
+
+        for (int i = 0; i < 3; i++) {
+            slowNode.enqueue(new MockResponse().setBody(assetJson).setBodyDelay(300, TimeUnit.MILLISECONDS));
+            fastNode.enqueue(new MockResponse().setBody(assetJson).setBodyDelay(300, TimeUnit.MILLISECONDS));
+        }
+
+        // The saved hedge is spent by the first read, then each read earns half a hedge
+        for (int i = 0; i < 3; i++)
+            assertTrue(getAsset().isSuccessful());
+
+        assertEquals(2, hedger.getHedgeCount());
+        assertEquals(5, slowNode.getRequestCount() + fastNode.getRequestCount());
+    }
+
+
+    @Test
+    public void hedgeDelayFollowsLatencies() throws InterruptedException {
+
+        RequestHedger hedger = ambrosus.getRequestHedger();
+        assertEquals(100, hedger.getHedgeDelayMillis("getAsset"));
+
+        for (int i = 0; i < 60; i++) {
+            slowNode.enqueue(new MockResponse().setBody(assetJson));
+            fastNode.enqueue(new MockResponse().setBody(assetJson));
+        }
+
+        for (int i = 0; i < 60; i++)
+            assertTrue(getAsset().isSuccessful());
+
+        assertTrue(hedger.getHedgeDelayMillis("getAsset") >= 10);
+        assertTrue(hedger.getHedgeDelayMillis("getAsset") < 100);
+        assertEquals(100, hedger.getHedgeDelayMillis("getEvents"));
+    }
+}
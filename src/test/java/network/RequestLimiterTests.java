@@ -0,0 +1,246 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package network;
+
+import com.ambrosus.model.Asset;
+import com.ambrosus.network.AmbrosusService;
+import com.ambrosus.network.LimitPolicy;
+import com.ambrosus.network.RequestLimiter;
+import com.ambrosus.network.RequestPriority;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import utils.TestUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RequestLimiterTests {
+
+    private MockWebServer mockWebServer;
+    private volatile CountDownLatch release;
+    private volatile int responseCode;
+    private String assetJson;
+    private String assetId;
+    private RequestLimiter limiter;
+
+
+    @Before
+    public void init() throws IOException {
+
+        release = new CountDownLatch(0);
+        responseCode = 200;
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+
+                // Responses can be held back, so that requests stay in flight
+                release.await(10, TimeUnit.SECONDS);
+
+                if (responseCode != 200)
+                    return new MockResponse().setResponseCode(responseCode);
+
+                if (request.getPath().startsWith("/assets/"))
+                    return new MockResponse().setBody(assetJson);
+
+                return new MockResponse().setBody("{\"results\":[],\"resultCount\":0}");
+            }
+        });
+        mockWebServer.start();
+
+        JsonObject asset = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_asset.json");
+        assetJson = asset.toString();
+        assetId = asset.get("assetId").getAsString();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        release.countDown();
+        mockWebServer.shutdown();
+    }
+
+
+    private AmbrosusService createService(LimitPolicy.Builder policyBuilder) {
+
+        limiter = new RequestLimiter(policyBuilder.build());
+
+        return new Retrofit.Builder()
+                .baseUrl(mockWebServer.url("/"))
+                .addCallAdapterFactory(limiter)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(AmbrosusService.class);
+    }
+
+
+    private <T> Callback<T> countDown(CountDownLatch latch, List<Throwable> failures) {
+
+        return new Callback<T>() {
+
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                latch.countDown();
+            }
+
+
+            @Override
+            public void onFailure(Call<T> call, Throwable throwable) {
+                failures.add(throwable);
+                latch.countDown();
+            }
+        };
+    }
+
+
+    @Test
+    public void requestsRespectTheRateOfTheirOperation() throws InterruptedException {
+
+        AmbrosusService service = createService(new LimitPolicy.Builder()
+                .setRate("getAsset", new LimitPolicy.Rate(20, 1)));
+
+        CountDownLatch latch = new CountDownLatch(4);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 3; i++)
+            service.getAsset(assetId).enqueue(countDown(latch, failures));
+
+        // Other operations have no rate, and are not held back by the waiting reads
+        service.getEvents(assetId).enqueue(countDown(latch, failures));
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(failures.isEmpty());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+        assertEquals(2, limiter.getThrottledCount());
+        assertEquals(4, mockWebServer.getRequestCount());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+
+    @Test
+    public void interactiveRequestsOvertakeBulkRequests() throws InterruptedException {
+
+        AmbrosusService service = createService(new LimitPolicy.Builder().setConcurrency(1, 1, 1));
+        release = new CountDownLatch(1);
+
+        CountDownLatch latch = new CountDownLatch(3);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        service.getEvents(assetId).enqueue(countDown(latch, failures));
+        service.findEvents(Collections.singletonMap("perPage", "1")).enqueue(countDown(latch, failures));
+        service.getAsset(assetId).enqueue(countDown(latch, failures));
+
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(1, limiter.getQueueLength(RequestPriority.BULK));
+        assertEquals(1, limiter.getQueueLength(RequestPriority.INTERACTIVE));
+
+        release.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(failures.isEmpty());
+        assertTrue(mockWebServer.takeRequest().getPath().startsWith("/events?assetId"));
+        assertTrue(mockWebServer.takeRequest().getPath().startsWith("/assets/"));
+        assertTrue(mockWebServer.takeRequest().getPath().startsWith("/events?perPage"));
+    }
+
+
+    @Test
+    public void limitShrinksWhenOverloadedAndGrowsBack() throws IOException {
+
+        AmbrosusService service = createService(new LimitPolicy.Builder()
+                .setConcurrency(2, 1, 3)
+                .setBackoffRatio(0.5));
+
+        responseCode = 503;
+        assertEquals(503, service.getAsset(assetId).execute().code());
+        assertEquals(1, limiter.getLimit());
+        assertEquals(1, limiter.getOverloadCount());
+
+        responseCode = 200;
+        assertTrue(service.getAsset(assetId).execute().isSuccessful());
+        assertEquals(2, limiter.getLimit());
+
+        // Sequential requests only use half of the limit, which is thus not raised further
+        for (int i = 0; i < 10; i++)
+            assertTrue(service.getAsset(assetId).execute().isSuccessful());
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+
+    @Test
+    public void waitingCallsCanBeCanceled() throws InterruptedException {
+
+        AmbrosusService service = createService(new LimitPolicy.Builder().setConcurrency(1, 1, 1));
+        release = new CountDownLatch(1);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        service.getAsset(assetId).enqueue(countDown(latch, failures));
+        Call<Asset> waiting = service.getAsset(assetId);
+        waiting.enqueue(countDown(latch, failures));
+
+        assertEquals(1, limiter.getQueueLength(RequestPriority.INTERACTIVE));
+        waiting.cancel();
+        assertEquals(0, limiter.getQueueLength(RequestPriority.INTERACTIVE));
+        assertTrue(waiting.isCanceled());
+
+        release.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, failures.size());
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void ratesCanBeChangedAtRuntime() throws InterruptedException, IOException {
+
+        AmbrosusService service = createService(new LimitPolicy.Builder()
+                .setDefaultRate(new LimitPolicy.Rate(0.01, 1)));
+
+        assertTrue(service.getAsset(assetId).execute().isSuccessful());
+        assertEquals(0, limiter.getAvailableTokens("getAsset"), 0.01);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        service.getAsset(assetId).enqueue(countDown(latch, failures));
+
+        assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, limiter.getQueueLength(RequestPriority.INTERACTIVE));
+
+        limiter.setRate("getAsset", LimitPolicy.Rate.UNLIMITED);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(failures.isEmpty());
+        assertEquals(Double.POSITIVE_INFINITY, limiter.getAvailableTokens("getAsset"), 0);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package network;
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.model.Asset;
+import com.ambrosus.model.Event;
+import com.ambrosus.network.AmbrosusService;
+import com.ambrosus.network.RequestRetrier;
+import com.ambrosus.network.ResponseWrapper;
+import com.ambrosus.network.RetryPolicy;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import utils.TestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static utils.TestUtils.noOp;
+
+public class RequestRetrierTests {
+
+    private MockWebServer mockWebServer;
+    private String assetJson;
+    private String assetId;
+
+
+    @Before
+    public void init() throws IOException {
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        JsonObject asset = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_asset.json");
+        assetJson = asset.toString();
+        assetId = asset.get("assetId").getAsString();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+
+    private AmbrosusSDK createSDK(RetryPolicy.Builder policyBuilder) {
+
+        AmbrosusSDK ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(),
+                "0x012345"));
+        ambrosus.enableRetries(policyBuilder
+                .setBackoff(1, 10, 2, TimeUnit.MILLISECONDS)
+                .build());
+        ambrosus.init();
+
+        return ambrosus;
+    }
+
+
+    private ResponseWrapper<Asset> getAsset(AmbrosusSDK ambrosus) throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ResponseWrapper<Asset>> asset = new AtomicReference<>();
+
+        ambrosus.getAsset(assetId, assetWrapper -> {
+            asset.set(assetWrapper);
+            latch.countDown();
+        }, (call, throwable) -> latch.countDown());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return asset.get();
+    }
+
+
+    @Test
+    public void transientReadFailuresAreRetried() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new RetryPolicy.Builder());
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(502));
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson));
+
+        ResponseWrapper<Asset> asset = getAsset(ambrosus);
+
+        assertTrue(asset.isSuccessful());
+        assertEquals(assetId, asset.body().getAssetId());
+        assertEquals(3, mockWebServer.getRequestCount());
+        assertEquals(2, ambrosus.getRequestRetrier().getRetryCount());
+    }
+
+
+    @Test
+    public void lastResponseIsDeliveredAfterMaxAttempts() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new RetryPolicy.Builder().setMaxAttempts(2));
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(504));
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson));
+
+        assertEquals(504, getAsset(ambrosus).code());
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void clientErrorsAreNotRetried() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new RetryPolicy.Builder());
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+
+        assertEquals(404, getAsset(ambrosus).code());
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void writesAreOnlyRetriedWhenRefused() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new RetryPolicy.Builder());
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ResponseWrapper<Event>> event = new AtomicReference<>();
+
+        ambrosus.createEvent(new Event.Builder().setAssetId(assetId), eventWrapper -> {
+            event.set(eventWrapper);
+            latch.countDown();
+        }, noOp());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(500, event.get().code());
+        assertEquals(2, mockWebServer.getRequestCount());
+        assertEquals(mockWebServer.takeRequest().getBody().readUtf8(), mockWebServer.takeRequest().getBody()
+                .readUtf8());
+    }
+
+
+    @Test
+    public void longRetryAfterIsNotWaited() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new RetryPolicy.Builder().setMaxRetryAfter(1, TimeUnit.SECONDS));
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "120"));
+
+        assertEquals(503, getAsset(ambrosus).code());
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void retriesAreLimitedByBudget() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new RetryPolicy.Builder().setRetryBudget(0, 1));
+        RequestRetrier retrier = ambrosus.getRequestRetrier();
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+        assertEquals(503, getAsset(ambrosus).code());
+        assertEquals(2, mockWebServer.getRequestCount());
+        assertEquals(1, retrier.getRetryCount());
+        assertEquals(1, retrier.getBudgetExhaustedCount());
+        assertEquals(0, retrier.getAvailableRetries(), 0);
+    }
+
+
+    @Test
+    public void budgetGrowsWithTraffic() throws InterruptedException {
+
+        AmbrosusSDK ambrosus = createSDK(new RetryPolicy.Builder().setRetryBudget(0.5, 1));
+        RequestRetrier retrier = ambrosus.getRequestRetrier();
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson));
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson));
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson));
+
+        // The saved retry is spent, then each request earns half a retry
+        assertTrue(getAsset(ambrosus).isSuccessful());
+        assertEquals(0, retrier.getAvailableRetries(), 0);
+        assertTrue(getAsset(ambrosus).isSuccessful());
+        assertEquals(0.5, retrier.getAvailableRetries(), 0);
+        assertTrue(getAsset(ambrosus).isSuccessful());
+        assertEquals(1, retrier.getAvailableRetries(), 0);
+    }
+
+
+    @Test
+    public void networkFailuresOfReadsAreRetried() throws InterruptedException, IOException {
+
+        AmbrosusSDK ambrosus = createSDK(new RetryPolicy.Builder().setMaxAttempts(2));
+
+        mockWebServer.shutdown();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ambrosus.getAsset(assetId, noOp -> latch.countDown(), (call, throwable) -> {
+            failure.set(throwable);
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof IOException);
+        assertEquals(1, ambrosus.getRequestRetrier().getRetryCount());
+    }
+
+
+    @Test
+    public void cancelDuringBackoffFailsTheCall() throws InterruptedException {
+
+        AmbrosusService service = new Retrofit.Builder()
+                .baseUrl(mockWebServer.url("/"))
+                .addCallAdapterFactory(new RequestRetrier(new RetryPolicy.Builder().build()))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(AmbrosusService.class);
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "2"));
+
+        CountDownLatch responded = new CountDownLatch(1);
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Call<Asset> call = service.getAsset(assetId);
+        call.enqueue(new Callback<Asset>() {
+
+            @Override
+            public void onResponse(Call<Asset> call, Response<Asset> response) {
+                responded.countDown();
+            }
+
+
+            @Override
+            public void onFailure(Call<Asset> call, Throwable throwable) {
+                failure.set(throwable);
+                failed.countDown();
+            }
+        });
+
+        // The first attempt is answered, and the retry waits for the Retry-After delay
+        assertFalse(responded.await(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, mockWebServer.getRequestCount());
+        call.cancel();
+
+        assertTrue(failed.await(1, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof IOException);
+        assertTrue(call.isCanceled());
+        assertEquals(1, responded.getCount());
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+}
@@ -0,0 +1,270 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package network;
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.model.Asset;
+import com.ambrosus.model.Event;
+import com.ambrosus.network.QueryIterator;
+import com.ambrosus.network.ResponseCache;
+import com.ambrosus.network.ResponseWrapper;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import utils.TestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static utils.TestUtils.noOp;
+
+public class ResponseCacheTests {
+
+    private AmbrosusSDK ambrosus;
+    private MockWebServer mockWebServer;
+    private String assetJson;
+    private String assetId;
+
+
+    @Before
+    public void init() throws IOException {
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(), "0x012345"));
+        ambrosus.enableCache(new ResponseCache.Config.Builder().build());
+        ambrosus.init();
+
+        JsonObject asset = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_asset.json");
+        assetJson = asset.toString();
+        assetId = asset.get("assetId").getAsString();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+
+    private Asset getAsset() throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Asset> asset = new AtomicReference<>();
+
+        ambrosus.getAsset(assetId, assetWrapper -> {
+            assetWrapper.ifBodyPresent(asset::set);
+            latch.countDown();
+        }, noOp());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return asset.get();
+    }
+
+
+    @Test
+    public void cachedAssetIsServedWithoutRequest() throws InterruptedException {
+
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson));
+
+        Asset first = getAsset();
+        Asset second = getAsset();
+
+        assertEquals(assetId, first.getAssetId());
+        assertSame(first, second);
+        assertEquals(1, mockWebServer.getRequestCount());
+        assertEquals(1, ambrosus.getAssetCache().getHitCount());
+        assertEquals(1, ambrosus.getAssetCache().getMissCount());
+    }
+
+
+    @Test
+    public void failedResponseIsNotCached() throws InterruptedException {
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson));
+
+        assertNull(getAsset());
+        assertNotNull(getAsset());
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void deduplicatedLoadsEachReadTheErrorBody() throws InterruptedException {
+
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404).setBody("{\"reason\":\"Not found\"}")
+                .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        CountDownLatch latch = new CountDownLatch(2);
+        List<String> errorBodies = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < 2; i++) {
+            ambrosus.getAsset(assetId, assetWrapper -> {
+                try {
+                    errorBodies.add(assetWrapper.errorBody().string());
+                } catch (IOException e) {
+                    errorBodies.add(null);
+                }
+                latch.countDown();
+            }, noOp());
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("{\"reason\":\"Not found\"}", "{\"reason\":\"Not found\"}"), errorBodies);
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void concurrentLoadsAreDeduplicated() throws InterruptedException {
+
+        int callers = 10;
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson).setHeadersDelay(200, TimeUnit.MILLISECONDS));
+
+        CountDownLatch latch = new CountDownLatch(callers);
+        AtomicInteger assets = new AtomicInteger();
+
+        for (int i = 0; i < callers; i++) {
+            ambrosus.getAsset(assetId, assetWrapper -> {
+                if (assetWrapper.hasBody())
+                    assets.incrementAndGet();
+                latch.countDown();
+            }, noOp());
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(callers, assets.get());
+        assertEquals(1, mockWebServer.getRequestCount());
+        assertEquals(1, ambrosus.getAssetCache().getLoadCount());
+    }
+
+
+    @Test
+    public void eventQueryFillsEventCache() throws InterruptedException {
+
+        JsonObject queryResponse = TestUtils.readJson(TestUtils.PATH_PREFIX + "event_query_response.json");
+        String eventId = queryResponse.getAsJsonArray("results").get(0).getAsJsonObject().get("eventId")
+                .getAsString();
+        mockWebServer.enqueue(new MockResponse().setBody(queryResponse.toString()));
+
+        CountDownLatch queryLatch = new CountDownLatch(1);
+        ambrosus.findEvents(new HashMap<>(), eventQueryWrapper -> queryLatch.countDown(), noOp());
+        assertTrue(queryLatch.await(10, TimeUnit.SECONDS));
+
+        CountDownLatch eventLatch = new CountDownLatch(1);
+        AtomicReference<ResponseWrapper<Event>> event = new AtomicReference<>();
+        ambrosus.getEvent(eventId, eventWrapper -> {
+            event.set(eventWrapper);
+            eventLatch.countDown();
+        }, noOp());
+        assertTrue(eventLatch.await(10, TimeUnit.SECONDS));
+
+        assertEquals(eventId, event.get().body().getEventId());
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void eventIterationFillsEventCache() throws InterruptedException {
+
+        JsonObject queryResponse = TestUtils.readJson(TestUtils.PATH_PREFIX + "event_query_response.json");
+        String eventId = queryResponse.getAsJsonArray("results").get(0).getAsJsonObject().get("eventId")
+                .getAsString();
+        mockWebServer.enqueue(new MockResponse().setBody(queryResponse.toString()));
+
+        try (QueryIterator<Event> events = ambrosus.iterateEvents(new HashMap<>())) {
+            assertTrue(events.hasNext());
+        }
+
+        CountDownLatch eventLatch = new CountDownLatch(1);
+        AtomicReference<ResponseWrapper<Event>> event = new AtomicReference<>();
+        ambrosus.getEvent(eventId, eventWrapper -> {
+            event.set(eventWrapper);
+            eventLatch.countDown();
+        }, noOp());
+        assertTrue(eventLatch.await(10, TimeUnit.SECONDS));
+
+        assertEquals(eventId, event.get().body().getEventId());
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+
+        ResponseCache<String> cache = new ResponseCache<>(new ResponseCache.Config.Builder()
+                .setMaxEntries(2)
+                .build(), value -> 1);
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.getIfPresent("a");
+        cache.put("c", "C");
+
+        assertEquals("A", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("C", cache.getIfPresent("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+
+    @Test
+    public void entriesAreEvictedByWeight() {
+
+        ResponseCache<String> cache = new ResponseCache<>(new ResponseCache.Config.Builder()
+                .setMaxWeight(10)
+                .build(), String::length);
+
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.put("c", "cccc");
+
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.weight());
+    }
+
+
+    @Test
+    public void expiredEntriesAreNotServed() throws InterruptedException {
+
+        ResponseCache<String> cache = new ResponseCache<>(new ResponseCache.Config.Builder()
+                .setTimeToLive(1, TimeUnit.MILLISECONDS)
+                .build(), value -> 1);
+
+        cache.put("a", "A");
+        Thread.sleep(10);
+
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void cacheCannotBeEnabledAfterInit() {
+
+        ambrosus.enableCache(new ResponseCache.Config.Builder().build());
+    }
+}
@@ -0,0 +1,278 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package store;
+
+import com.ambrosus.AmbrosusSDK;
+import com.ambrosus.model.Asset;
+import com.ambrosus.model.Event;
+import com.ambrosus.store.EventStore;
+import com.ambrosus.commons.RawJson;
+import com.ambrosus.model.EventData;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.TestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class EventStoreTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AmbrosusSDK ambrosus;
+    private MockWebServer mockWebServer;
+    private JsonObject assetJson;
+    private String assetId;
+    private File directory;
+    private Gson gson;
+
+
+    @Before
+    public void init() throws IOException {
+
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        ambrosus = new AmbrosusSDK(new AmbrosusSDK.Config(mockWebServer.url("/").toString(), "0x012345"));
+        ambrosus.init();
+
+        assetJson = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_asset.json");
+        assetId = assetJson.get("assetId").getAsString();
+        directory = temporaryFolder.newFolder("store");
+
+        gson = new GsonBuilder()
+                .registerTypeAdapter(Asset.class, new Asset.Adapter(null))
+                .registerTypeAdapter(Event.class, new Event.Adapter(null))
+                .registerTypeAdapter(RawJson.class, new RawJson.Adapter())
+                .registerTypeAdapter(new TypeToken<List<EventData>>() {
+                }.getType(), new EventData.Adapter(new HashMap<>()))
+                .create();
+    }
+
+
+    @After
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+
+    private JsonObject eventJson(int index, long timestamp) {
+
+        JsonObject event = TestUtils.readJson(TestUtils.PATH_PREFIX + "event_query_response.json")
+                .getAsJsonArray("results").get(0).getAsJsonObject();
+        JsonObject idData = event.getAsJsonObject("content").getAsJsonObject("idData");
+
+        event.addProperty("eventId", String.format("0x%064x", index));
+        idData.addProperty("assetId", assetId);
+        idData.addProperty("timestamp", timestamp);
+        return event;
+    }
+
+
+    private List<Event> events(int from, int to) {
+
+        List<Event> events = new ArrayList<>();
+
+        for (int i = from; i < to; i++)
+            events.add(gson.fromJson(eventJson(i, 1000 + i), Event.class));
+
+        return events;
+    }
+
+
+    private String queryResponse(JsonObject... events) {
+
+        JsonArray results = new JsonArray();
+        for (JsonObject event : events)
+            results.add(event);
+
+        JsonObject response = new JsonObject();
+        response.add("results", results);
+        response.addProperty("resultCount", events.length);
+        return response.toString();
+    }
+
+
+    @Test
+    public void storedObjectsSurviveReopening() throws IOException {
+
+        List<Event> events = events(0, 10);
+
+        try (EventStore store = EventStore.open(directory, gson)) {
+            assertTrue(store.putAsset(gson.fromJson(assetJson, Asset.class)));
+            assertEquals(10, store.putEvents(events));
+        }
+
+        try (EventStore store = EventStore.open(directory, gson)) {
+            assertEquals(assetId, store.getAsset(assetId).get().getAssetId());
+            assertEquals(10, store.eventCount());
+            assertEquals(Long.valueOf(1009), store.getLatestTimestamp(assetId));
+
+            List<Event> storedEvents = store.getEvents(assetId);
+            assertEquals(10, storedEvents.size());
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals(events.get(i).getEventId(), storedEvents.get(i).getEventId());
+                assertEquals(events.get(i).getTimestamp(), storedEvents.get(i).getTimestamp());
+                assertEquals(events.get(i).getSignature(), storedEvents.get(i).getSignature());
+                assertEquals(events.get(i).getDataHash(), storedEvents.get(i).getDataHash());
+            }
+        }
+    }
+
+
+    @Test
+    public void eventsAreOrderedByTimestampAndDeduplicated() throws IOException {
+
+        List<Event> events = events(0, 20);
+        List<Event> reversed = new ArrayList<>(events);
+        Collections.reverse(reversed);
+
+        try (EventStore store = EventStore.open(directory, gson)) {
+            assertEquals(20, store.putEvents(reversed));
+            assertEquals(0, store.putEvents(events.subList(5, 10)));
+
+            List<Event> range = store.getEvents(assetId, 1005, 1009);
+            assertEquals(5, range.size());
+            assertEquals(events.get(5).getEventId(), range.get(0).getEventId());
+            assertEquals(events.get(9).getEventId(), range.get(4).getEventId());
+        }
+    }
+
+
+    @Test
+    public void recordsAreSpreadOverSegments() throws IOException {
+
+        try (EventStore store = EventStore.open(directory, gson, 2048)) {
+            store.putEvents(events(0, 50));
+        }
+
+        assertTrue(directory.listFiles().length > 1);
+
+        try (EventStore store = EventStore.open(directory, gson, 2048)) {
+            assertEquals(50, store.getEvents(assetId).size());
+        }
+    }
+
+
+    @Test
+    public void recordsAcrossMappedChunksAreRead() throws IOException {
+
+        // Several megabytes of records, so that records lie in mapped chunks, across chunks and after the last one
+        List<Event> events = events(0, 3000);
+
+        try (EventStore store = EventStore.open(directory, gson)) {
+            assertEquals(3000, store.putEvents(events));
+            assertTrue(directory.listFiles()[0].length() > 2 * 1024 * 1024);
+            assertEquals(3000, store.getEvents(assetId).size());
+        }
+
+        try (EventStore store = EventStore.open(directory, gson)) {
+            List<Event> storedEvents = store.getEvents(assetId);
+            assertEquals(3000, storedEvents.size());
+
+            for (int i = 0; i < 3000; i++)
+                assertEquals(events.get(i).getEventId(), storedEvents.get(i).getEventId());
+        }
+    }
+
+
+    @Test
+    public void incompleteRecordIsDiscarded() throws IOException {
+
+        try (EventStore store = EventStore.open(directory, gson)) {
+            store.putEvents(events(0, 5));
+        }
+
+        File segment = directory.listFiles()[0];
+        long validSize = segment.length();
+
+        // Simulate a crash in the middle of a write
+        try (FileOutputStream out = new FileOutputStream(segment, true)) {
+            out.write(new byte[]{0, 0, 1, 0, 1, 2, 3});
+        }
+
+        try (EventStore store = EventStore.open(directory, gson)) {
+            assertEquals(5, store.getEvents(assetId).size());
+            assertEquals(validSize, segment.length());
+
+            store.putEvents(events(5, 6));
+        }
+
+        try (EventStore store = EventStore.open(directory, gson)) {
+            assertEquals(6, store.getEvents(assetId).size());
+        }
+    }
+
+
+    @Test
+    public void syncOnlyRequestsMissingData() throws Exception {
+
+        mockWebServer.enqueue(new MockResponse().setBody(assetJson.toString()));
+        mockWebServer.enqueue(new MockResponse().setBody(queryResponse(eventJson(1, 1001), eventJson(0, 1000))));
+        mockWebServer.enqueue(new MockResponse().setBody(queryResponse(eventJson(2, 1002), eventJson(1, 1001))));
+
+        try (EventStore store = ambrosus.openEventStore(directory)) {
+            assertEquals(2, sync(store).getEventsList().size());
+
+            Asset asset = sync(store);
+            assertEquals(3, asset.getEventsList().size());
+            assertEquals(assetId, asset.getAssetId());
+        }
+
+        assertEquals(String.format("/assets/%s", assetId), mockWebServer.takeRequest().getPath());
+
+        RecordedRequest firstQuery = mockWebServer.takeRequest();
+        assertFalse(firstQuery.getPath().contains("fromTimestamp"));
+
+        RecordedRequest deltaQuery = mockWebServer.takeRequest();
+        assertTrue(deltaQuery.getPath().startsWith("/events?"));
+        assertTrue(deltaQuery.getPath().contains("fromTimestamp=1001"));
+        assertEquals(3, mockWebServer.getRequestCount());
+    }
+
+
+    private Asset sync(EventStore store) throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Asset> result = new AtomicReference<>();
+
+        ambrosus.syncAssetWithEvents(assetId, store, asset -> {
+            result.set(asset);
+            latch.countDown();
+        }, (call, t) -> t.printStackTrace());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return result.get();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package utils;
+
+import com.ambrosus.utils.BulkVerifier;
+import com.ambrosus.utils.VerificationReport;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BulkVerifierTests {
+
+    private static List<Integer> range(int size) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+            items.add(i);
+        return items;
+    }
+
+
+    @Test
+    public void everyItemIsVerified() {
+
+        BulkVerifier<Integer> verifier = new BulkVerifier<>(i -> i % 10 != 3, ForkJoinPool.commonPool());
+        VerificationReport report = verifier.verify(range(1000), false);
+
+        assertEquals(1000, report.size());
+        assertEquals(900, report.getValidCount());
+        assertEquals(100, report.getInvalidCount());
+        assertEquals(0, report.getSkippedCount());
+        assertEquals(3, report.getFirstFailureIndex());
+        assertEquals(VerificationReport.Result.INVALID, report.resultAt(13));
+        assertEquals(VerificationReport.Result.VALID, report.getResults().get(14));
+        assertFalse(report.allValid());
+    }
+
+
+    @Test
+    public void verificationStopsAtFirstFailure() {
+
+        BulkVerifier<Integer> verifier = new BulkVerifier<>(i -> i != 100, new ForkJoinPool(1));
+        VerificationReport report = verifier.verify(range(1000), true);
+
+        assertEquals(1, report.getInvalidCount());
+        assertEquals(100, report.getFirstFailureIndex());
+        assertEquals(100, report.getValidCount());
+        assertEquals(899, report.getSkippedCount());
+        assertEquals(VerificationReport.Result.SKIPPED, report.resultAt(999));
+    }
+
+
+    @Test
+    public void emptyCollectionIsValid() {
+
+        VerificationReport report = new BulkVerifier<Integer>(i -> false, ForkJoinPool.commonPool())
+                .verify(Collections.emptyList(), true);
+
+        assertEquals(0, report.size());
+        assertTrue(report.allValid());
+        assertEquals(-1, report.getFirstFailureIndex());
+    }
+}
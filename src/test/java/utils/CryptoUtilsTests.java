@@ -11,6 +11,9 @@ This Source Code Form is "Incompatible With Secondary Licenses", as defined by t
 package utils;
 
 import com.ambrosus.utils.CryptoUtils;
+import com.ambrosus.utils.JsonUtils;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import org.junit.Test;
 import org.web3j.crypto.ECKeyPair;
 import org.web3j.crypto.Keys;
@@ -39,6 +42,31 @@ public class CryptoUtilsTests extends CryptoUtils {
     }
 
 
+    @Test
+    public void jsonHashMatchesStringHash() {
+
+        JsonObject event = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_event.json");
+        JsonArray data = event.getAsJsonObject("content").getAsJsonArray("data");
+
+        assertEquals(CryptoUtils.computeHashString(JsonUtils.arraySort(data).toString()),
+                CryptoUtils.computeHashString(data));
+
+        JsonObject unicode = new JsonObject();
+        unicode.addProperty("z", "\u00e9t\u00e9 \u20ac \ud83d\ude00 \ud83d \ude00 \"quoted\"\n\u2028<>");
+        unicode.addProperty("a", 1.5);
+        unicode.addProperty("m", true);
+
+        JsonObject large = new JsonObject();
+        for (int i = 0; i < 500; i++)
+            large.add("key" + i, unicode);
+
+        for (JsonObject candidate : new JsonObject[]{unicode, large}) {
+            assertEquals(CryptoUtils.computeHashString(JsonUtils.recursiveSort(candidate).toString()),
+                    CryptoUtils.computeHashString(candidate));
+        }
+    }
+
+
     @Test
     public void signatureVerificationIsCorrect() {
         ECKeyPair keyPair = ECKeyPair.create(Numeric.toBigInt
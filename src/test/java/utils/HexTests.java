@@ -0,0 +1,63 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package utils;
+
+import com.ambrosus.utils.Hex;
+import org.junit.Test;
+import org.web3j.utils.Numeric;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HexTests {
+
+    @Test
+    public void encodingMatchesNumeric() {
+
+        Random random = new Random(42);
+
+        for (int length = 0; length < 70; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+
+            String hex = Hex.toHexString(bytes);
+            assertEquals(Numeric.toHexString(bytes), hex);
+            assertArrayEquals(bytes, Hex.decode(hex));
+            assertArrayEquals(bytes, Hex.decode(hex.substring(2).toUpperCase()));
+        }
+    }
+
+
+    @Test
+    public void decodesIntoArrayAtOffset() {
+
+        byte[] destination = new byte[4];
+
+        assertEquals(2, Hex.decode("0xA0fF", destination, 1));
+        assertArrayEquals(new byte[]{0, (byte) 0xA0, (byte) 0xFF, 0}, destination);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oddNumberOfDigitsThrowsException() {
+
+        Hex.decode("0x123");
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCharacterThrowsException() {
+
+        Hex.decode("0x12g4");
+    }
+}
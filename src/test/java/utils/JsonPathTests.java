@@ -0,0 +1,123 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package utils;
+
+import com.ambrosus.utils.JsonPath;
+import com.ambrosus.utils.JsonPathSet;
+import com.ambrosus.utils.JsonUtils;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class JsonPathTests {
+
+    private JsonObject event;
+
+
+    @Before
+    public void init() {
+
+        event = TestUtils.readJson(TestUtils.PATH_PREFIX + "event_query_response.json")
+                .getAsJsonArray("results").get(0).getAsJsonObject();
+    }
+
+
+    @Test
+    public void pathMatchesElementWithPath() {
+
+        for (String path : new String[]{"eventId", "content|idData|createdBy", "content|idData", "content|missing",
+                "eventId|nested", "content|idData|"}) {
+            assertEquals(JsonUtils.elementWithPath(event, path).isPresent(),
+                    JsonPath.compile(path).find(event).isPresent());
+            assertEquals(JsonUtils.elementWithPath(event, path).orElse(null), JsonPath.compile(path).get(event));
+        }
+    }
+
+
+    @Test
+    public void indicesAndWildcardsAreSupported() {
+
+        JsonElement data = event.getAsJsonObject("content").get("data");
+
+        assertEquals(data.getAsJsonArray().get(0).getAsJsonObject().get("type"),
+                JsonPath.compile("content|data|0|type").get(event));
+        assertNull(JsonPath.compile("content|data|" + data.getAsJsonArray().size() + "|type").get(event));
+
+        List<JsonElement> types = JsonPath.compile("content|data|*|type").getAll(event);
+        assertEquals(data.getAsJsonArray().size(), types.size());
+
+        JsonObject object = new JsonParser().parse("{\"a\":{\"0\":1,\"x\":2},\"b\":[3,4]}").getAsJsonObject();
+        assertEquals(1, JsonPath.compile("a|0").get(object).getAsInt());
+        assertEquals(Arrays.asList(1, 2), ints(JsonPath.compile("a|*").getAll(object)));
+        assertEquals(Arrays.asList(3, 4), ints(JsonPath.compile("b|*").getAll(object)));
+        assertEquals(Arrays.asList(1, 2, 3, 4), ints(JsonPath.compile("*|*").getAll(object)));
+    }
+
+
+    @Test
+    public void pathSetMatchesSinglePaths() throws IOException {
+
+        String[] paths = {"eventId", "content|idData|createdBy", "content|data|*|type", "content|data|0",
+                "content|idData", "content|missing|*"};
+        JsonPathSet pathSet = JsonPathSet.compile(paths);
+
+        List<List<JsonElement>> treeMatches = matchLists(paths.length);
+        pathSet.evaluate(event, (index, element) -> treeMatches.get(index).add(element));
+
+        List<List<JsonElement>> streamMatches = matchLists(paths.length);
+        pathSet.evaluate(new JsonReader(new StringReader(event.toString())),
+                (index, element) -> streamMatches.get(index).add(element));
+
+        for (int i = 0; i < paths.length; i++) {
+            List<JsonElement> expected = JsonPath.compile(paths[i]).getAll(event);
+
+            assertEquals(paths[i], expected, treeMatches.get(i));
+            assertEquals(paths[i], expected, streamMatches.get(i));
+        }
+
+        assertFalse(treeMatches.get(2).isEmpty());
+    }
+
+
+    private static List<List<JsonElement>> matchLists(int count) {
+
+        List<List<JsonElement>> lists = new ArrayList<>();
+
+        for (int i = 0; i < count; i++)
+            lists.add(new ArrayList<>());
+
+        return lists;
+    }
+
+
+    private static List<Integer> ints(List<JsonElement> elements) {
+
+        List<Integer> ints = new ArrayList<>();
+
+        for (JsonElement element : elements)
+            ints.add(element.getAsInt());
+
+        return ints;
+    }
+}
@@ -18,6 +18,9 @@ import com.google.gson.JsonObject;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import static org.junit.Assert.assertEquals;
 
 public class JsonUtilsTests extends JsonUtils {
@@ -100,6 +103,24 @@ public class JsonUtilsTests extends JsonUtils {
     }
 
 
+    @Test
+    public void writeSortedMatchesRecursiveSort() throws IOException {
+
+        JsonObject json = TestUtils.readJson(TestUtils.PATH_PREFIX + "nested_arrays.json");
+        JsonObject event = TestUtils.readJson(TestUtils.PATH_PREFIX + "valid_event.json");
+
+        for (JsonObject candidate : new JsonObject[]{jObj, asset, json, event}) {
+            StringWriter writer = new StringWriter();
+            JsonUtils.writeSorted(candidate, writer);
+            assertEquals(JsonUtils.recursiveSort(candidate).toString(), writer.toString());
+        }
+
+        StringWriter writer = new StringWriter();
+        JsonUtils.writeSorted(json.getAsJsonArray("outerArray"), writer);
+        assertEquals(JsonUtils.arraySort(json.getAsJsonArray("outerArray")).toString(), writer.toString());
+    }
+
+
     @Test
     public void getElementWithPathIsCorrect() {
         assertEquals(0, JsonUtils.elementWithPath(jObj, "z").get().getAsInt());
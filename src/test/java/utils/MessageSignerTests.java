@@ -0,0 +1,115 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package utils;
+
+import com.ambrosus.utils.CryptoUtils;
+import com.ambrosus.utils.Hex;
+import com.ambrosus.utils.MessageSigner;
+import org.junit.Before;
+import org.junit.Test;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.utils.Numeric;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageSignerTests {
+
+    private ECKeyPair keyPair;
+    private byte[] address;
+    private MessageSigner signer;
+
+
+    @Before
+    public void init() {
+
+        keyPair = ECKeyPair.create(Numeric.toBigInt
+                ("0x0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef"));
+        address = Hex.decode(Keys.getAddress(keyPair.getPublicKey()));
+        signer = new MessageSigner();
+    }
+
+
+    @Test
+    public void signatureMatchesStringSignature() {
+
+        for (String message : new String[]{"Test message", "", "Ünïcödé 😀 message"}) {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            byte[] signature = new byte[MessageSigner.SIGNATURE_LENGTH + 1];
+
+            signer.sign(bytes, 0, bytes.length, keyPair, signature, 1);
+
+            assertEquals(CryptoUtils.computeSignature(message, keyPair),
+                    Hex.toHexString(Arrays.copyOfRange(signature, 1, signature.length)));
+
+            byte[] hash = new byte[32];
+            signer.hash(bytes, 0, bytes.length, hash, 0);
+            assertEquals(CryptoUtils.computeHashString(message), Hex.toHexString(hash));
+        }
+    }
+
+
+    @Test
+    public void verificationIsCorrect() {
+
+        byte[] message = "xxTest messagexx".getBytes(StandardCharsets.UTF_8);
+        byte[] signature = Hex.decode(CryptoUtils.computeSignature("Test message", keyPair));
+
+        assertTrue(signer.verify(message, 2, message.length - 4, signature, 0, address, 0));
+        assertFalse(signer.verify(message, 2, message.length - 3, signature, 0, address, 0));
+
+        address[0] ^= 1;
+        assertFalse(signer.verify(message, 2, message.length - 4, signature, 0, address, 0));
+    }
+
+
+    @Test
+    public void bufferVerificationIsCorrect() {
+
+        byte[] message = "Test message".getBytes(StandardCharsets.UTF_8);
+        byte[] signature = Hex.decode(CryptoUtils.computeSignature("Test message", keyPair));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(message.length);
+        direct.put(message).flip();
+
+        assertTrue(signer.verify(direct, signature, 0, address, 0));
+        assertTrue(signer.verify(ByteBuffer.wrap(message), signature, 0, address, 0));
+        assertEquals(0, direct.position());
+
+        byte[] bufferSignature = new byte[MessageSigner.SIGNATURE_LENGTH];
+        signer.sign(direct, keyPair, bufferSignature, 0);
+        assertEquals(CryptoUtils.computeSignature("Test message", keyPair), Hex.toHexString(bufferSignature));
+    }
+
+
+    @Test
+    public void garbageSignaturesAreRejected() {
+
+        byte[] message = "Test message".getBytes(StandardCharsets.UTF_8);
+        byte[] signature = new byte[MessageSigner.SIGNATURE_LENGTH];
+        Random random = new Random(42);
+
+        // About half of the random values of r are not the coordinate of a point of the curve
+        for (int i = 0; i < 100; i++) {
+            random.nextBytes(signature);
+            signature[MessageSigner.SIGNATURE_LENGTH - 1] = (byte) (27 + i % 2);
+
+            assertFalse(signer.verify(message, 0, message.length, signature, 0, address, 0));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package utils;
+
+import com.ambrosus.utils.SequenceGenerator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+public class SequenceGeneratorTests {
+
+    private static final int THREADS = 8;
+
+
+    /**
+     * Generates numbers from several threads at once and counts how many times each number was handed out.
+     */
+    private static AtomicIntegerArray generateConcurrently(SequenceGenerator generator, int bound, int callsPerThread)
+            throws InterruptedException {
+
+        AtomicIntegerArray counts = new AtomicIntegerArray(bound);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                for (int call = 0; call < callsPerThread; call++)
+                    counts.incrementAndGet(generator.next());
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads)
+            thread.join();
+
+        return counts;
+    }
+
+
+    @Test
+    public void sequenceWrapsAtBound() {
+
+        SequenceGenerator generator = new SequenceGenerator(3);
+
+        assertEquals(1, generator.next());
+        assertEquals(2, generator.next());
+        assertEquals(0, generator.next());
+        assertEquals(1, generator.next());
+    }
+
+
+    @Test
+    public void concurrentCallersNeverShareNumbersBeforeWrap() throws InterruptedException {
+
+        int bound = 1_000_000;
+        AtomicIntegerArray counts = generateConcurrently(new SequenceGenerator(bound), bound, (bound - 1) / THREADS);
+
+        for (int i = 0; i < bound; i++)
+            assertTrue("Sequence number " + i + " was generated more than once", counts.get(i) <= 1);
+    }
+
+
+    @Test
+    public void concurrentCallersSpreadNumbersEvenlyAcrossWraps() throws InterruptedException {
+
+        int bound = 1_000_000;
+        int wraps = 4;
+        AtomicIntegerArray counts = generateConcurrently(new SequenceGenerator(bound), bound,
+                bound * wraps / THREADS);
+
+        for (int i = 0; i < bound; i++)
+            assertEquals("Sequence number " + i + " was not generated once per wrap", wraps, counts.get(i));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBoundThrowsException() {
+
+        new SequenceGenerator(0);
+    }
+}
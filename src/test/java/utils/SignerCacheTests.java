@@ -0,0 +1,124 @@
+/*
+Copyright: Ambrosus Technologies GmbH
+Email: tech@ambrosus.com
+
+This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0. If a copy of the MPL was not
+distributed with this file, You can obtain one at https://mozilla.org/MPL/2.0/.
+
+This Source Code Form is "Incompatible With Secondary Licenses", as defined by the Mozilla Public License, v. 2.0.
+*/
+
+package utils;
+
+import com.ambrosus.utils.CryptoUtils;
+import com.ambrosus.utils.Hex;
+import com.ambrosus.utils.MessageSigner;
+import com.ambrosus.utils.SignerCache;
+import org.junit.Test;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.utils.Numeric;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SignerCacheTests {
+
+    private static final ECKeyPair KEY_PAIR = ECKeyPair.create(Numeric.toBigInt
+            ("0x0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef"));
+
+
+    private static byte[] filled(int length, int value) {
+
+        byte[] bytes = new byte[length];
+
+        for (int i = 0; i < length; i++)
+            bytes[i] = (byte) (value + i);
+
+        return bytes;
+    }
+
+
+    @Test
+    public void cachedAddressIsReturned() {
+
+        SignerCache cache = new SignerCache(10);
+        byte[] hash = filled(SignerCache.HASH_LENGTH, 1);
+        byte[] signature = filled(MessageSigner.SIGNATURE_LENGTH + 2, 2);
+        byte[] address = filled(MessageSigner.ADDRESS_LENGTH, 3);
+        byte[] result = new byte[MessageSigner.ADDRESS_LENGTH];
+
+        assertFalse(cache.get(hash, 0, signature, 2, result, 0));
+        cache.put(hash, 0, signature, 2, address, 0);
+
+        assertTrue(cache.get(hash, 0, signature, 2, result, 0));
+        assertArrayEquals(address, result);
+        assertFalse(cache.get(hash, 0, signature, 1, result, 0));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+
+    @Test
+    public void sizeIsBounded() {
+
+        SignerCache cache = new SignerCache(50);
+        byte[] signature = filled(MessageSigner.SIGNATURE_LENGTH, 0);
+        byte[] address = filled(MessageSigner.ADDRESS_LENGTH, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            byte[] hash = new byte[SignerCache.HASH_LENGTH];
+            hash[0] = (byte) i;
+            hash[1] = (byte) (i >> 8);
+            cache.put(hash, 0, signature, 0, address, 0);
+        }
+
+        assertTrue(cache.size() <= 50);
+        assertEquals(1000 - cache.size(), cache.getEvictionCount());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void verificationUsesCache() {
+
+        SignerCache cache = new SignerCache(10);
+        MessageSigner signer = new MessageSigner(cache);
+        byte[] message = "Test message".getBytes(StandardCharsets.UTF_8);
+        byte[] signature = Hex.decode(CryptoUtils.computeSignature("Test message", KEY_PAIR));
+        byte[] address = Hex.decode(Keys.getAddress(KEY_PAIR.getPublicKey()));
+
+        assertTrue(signer.verify(message, 0, message.length, signature, 0, address, 0));
+        assertTrue(signer.verify(message, 0, message.length, signature, 0, address, 0));
+
+        address[19] ^= 1;
+        assertFalse(signer.verify(message, 0, message.length, signature, 0, address, 0));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+
+    @Test
+    public void stringVerificationUsesCache() {
+
+        SignerCache cache = new SignerCache(100);
+        String address = Keys.toChecksumAddress(Keys.getAddress(KEY_PAIR.getPublicKey()));
+        String signature = CryptoUtils.computeSignature("Test message", KEY_PAIR);
+
+        assertTrue(CryptoUtils.signatureMatches("Test message", address, signature, cache));
+        assertTrue(CryptoUtils.signatureMatches("Test message", address, signature, cache));
+        assertFalse(CryptoUtils.signatureMatches("Test message", address.toLowerCase(), signature, cache));
+        assertFalse(CryptoUtils.signatureMatches("Other message", address, signature, cache));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.size());
+    }
+}